@@ -0,0 +1,226 @@
+package jmh.java.orm.detector.benchmark;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.json.Json;
+import javax.json.JsonArray;
+import javax.json.JsonNumber;
+import javax.json.JsonObject;
+import javax.json.JsonReader;
+import javax.json.JsonString;
+import javax.json.JsonValue;
+
+/**
+ * Compares the JSON results of a JMH run (-rf json) with a baseline run, benchmark by benchmark and parameter set.
+ * A benchmark regresses when its score is worse than the baseline by more than the threshold and by more than the
+ * two error margins together, or when its normalized allocation (gc.alloc.rate.norm, bytes per operation) grows
+ * by more than the threshold. A benchmark of the baseline without a result in the current run (renamed, removed or
+ * failed) fails the comparison as well.
+ *
+ * Usage: BaselineComparator baseline.json current.json [threshold percent, 5 by default]
+ * Exits with 1 when a benchmark regressed or is missing, 2 when a file cannot be read.
+ */
+public class BaselineComparator
+{
+	public static final double DEFAULT_THRESHOLD_PERCENT = 5.0;
+
+	private static final String ALLOCATION_METRIC = "gc.alloc.rate.norm";
+
+	//Allocation changes below this many bytes per operation are noise
+	private static final double MIN_ALLOCATION_CHANGE = 16.0;
+
+	public static void main(String[] args)
+	{
+		if( args.length < 2 )
+		{
+			System.err.println("Usage: BaselineComparator baseline.json current.json [threshold percent]");
+			System.exit(2);
+		}
+
+		double threshold = ((args.length > 2) ? Double.parseDouble(args[2]) : DEFAULT_THRESHOLD_PERCENT);
+		try
+		{
+			System.exit((compare(args[0], args[1], threshold) > 0) ? 1 : 0);
+		}
+		catch (IOException e)
+		{
+			System.err.println("BaselineComparator::main -> "+e.getMessage());
+			System.exit(2);
+		}
+	}
+
+	/**
+	 * Prints the comparison of every benchmark of the baseline
+	 *
+	 * @return number of regressed and missing benchmarks
+	 */
+	public static int compare(String baselinePath, String currentPath, double thresholdPercent) throws IOException
+	{
+		Map<String, BenchmarkScore> baseline = read(baselinePath);
+		Map<String, BenchmarkScore> current = read(currentPath);
+
+		int regressions = 0;
+		int missing = 0;
+		System.out.println(String.format("%-80s %14s %14s %9s %9s  %s", "Benchmark", "Baseline", "Current", "Score", "Alloc", "Verdict"));
+		for(Map.Entry<String, BenchmarkScore> entry : baseline.entrySet())
+		{
+			BenchmarkScore before = entry.getValue();
+			BenchmarkScore after = current.get(entry.getKey());
+			if( after == null )
+			{
+				System.out.println(String.format("%-80s %14.3f %14s %9s %9s  %s", entry.getKey(), before.score, "-", "-", "-", "MISSING"));
+				missing++;
+				continue;
+			}
+
+			double scoreChange = percentChange(before.score, after.score);
+			boolean higherIsBetter = "thrpt".equals(before.mode);
+			boolean scoreWorse = (higherIsBetter ? (scoreChange < -thresholdPercent) : (scoreChange > thresholdPercent));
+			boolean significant = Math.abs(after.score - before.score) > (errorOf(before) + errorOf(after));
+
+			double allocationChange = percentChange(before.allocation, after.allocation);
+			boolean allocationWorse = !Double.isNaN(allocationChange) && (allocationChange > thresholdPercent) && ((after.allocation - before.allocation) > MIN_ALLOCATION_CHANGE);
+
+			String verdict = "OK";
+			if( (scoreWorse && significant) || allocationWorse )
+			{
+				verdict = "REGRESSION";
+				regressions++;
+			}
+			else if( (higherIsBetter ? (scoreChange > thresholdPercent) : (scoreChange < -thresholdPercent)) && significant )
+			{
+				verdict = "IMPROVED";
+			}
+
+			System.out.println(String.format("%-80s %14.3f %14.3f %+8.2f%% %9s  %s %s", entry.getKey(), before.score, after.score, scoreChange,
+				(Double.isNaN(allocationChange) ? "-" : String.format("%+.2f%%", allocationChange)), verdict, after.unit));
+		}
+
+		for(String key : current.keySet())
+		{
+			if( !baseline.containsKey(key) )
+			{
+				System.out.println(String.format("%-80s %14s %14.3f %9s %9s  %s", key, "-", current.get(key).score, "-", "-", "NEW"));
+			}
+		}
+
+		System.out.println(regressions+" regression(s) and "+missing+" missing benchmark(s) against "+baselinePath+" (threshold "+thresholdPercent+"%)");
+		return regressions + missing;
+	}
+
+	/**
+	 * Scores of a JMH JSON result file, by benchmark name and parameters
+	 */
+	static Map<String, BenchmarkScore> read(String path) throws IOException
+	{
+		Map<String, BenchmarkScore> scores = new LinkedHashMap<String, BenchmarkScore>();
+		InputStream in = new FileInputStream(path);
+		try
+		{
+			JsonReader reader = Json.createReader(in);
+			JsonArray results = reader.readArray();
+			reader.close();
+
+			for(JsonValue value : results)
+			{
+				JsonObject result = (JsonObject) value;
+				JsonObject primaryMetric = result.getJsonObject("primaryMetric");
+
+				BenchmarkScore score = new BenchmarkScore();
+				score.mode = result.getString("mode", "");
+				score.score = toDouble(primaryMetric.get("score"));
+				score.error = toDouble(primaryMetric.get("scoreError"));
+				score.unit = primaryMetric.getString("scoreUnit", "");
+				score.allocation = Double.NaN;
+
+				JsonObject secondaryMetrics = result.getJsonObject("secondaryMetrics");
+				if( secondaryMetrics != null )
+				{
+					for(Map.Entry<String, JsonValue> metric : secondaryMetrics.entrySet())
+					{
+						//Older JMH versions prefix the profiler metrics with a middle dot
+						if( metric.getKey().replace("\u00B7", "").equals(ALLOCATION_METRIC) )
+						{
+							score.allocation = toDouble(((JsonObject) metric.getValue()).get("score"));
+						}
+					}
+				}
+
+				scores.put(getKey(result), score);
+			}
+		}
+		finally
+		{
+			in.close();
+		}
+		return scores;
+	}
+
+	private static String getKey(JsonObject result)
+	{
+		StringBuilder key = new StringBuilder(result.getString("benchmark"));
+		JsonObject params = result.getJsonObject("params");
+		if( (params != null) && !params.isEmpty() )
+		{
+			Map<String, String> sorted = new TreeMap<String, String>();
+			for(Map.Entry<String, JsonValue> param : params.entrySet())
+			{
+				JsonValue paramValue = param.getValue();
+				sorted.put(param.getKey(), (paramValue instanceof JsonString) ? ((JsonString) paramValue).getString() : paramValue.toString());
+			}
+			key.append(sorted);
+		}
+		return key.toString();
+	}
+
+	//JMH writes NaN and infinities as strings
+	private static double toDouble(JsonValue value)
+	{
+		if( value instanceof JsonNumber )
+		{
+			return ((JsonNumber) value).doubleValue();
+		}
+		if( value instanceof JsonString )
+		{
+			try
+			{
+				return Double.parseDouble(((JsonString) value).getString());
+			}
+			catch (NumberFormatException e)
+			{
+				return Double.NaN;
+			}
+		}
+		return Double.NaN;
+	}
+
+	private static double errorOf(BenchmarkScore score)
+	{
+		return Double.isNaN(score.error) ? 0 : score.error;
+	}
+
+	private static double percentChange(double before, double after)
+	{
+		if( Double.isNaN(before) || Double.isNaN(after) || (before == 0) )
+		{
+			return Double.NaN;
+		}
+		return ((after - before) / before) * 100.0;
+	}
+
+	static class BenchmarkScore
+	{
+		String mode;
+		double score;
+		double error;
+		String unit;
+
+		//Bytes allocated per operation, NaN when the run was not profiled
+		double allocation;
+	}
+}
@@ -0,0 +1,70 @@
+package jmh.java.orm.detector.benchmark;
+
+import java.io.IOException;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the extraction benchmarks with the GC profiler on (allocation rate and bytes allocated per operation),
+ * writes the results as JSON and, when a baseline is given, compares them with it.
+ *
+ * Takes the usual JMH command line options, without benchmark patterns every benchmark of this package is run.
+ * -Dbenchmark.baseline=path compares with a baseline result file (see BaselineComparator), -Dbenchmark.threshold
+ * sets the regression threshold in percent. Exits with 1 when a benchmark regressed. The comparison reads JSON results,
+ * it is skipped when another result format is given with -rf.
+ */
+public class BenchmarkRunner
+{
+	public static final String DEFAULT_RESULT_FILE = "jmh-result.json";
+
+	public static void main(String[] args) throws RunnerException, IOException
+	{
+		CommandLineOptions commandLine;
+		try
+		{
+			commandLine = new CommandLineOptions(args);
+		}
+		catch (CommandLineOptionException e)
+		{
+			System.err.println("BenchmarkRunner::main -> "+e.getMessage());
+			System.exit(2);
+			return;
+		}
+
+		ChainedOptionsBuilder options = new OptionsBuilder().parent(commandLine).addProfiler(GCProfiler.class);
+		if( commandLine.getIncludes().isEmpty() )
+		{
+			options.include(BenchmarkRunner.class.getPackage().getName() + ".*Benchmark");
+		}
+
+		ResultFormatType resultFormat = commandLine.getResultFormat().orElse(ResultFormatType.JSON);
+		String resultFile = commandLine.getResult().orElse(DEFAULT_RESULT_FILE);
+		if( !commandLine.getResultFormat().hasValue() )
+		{
+			options.resultFormat(ResultFormatType.JSON).result(resultFile);
+		}
+
+		new Runner(options.build()).run();
+
+		String baseline = System.getProperty("benchmark.baseline");
+		if( (baseline != null) && !baseline.isEmpty() && (resultFormat != ResultFormatType.JSON) )
+		{
+			System.err.println("BenchmarkRunner::main -> baseline comparison skipped, it needs JSON results but -rf is "+resultFormat);
+		}
+		else if( (baseline != null) && !baseline.isEmpty() )
+		{
+			double threshold = Double.parseDouble(System.getProperty("benchmark.threshold", Double.toString(BaselineComparator.DEFAULT_THRESHOLD_PERCENT)));
+			if( BaselineComparator.compare(baseline, resultFile, threshold) > 0 )
+			{
+				System.exit(1);
+			}
+		}
+	}
+}
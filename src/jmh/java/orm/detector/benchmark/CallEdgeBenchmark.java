@@ -0,0 +1,70 @@
+package jmh.java.orm.detector.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.bcel.classfile.JavaClass;
+import org.apache.bcel.classfile.Method;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import main.java.orm.detector.analyzer.bcelvisitor.InvokeScanner;
+import main.java.orm.detector.analyzer.bcelvisitor.MethodVisitor;
+import main.java.orm.detector.analyzer.symbol.SymbolTable;
+import main.java.orm.detector.persistence.SQLDriver;
+
+/**
+ * Call edge extraction of the classes' methods: the invoke scan alone, and MethodVisitor which also writes the
+ * methods, their call graph edges and their annotations to the bulk loaded database. Scores are per class.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CallEdgeBenchmark
+{
+	@Benchmark
+	@OperationsPerInvocation(ClassFiles.CLASS_COUNT)
+	public int scanInvokes(ClassFiles classFiles)
+	{
+		int calls = 0;
+		for(JavaClass javaClass : classFiles.classes)
+		{
+			InvokeScanner scanner = new InvokeScanner(javaClass.getConstantPool(), SymbolTable.getInstance());
+			for(Method method : javaClass.getMethods())
+			{
+				scanner.scan(method.getCode());
+				for(int i = 0; i < scanner.getCallCount(); i++)
+				{
+					calls += scanner.getCallTarget(i);
+				}
+			}
+		}
+		return calls;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(ClassFiles.CLASS_COUNT)
+	public void visitMethods(ClassFiles classFiles, FactDatabase database, Blackhole blackhole)
+	{
+		for(JavaClass javaClass : classFiles.classes)
+		{
+			int classId = SQLDriver.insertClassRecord(javaClass.getClassName(), javaClass.getPackageName(), "1", "");
+			InvokeScanner scanner = new InvokeScanner(javaClass.getConstantPool(), SymbolTable.getInstance());
+			for(Method method : javaClass.getMethods())
+			{
+				MethodVisitor visitor = new MethodVisitor(method, javaClass, scanner);
+				visitor.start(classId);
+				blackhole.consume(visitor.getMethodId());
+			}
+			SQLDriver.endBulkLoadClass();
+		}
+	}
+}
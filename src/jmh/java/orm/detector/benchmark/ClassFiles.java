@@ -0,0 +1,102 @@
+package jmh.java.orm.detector.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.apache.bcel.classfile.ClassParser;
+import org.apache.bcel.classfile.JavaClass;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import main.java.orm.detector.extractor.jar.ByteBufferInputStream;
+import main.java.orm.detector.extractor.jar.MappedJarFile;
+
+/**
+ * Fixed set of Broadleaf class files, read once from the release jar through the extraction's MappedJarFile:
+ * five entities and two transactional services. The benchmarks go over the whole set in every invocation,
+ * so their scores are per set of CLASS_COUNT classes.
+ */
+@State(Scope.Benchmark)
+public class ClassFiles
+{
+	public static final String[] ENTRIES = {
+		"org/broadleafcommerce/core/catalog/domain/CategoryImpl.class",
+		"org/broadleafcommerce/core/catalog/domain/ProductImpl.class",
+		"org/broadleafcommerce/core/catalog/domain/SkuImpl.class",
+		"org/broadleafcommerce/core/order/domain/OrderImpl.class",
+		"org/broadleafcommerce/core/order/domain/OrderItemImpl.class",
+		"org/broadleafcommerce/core/catalog/service/CatalogServiceImpl.class",
+		"org/broadleafcommerce/core/order/service/OrderServiceImpl.class"
+	};
+
+	//Must match ENTRIES, annotation values have to be constants
+	public static final int CLASS_COUNT = 7;
+
+	/**
+	 * Jar the class files are read from, relative to the directory the benchmarks are run from
+	 */
+	@Param({"releases/broadleaf/compiled/3.0.10/broadleaf-framework-3.0.10-GA.jar"})
+	public String jarPath;
+
+	//Content of each class file, read with duplicate() so that every invocation sees the same bytes
+	public ByteBuffer[] contents;
+
+	//Class files parsed once, for the benchmarks of the visitors
+	public JavaClass[] classes;
+
+	@Setup(Level.Trial)
+	public void load() throws IOException
+	{
+		if( ENTRIES.length != CLASS_COUNT )
+		{
+			throw new IllegalStateException("CLASS_COUNT does not match the number of entries");
+		}
+
+		contents = new ByteBuffer[ENTRIES.length];
+		classes = new JavaClass[ENTRIES.length];
+
+		MappedJarFile jarFile = new MappedJarFile(new File(jarPath));
+		try
+		{
+			for(int i = 0; i < ENTRIES.length; i++)
+			{
+				contents[i] = copy(jarFile.getContent(find(jarFile, ENTRIES[i])));
+				classes[i] = parse(i);
+			}
+		}
+		finally
+		{
+			jarFile.close();
+		}
+	}
+
+	public JavaClass parse(int i) throws IOException
+	{
+		return ( new ClassParser( new ByteBufferInputStream(contents[i].duplicate()), ENTRIES[i] ) ).parse();
+	}
+
+	private static MappedJarFile.Entry find(MappedJarFile jarFile, String name) throws IOException
+	{
+		for(MappedJarFile.Entry entry : jarFile.entries())
+		{
+			if( entry.getName().equals(name) )
+			{
+				return entry;
+			}
+		}
+		throw new IOException("Class file " + name + " not found in " + jarFile.getName());
+	}
+
+	//Stored entries are slices of the mapping, which is released when the jar is closed
+	private static ByteBuffer copy(ByteBuffer content)
+	{
+		ByteBuffer copy = ByteBuffer.allocate(content.remaining());
+		copy.put(content.duplicate());
+		copy.flip();
+		return copy;
+	}
+}
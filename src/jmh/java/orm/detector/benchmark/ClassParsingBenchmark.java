@@ -0,0 +1,50 @@
+package jmh.java.orm.detector.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import main.java.orm.detector.extractor.EntityPrefilter;
+
+/**
+ * Work of the extraction workers on a class file: the entity pre-filter over the constant pool and the BCEL parse.
+ * Scores are per class file.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ClassParsingBenchmark
+{
+	private static final EntityPrefilter PREFILTER = new EntityPrefilter(EntityPrefilter.ENTITY_ANNOTATION, EntityPrefilter.TRANSACTIONAL_ANNOTATION);
+
+	@Benchmark
+	@OperationsPerInvocation(ClassFiles.CLASS_COUNT)
+	public void parse(ClassFiles classFiles, Blackhole blackhole) throws IOException
+	{
+		for(int i = 0; i < classFiles.contents.length; i++)
+		{
+			blackhole.consume(classFiles.parse(i));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(ClassFiles.CLASS_COUNT)
+	public void prefilter(ClassFiles classFiles, Blackhole blackhole)
+	{
+		for(int i = 0; i < classFiles.contents.length; i++)
+		{
+			blackhole.consume(PREFILTER.mayMatch(classFiles.contents[i]));
+		}
+	}
+}
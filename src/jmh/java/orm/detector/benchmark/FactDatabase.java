@@ -0,0 +1,70 @@
+package jmh.java.orm.detector.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import main.java.orm.detector.persistence.SQLDriver;
+
+/**
+ * Report database of the visitor benchmarks: a fresh SQLite database per iteration, in a temporary directory of the
+ * trial, bulk loaded as during the extraction so that the facts are batched and committed every bulkCommitRows rows.
+ * Recreating it every iteration keeps the scores from drifting with the size of the database file.
+ */
+@State(Scope.Benchmark)
+public class FactDatabase
+{
+	private static final String DATABASE_NAME = "benchmark.db";
+
+	@Param({"5000"})
+	public int bulkCommitRows;
+
+	private File directory;
+
+	@Setup(Level.Trial)
+	public void createDirectory() throws IOException
+	{
+		directory = Files.createTempDirectory("orm-detector-benchmark").toFile();
+	}
+
+	@Setup(Level.Iteration)
+	public void open()
+	{
+		deleteFiles();
+		SQLDriver.setDbName(directory.getAbsolutePath() + File.separator, DATABASE_NAME);
+		SQLDriver.createInitialDatabase(directory.getAbsolutePath() + File.separator, DATABASE_NAME);
+		SQLDriver.beginBulkLoad(bulkCommitRows);
+	}
+
+	@TearDown(Level.Iteration)
+	public void close()
+	{
+		SQLDriver.endBulkLoad();
+	}
+
+	@TearDown(Level.Trial)
+	public void deleteDirectory()
+	{
+		deleteFiles();
+		directory.delete();
+	}
+
+	private void deleteFiles()
+	{
+		File[] files = directory.listFiles();
+		if( files != null )
+		{
+			for(File file : files)
+			{
+				file.delete();
+			}
+		}
+	}
+}
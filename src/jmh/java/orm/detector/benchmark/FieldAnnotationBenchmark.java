@@ -0,0 +1,71 @@
+package jmh.java.orm.detector.benchmark;
+
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.bcel.classfile.Field;
+import org.apache.bcel.classfile.JavaClass;
+import org.apache.bcel.classfile.Method;
+import org.apache.bcel.generic.ConstantPoolGen;
+import org.apache.bcel.generic.FieldGen;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import main.java.orm.detector.analyzer.bcelvisitor.ClassVisitor;
+import main.java.orm.detector.analyzer.bcelvisitor.FieldVisitor;
+import main.java.orm.detector.persistence.SQLDriver;
+
+/**
+ * Field and annotation processing: FieldVisitor alone (getter and setter lookup, attribute, annotations and their
+ * key-value pairs), and the whole ClassVisitor the fact sink runs per class. Both write to the bulk loaded database.
+ * Scores are per class.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FieldAnnotationBenchmark
+{
+	@Benchmark
+	@OperationsPerInvocation(ClassFiles.CLASS_COUNT)
+	public void visitFields(ClassFiles classFiles, FactDatabase database)
+	{
+		for(JavaClass javaClass : classFiles.classes)
+		{
+			int classId = SQLDriver.insertClassRecord(javaClass.getClassName(), javaClass.getPackageName(), "1", "");
+
+			//Getters and setters are found by name, as if the methods had been visited first
+			HashMap<String, Integer> methodIds = new HashMap<String, Integer>();
+			Method[] methods = javaClass.getMethods();
+			for(int i = 0; i < methods.length; i++)
+			{
+				methodIds.put(methods[i].getName(), i + 1);
+			}
+
+			ConstantPoolGen constants = new ConstantPoolGen(javaClass.getConstantPool());
+			for(Field field : javaClass.getFields())
+			{
+				(new FieldVisitor(new FieldGen(field, constants), javaClass, methodIds)).start(classId);
+			}
+			SQLDriver.endBulkLoadClass();
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(ClassFiles.CLASS_COUNT)
+	public void visitClass(ClassFiles classFiles, FactDatabase database)
+	{
+		for(JavaClass javaClass : classFiles.classes)
+		{
+			int classId = SQLDriver.insertClassRecord(javaClass.getClassName(), javaClass.getPackageName(), "1", "");
+			(new ClassVisitor(javaClass, classId)).start();
+		}
+	}
+}
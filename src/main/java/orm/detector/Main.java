@@ -1,5 +1,6 @@
 package main.java.orm.detector;
 
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
@@ -14,14 +15,22 @@ import java.util.Date;
 import java.util.Properties;
 
 import main.java.orm.detector.analyzer.SourceAnalyzer;
+import main.java.orm.detector.analyzer.callgraph.CallGraphIndex;
 import main.java.orm.detector.analyzer.taint.TaintAnalysisComponent;
 import main.java.orm.detector.antipattern.EDAntipatternDetector;
+import main.java.orm.detector.antipattern.NTAntipatternDetector;
 import main.java.orm.detector.extractor.ASTDataExtractor;
 import main.java.orm.detector.extractor.BCELDataExtractor;
 import main.java.orm.detector.extractor.ESTDataExtractor;
+import main.java.orm.detector.extractor.PackageScopeFilter;
+import main.java.orm.detector.logger.Console;
 import main.java.orm.detector.logger.Logger;
+import main.java.orm.detector.metrics.Metrics;
 import main.java.orm.detector.persistence.SQLDriver;
 import main.java.orm.detector.persistence.vo.EagerlyMappedEntitiesTuple;
+import main.java.orm.detector.schema.DdlParser;
+import main.java.orm.detector.schema.SchemaModel;
+import main.java.orm.detector.schema.SequenceCatalog;
 
 public class Main 
 {
@@ -36,9 +45,9 @@ public class Main
 	
 	public static Properties loadConfig()
 	{
-		System.out.println("===================================================");
-		System.out.println("INFO: Fetching configurations from config file.");
-		System.out.println("===================================================");
+		Console.info("===================================================");
+		Console.info("INFO: Fetching configurations from config file.");
+		Console.info("===================================================");
 		// Load Project Properties as key-values from a configuration file
 		Properties props = new Properties(); 
 		try 
@@ -57,15 +66,61 @@ public class Main
 		return props;
 	}
 	
+	/**
+	 * Reads an optional numeric property, falls back to the default value when the key is missing or not a number.
+	 */
+	public static int getIntProperty(Properties properties, String key, int defaultValue)
+	{
+		String value = properties.getProperty(key);
+		if( (value == null) || value.trim().isEmpty() )
+		{
+			return defaultValue;
+		}
+		
+		try
+		{
+			return Integer.parseInt(value.trim());
+		}
+		catch (NumberFormatException e)
+		{
+			System.err.println("WARN: Invalid value for "+key+": "+value+", using "+defaultValue);
+			return defaultValue;
+		}
+	}
+	
 	public static void run( Properties properties )
 	{
 		//Define the Logger's path, file needs to be created first and filesystem permissions have to be in place.
 		Logger.PATH = properties.getProperty("logger_path");
+		Logger.setCapacity(getIntProperty(properties, "logger_queue_capacity", 65536));
+		try
+		{
+			Logger.setLevel(Logger.Level.valueOf(properties.getProperty("logger_level", "INFO").trim().toUpperCase()));
+		}
+		catch (IllegalArgumentException e)
+		{
+			System.err.println("WARN: Invalid value for logger_level: "+properties.getProperty("logger_level")+", using INFO");
+		}
+		try
+		{
+			Console.setVerbosity(Console.Verbosity.valueOf(properties.getProperty("console_verbosity", "NORMAL").trim().toUpperCase()));
+		}
+		catch (IllegalArgumentException e)
+		{
+			System.err.println("WARN: Invalid value for console_verbosity: "+properties.getProperty("console_verbosity")+", using NORMAL");
+		}
+
+		//Describes the run in the metrics file, so that the runs of different releases can be told apart
+		Metrics.reset();
+		Metrics.setAttribute("jar_path", properties.getProperty("jar_path"));
+		Metrics.setAttribute("release_path", properties.getProperty("release_path"));
+		Metrics.setAttribute("extraction_threads", Integer.toString(getIntProperty(properties, "extraction_threads", Runtime.getRuntime().availableProcessors())));
+		Metrics.setAttribute("incremental_extraction", properties.getProperty("incremental_extraction", "false"));
 		
-		System.out.println("===================================================");
-		System.out.println("INFO: Program Started at: "+(new SimpleDateFormat("yyyy/MM/dd HH:mm:ss")).format(new Date()));
+		Console.info("===================================================");
+		Console.info("INFO: Program Started at: "+(new SimpleDateFormat("yyyy/MM/dd HH:mm:ss")).format(new Date()));
 		Logger.log("INFO: Program Started at: "+(new SimpleDateFormat("yyyy/MM/dd HH:mm:ss")).format(new Date()));
-		System.out.println("===================================================");
+		Console.info("===================================================");
 		
 		//Set db properties
 		SQLDriver.setDbName(properties.getProperty("report_database_path"),properties.getProperty("report_database_name"));
@@ -73,62 +128,108 @@ public class Main
 		//Create Report Database and tables (for the first time, flag has to be set)
 		if ( (properties.getProperty("generate_report_db")).equalsIgnoreCase("true") )
 		{
+			//Incremental extraction updates the database of the previous run in place
+			boolean incremental = "true".equalsIgnoreCase(properties.getProperty("incremental_extraction"));
+			
 			//TODO check if db exists already before deleting it :(, else will throw error
-			System.out.println("===================================================");
-			System.out.println("INFO: Creating and initialising database structure.");
+			Console.info("===================================================");
+			Console.info("INFO: Creating and initialising database structure.");
 			Logger.log("INFO: Creating and initialising database structure.");
-			System.out.println("===================================================");
-			try 
-			{
-			    Files.delete( (FileSystems.getDefault().getPath(properties.getProperty("report_database_path"), properties.getProperty("report_database_name"))));
-			} 
-			catch (NoSuchFileException x) 
+			Console.info("===================================================");
+			if ( !incremental )
 			{
-			    System.err.format("%s: no such" + " file or directory%n", properties.getProperty("report_database_path")+properties.getProperty("report_database_name"));
-			} 
-			catch (DirectoryNotEmptyException x) 
-			{
-			    System.err.format("%s not empty%n", properties.getProperty("report_database_path")+properties.getProperty("report_database_name"));
-			} 
-			catch (IOException x) 
-			{
-			    System.err.println(x);
+				try 
+				{
+				    Files.delete( (FileSystems.getDefault().getPath(properties.getProperty("report_database_path"), properties.getProperty("report_database_name"))));
+				} 
+				catch (NoSuchFileException x) 
+				{
+				    System.err.format("%s: no such" + " file or directory%n", properties.getProperty("report_database_path")+properties.getProperty("report_database_name"));
+				} 
+				catch (DirectoryNotEmptyException x) 
+				{
+				    System.err.format("%s not empty%n", properties.getProperty("report_database_path")+properties.getProperty("report_database_name"));
+				} 
+				catch (IOException x) 
+				{
+				    System.err.println(x);
+				}
 			}
 			
 			SQLDriver.createInitialDatabase(properties.getProperty("report_database_path"),properties.getProperty("report_database_name"));
 			
 			//Initialize and Run Analysis
-			System.out.println("===================================================");
-			System.out.println("INFO: Running Source Code Static Analysis and Data Extraction");
+			Console.info("===================================================");
+			Console.info("INFO: Running Source Code Static Analysis and Data Extraction");
 			Logger.log("INFO: Running Source Code Static Analysis and Data Extraction");
-			System.out.println("===================================================");
-			(new BCELDataExtractor()).process(properties.getProperty("jar_path"));
+			Console.info("===================================================");
+			BCELDataExtractor bcelDataExtractor = new BCELDataExtractor(getIntProperty(properties, "extraction_threads", Runtime.getRuntime().availableProcessors()), getIntProperty(properties, "bulk_commit_rows", 5000));
+			bcelDataExtractor.setIncremental(incremental);
+			bcelDataExtractor.setExtractTransactionalClasses("true".equalsIgnoreCase(properties.getProperty("extract_transactional_classes")));
+			bcelDataExtractor.setPackageScope(PackageScopeFilter.parse(properties.getProperty("package_includes", BCELDataExtractor.DEFAULT_PACKAGE_INCLUDES), properties.getProperty("package_excludes", "")));
+			bcelDataExtractor.process(properties.getProperty("jar_path"));
+			
+			//Propagate the taint of the suspected methods to their callers
+			Console.info("===================================================");
+			Console.info("INFO: Running Taint Analysis");
+			Logger.log("INFO: Running Taint Analysis");
+			Console.info("===================================================");
+			(new TaintAnalysisComponent(CallGraphIndex.load())).run();
 			
 		}
 		
-		System.out.println("===================================================");
-		System.out.println("INFO: Static Analysis, Checking for Name Mis-match");
+		Console.info("===================================================");
+		Console.info("INFO: Static Analysis, Checking for Name Mis-match");
 		Logger.log("INFO: Static Analysis, Checking for Name Mis-match");
-		System.out.println("===================================================");
+		Console.info("===================================================");
 		
 		//Uncomment this to run the AST parser
 		//(new ASTDataExtractor()).process(properties.getProperty("release_path"));
 		
+		//The sql schema (a file or a directory of .sql files) is parsed once, before the sources are scanned
+		SchemaModel schema = DdlParser.parse(properties.getProperty("sql_schema_path"));
+		SQLDriver.setSchemaModel(schema);
+		
 		//Uncomment this to run the EST Parser and check for Name Mismatch Antipatterns and Nested Transactions
-		(new ESTDataExtractor(properties.getProperty("sql_schema_path"))).process(properties.getProperty("release_path"));
+		ESTDataExtractor estDataExtractor = new ESTDataExtractor(SequenceCatalog.of(schema), getIntProperty(properties, "extraction_threads", Runtime.getRuntime().availableProcessors()));
+		estDataExtractor.setBatchParsing("true".equalsIgnoreCase(properties.getProperty("source_batch_parsing")));
+		estDataExtractor.setResolveBindings("true".equalsIgnoreCase(properties.getProperty("source_resolve_bindings")), ESTDataExtractor.listJars(properties.getProperty("jar_path")));
+		estDataExtractor.process(properties.getProperty("release_path"));
 		
 		//Excessive Data Antipattern Detector, check for Excessive Data
-		System.out.println("===================================================");
-		System.out.println("INFO: Checking for Excessive Data");
+		Console.info("===================================================");
+		Console.info("INFO: Checking for Excessive Data");
 		Logger.log("INFO: Checking for Excessive Data");
-		System.out.println("===================================================");
+		Console.info("===================================================");
 		
 		//Uncomment this to run the excessive data antipattern analysis
 		//(new EDAntipatternDetector()).run();
 		
-		System.out.println("===================================================");
-		System.out.println("INFO: Program Successfully Ended at: "+(new SimpleDateFormat("yyyy/MM/dd HH:mm:ss")).format(new Date()));
+		//Nested Transaction Antipattern Detector, needs extract_transactional_classes=true during the extraction
+		if ( "true".equalsIgnoreCase(properties.getProperty("extract_transactional_classes")) )
+		{
+			Console.info("===================================================");
+			Console.info("INFO: Checking for Nested Transactions");
+			Logger.log("INFO: Checking for Nested Transactions");
+			Console.info("===================================================");
+			(new NTAntipatternDetector()).run();
+		}
+		
+		//Wall time, CPU time, allocations and counts of every phase and jar
+		String metricsPath = properties.getProperty("metrics_path", "").trim();
+		if( !metricsPath.isEmpty() )
+		{
+			File metricsFile = Metrics.write(metricsPath);
+			if( metricsFile != null )
+			{
+				Console.info("INFO: Metrics written to "+metricsFile.getAbsolutePath());
+				Logger.log("INFO: Metrics written to "+metricsFile.getAbsolutePath());
+			}
+		}
+		
+		Console.info("===================================================");
+		Console.info("INFO: Program Successfully Ended at: "+(new SimpleDateFormat("yyyy/MM/dd HH:mm:ss")).format(new Date()));
 		Logger.log("INFO: Program Successfully Ended at: "+(new SimpleDateFormat("yyyy/MM/dd HH:mm:ss")).format(new Date()));
-		System.out.println("===================================================");
+		Console.info("===================================================");
 	}
 }
@@ -2,6 +2,7 @@ package main.java.orm.detector.analyzer;
 
 import java.io.File;
 
+import main.java.orm.detector.logger.Console;
 import main.java.orm.detector.report.ReportElement;
 
 public class SourceAnalyzer 
@@ -28,15 +29,15 @@ public class SourceAnalyzer
 	    	//Ignore directories
 	        if (file.isDirectory()) 
 	        {
-	            System.out.println("Directory: " + file.getName());
+	            Console.verbose("Directory: " + file.getName());
 	            scanFiles(file.listFiles()); // Calls self, recursively
 	        } 
 	        else 
 	        {
 	        	//Read java files into a string buffer
-	            System.out.println("File: Name: " + file.getName() + " Absolute Path: " +file.getAbsolutePath()+ " Path: "+file.getPath());
-	            System.out.println(FileReader.readFile(file.getAbsolutePath()));
+	            Console.verbose("File: Name: " + file.getName() + " Absolute Path: " +file.getAbsolutePath()+ " Path: "+file.getPath());
 	            String contentBuffer = FileReader.readFile(file.getAbsolutePath());
+	            Console.debug(contentBuffer);
 	            
 	            // For the files that have source code content (*.java files)
 	            if(contentBuffer != "")
@@ -63,7 +64,11 @@ public class SourceAnalyzer
 	            	for(String line : lines)
 	            	{
 	            		//read line by line
-	            		System.out.println("-> Line "+(++linenr)+" "+line);
+	            		++linenr;
+	            		if( Console.isEnabled(Console.Verbosity.DEBUG) )
+	            		{
+	            			Console.debug("-> Line "+linenr+" "+line);
+	            		}
 	            		
 	            		//Check if line is a method declaration in that class
 	            		//if(line.matches(regex))
@@ -80,7 +85,7 @@ public class SourceAnalyzer
 	            	
 	            	linenr = 0; //reset line number
 	            	
-	            	System.out.println("### "+repEl);
+	            	Console.verbose("### "+repEl);
 	            }
 	            
 	            //Collect the file content as buffer string
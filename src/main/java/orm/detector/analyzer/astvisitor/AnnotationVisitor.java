@@ -1,16 +1,18 @@
 package main.java.orm.detector.analyzer.astvisitor;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
+import com.github.javaparser.ast.Node;
 import com.github.javaparser.ast.body.AnnotationDeclaration;
 import com.github.javaparser.ast.expr.MarkerAnnotationExpr;
 import com.github.javaparser.ast.visitor.VoidVisitorAdapter;
 
+import main.java.orm.detector.logger.Console;
 import main.java.orm.detector.logger.Logger;
 
-import main.java.orm.detector.persistence.SQLDriver;
-
-public class AnnotationVisitor extends VoidVisitorAdapter {
+public class AnnotationVisitor extends VoidVisitorAdapter implements AstPass {
 		//ArrayList for Sequence names
 		private static ArrayList<String> Seq = new ArrayList<String>();
 
@@ -21,6 +23,22 @@ public class AnnotationVisitor extends VoidVisitorAdapter {
 	
 		@Override
 		public void visit(MarkerAnnotationExpr n, Object arg) 
+		{
+			process(n);
+	        super.visit(n, arg);
+		}
+		
+		public List<Class<? extends Node>> getNodeTypes()
+		{
+			return Collections.<Class<? extends Node>>singletonList(MarkerAnnotationExpr.class);
+		}
+		
+		public void visit(Node node, Object arg)
+		{
+			process((MarkerAnnotationExpr) node);
+		}
+		
+		private void process(MarkerAnnotationExpr n)
 		{
 			 //com.github.javaparser.ast.body.ClassOrInterfaceDeclaration
 	        // here you can access the attributes of the method.
@@ -30,32 +48,21 @@ public class AnnotationVisitor extends VoidVisitorAdapter {
 			
 			//We do not care about @Override
 			//if(!annot.equals("Override"))
-				System.out.println("Annotation: " +annot);
+				Console.verbose("Annotation: " +annot);
 	        
 			//For SNMAntipatternDetector
 	        if(annot.equals("SequenceGenerator"))
 	        {
-	        	Logger.log("Annotation is Sequence: "+n.getName());
-	        	System.out.println("Annotation is Sequence: "+n.getName());
+	        	Logger.log(Logger.Level.DEBUG, "Annotation is Sequence: "+n.getName());
+	        	Console.verbose("Annotation is Sequence: "+n.getName());
 	        	//This adds the annotation to Seq not the name!! TODO
 	        	Seq.add(annot);
 	        }
-	        //For NTAntipatternDetector
-	        else if(annot.equals("Transactional"))
-	        {
-	        	Logger.log("Annotation is Transactional in class: "+n.getClass().toString());
-	        	//Mark as tainted
-	        	Object[] methods = n.getClass().getMethods();
-	        	for(int i = 0; i < methods.length; i++)
-	        	{
-	        		//SQLDriver.updateMethodTaintedStatusByName(methods[i].toString());
-	        	}
-	        }
+	        //@Transactional is read from the bytecode metadata by NTAntipatternDetector, see SQLDriver.getTransactionalMethods
 	        else
 	        {
 	        	if(!annot.equals("Override"))
-	        		Logger.log(n.getName().toString());
+	        		Logger.log(Logger.Level.DEBUG, n.getName().toString());
 	        }
-	        super.visit(n, arg);
 		}
 }
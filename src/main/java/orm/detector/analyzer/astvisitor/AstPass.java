@@ -0,0 +1,22 @@
+package main.java.orm.detector.analyzer.astvisitor;
+
+import java.util.List;
+
+import com.github.javaparser.ast.Node;
+
+/**
+ * One analysis over the source AST, driven by a FusedAstVisitor: the pass only declares the node types it is
+ * interested in and is called for each of them, all the passes share a single traversal of the tree.
+ */
+public interface AstPass
+{
+	/**
+	 * Node types the pass is called for, a type covers its subclasses (e.g. AnnotationExpr for all annotations)
+	 */
+	List<Class<? extends Node>> getNodeTypes();
+
+	/**
+	 * Called once per node of a registered type, parents before their children
+	 */
+	void visit(Node node, Object arg);
+}
@@ -1,14 +1,19 @@
 package main.java.orm.detector.analyzer.astvisitor;
 
+import java.util.Collections;
+import java.util.List;
+
+import com.github.javaparser.ast.Node;
 import com.github.javaparser.ast.NodeList;
 import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
 import com.github.javaparser.ast.expr.AnnotationExpr;
 //import com.github.javaparser.ast.body.MethodDeclaration;
 import com.github.javaparser.ast.visitor.VoidVisitorAdapter;
 
+import main.java.orm.detector.logger.Console;
 import main.java.orm.detector.logger.Logger;
 
-public class ClassVisitor extends VoidVisitorAdapter  {
+public class ClassVisitor extends VoidVisitorAdapter implements AstPass {
 	
 	private boolean isEntity = false;
 	
@@ -29,8 +34,23 @@ public class ClassVisitor extends VoidVisitorAdapter  {
         //Logger.log(n.getName());
          super.visit(n, arg);
         
-         System.out.println("CLASS: "+n.getName());
-         Logger.log("Visiting Class : "+n.getName());
+         process(n);
+     }
+
+	 public List<Class<? extends Node>> getNodeTypes()
+	 {
+		 return Collections.<Class<? extends Node>>singletonList(ClassOrInterfaceDeclaration.class);
+	 }
+
+	 public void visit(Node node, Object arg)
+	 {
+		 process((ClassOrInterfaceDeclaration) node);
+	 }
+
+	 private void process(ClassOrInterfaceDeclaration n)
+	 {
+         Console.verbose("CLASS: "+n.getName());
+         Logger.log(Logger.Level.DEBUG, "Visiting Class : "+n.getName());
          NodeList<AnnotationExpr> nodeList = n.getAnnotations();
          
          for(int i=0; i < nodeList.size(); i++)
@@ -40,7 +60,7 @@ public class ClassVisitor extends VoidVisitorAdapter  {
          	if((nodeList.get(i).toString()).contains("Entity"))
          	{
          		this.isEntity  = true;
-         		Logger.log("Class is entity: "+n.getName());
+         		Logger.log(Logger.Level.DEBUG, "Class is entity: "+n.getName());
          	}
          }
      }
@@ -0,0 +1,79 @@
+package main.java.orm.detector.analyzer.astvisitor;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import com.github.javaparser.ast.Node;
+
+/**
+ * Walks an AST once and hands every node to the passes registered for its type. Adding a pass does not add a
+ * traversal, the cost of the walk is shared by all of them.
+ *
+ * The walk is iterative (pre-order, children in source order) so deeply nested trees do not exhaust the stack,
+ * and the passes interested in a node class are resolved once per class.
+ */
+public class FusedAstVisitor
+{
+	private static final AstPass[] NO_PASSES = new AstPass[0];
+
+	private List<AstPass> passes = new ArrayList<AstPass>();
+
+	//Node class -> passes interested in it
+	private HashMap<Class<?>, AstPass[]> dispatch = new HashMap<Class<?>, AstPass[]>();
+
+	public FusedAstVisitor register(AstPass pass)
+	{
+		passes.add(pass);
+		dispatch.clear();
+		return this;
+	}
+
+	public void visit(Node root, Object arg)
+	{
+		ArrayDeque<Node> pending = new ArrayDeque<Node>();
+		pending.push(root);
+		while( !pending.isEmpty() )
+		{
+			Node node = pending.pop();
+			for(AstPass pass : passesFor(node.getClass()))
+			{
+				pass.visit(node, arg);
+			}
+
+			//Pushed backwards so that they are popped in source order
+			List<Node> children = node.getChildrenNodes();
+			for(int i = children.size() - 1; i >= 0; i--)
+			{
+				pending.push(children.get(i));
+			}
+		}
+	}
+
+	private AstPass[] passesFor(Class<?> nodeClass)
+	{
+		AstPass[] interested = dispatch.get(nodeClass);
+		if( interested != null )
+		{
+			return interested;
+		}
+
+		List<AstPass> matches = new ArrayList<AstPass>();
+		for(AstPass pass : passes)
+		{
+			for(Class<? extends Node> nodeType : pass.getNodeTypes())
+			{
+				if( nodeType.isAssignableFrom(nodeClass) )
+				{
+					matches.add(pass);
+					break;
+				}
+			}
+		}
+
+		interested = (matches.isEmpty() ? NO_PASSES : matches.toArray(new AstPass[matches.size()]));
+		dispatch.put(nodeClass, interested);
+		return interested;
+	}
+}
@@ -1,11 +1,16 @@
 package main.java.orm.detector.analyzer.astvisitor;
 
+import java.util.Collections;
+import java.util.List;
+
+import com.github.javaparser.ast.Node;
 import com.github.javaparser.ast.body.MethodDeclaration;
 import com.github.javaparser.ast.visitor.VoidVisitorAdapter;
 
+import main.java.orm.detector.logger.Console;
 import main.java.orm.detector.logger.Logger;
 
-public class MethodVisitor extends VoidVisitorAdapter  {
+public class MethodVisitor extends VoidVisitorAdapter implements AstPass {
 	 @Override
      public void visit(MethodDeclaration n, Object arg) {
 		 
@@ -13,10 +18,23 @@ public class MethodVisitor extends VoidVisitorAdapter  {
          // here you can access the attributes of the method.
          // this method will be called for all methods in this 
          // CompilationUnit, including inner class methods
-         System.out.println("Method: " +n.getName());
-         Logger.log(n.getName());
+         process(n);
          super.visit(n, arg);
      }
 	 
-	 
+	 public List<Class<? extends Node>> getNodeTypes()
+	 {
+		 return Collections.<Class<? extends Node>>singletonList(MethodDeclaration.class);
+	 }
+
+	 public void visit(Node node, Object arg)
+	 {
+		 process((MethodDeclaration) node);
+	 }
+
+	 private void process(MethodDeclaration n)
+	 {
+         Console.verbose("Method: " +n.getName());
+         Logger.log(Logger.Level.DEBUG, n.getName());
+	 }
 }
@@ -1,13 +1,16 @@
 package main.java.orm.detector.analyzer.bcelvisitor;
 
+import java.util.HashMap;
+
+import org.apache.bcel.classfile.AnnotationEntry;
 import org.apache.bcel.classfile.Constant;
 import org.apache.bcel.classfile.ConstantPool;
+import org.apache.bcel.classfile.ElementValuePair;
 import org.apache.bcel.classfile.EmptyVisitor;
 import org.apache.bcel.classfile.Field;
 import org.apache.bcel.classfile.JavaClass;
 import org.apache.bcel.classfile.Method;
 import org.apache.bcel.generic.ConstantPoolGen;
-import org.apache.bcel.generic.MethodGen;
 
 
 import soot.Body;
@@ -20,7 +23,10 @@ import soot.toolkits.graph.BlockGraph;
 import soot.toolkits.graph.ExceptionalBlockGraph;
 import soot.toolkits.graph.LoopNestTree;
 
+import main.java.orm.detector.analyzer.symbol.SymbolTable;
+import main.java.orm.detector.logger.Console;
 import main.java.orm.detector.logger.Logger;
+import main.java.orm.detector.persistence.SQLDriver;
 
 import org.apache.bcel.generic.FieldGen;
 
@@ -28,29 +34,34 @@ public class ClassVisitor extends EmptyVisitor
 {
     private JavaClass clazz;
     private ConstantPoolGen constants;
+    private InvokeScanner invokeScanner;
     private int classId;
     
+    //Database ids of the methods visited so far, by method name, the fields use them to find their getters and setters
+    private HashMap<String, Integer> methodIds = new HashMap<String, Integer>();
+    
     public ClassVisitor(JavaClass jc, int classID) 
     {
     	classId = classID;
         clazz = jc;
         constants = new ConstantPoolGen(clazz.getConstantPool());
+        invokeScanner = new InvokeScanner(clazz.getConstantPool(), SymbolTable.getInstance());
     }
 
     public void visitJavaClass(JavaClass jc) 
     {
     	//TODO get rid of this
         jc.getConstantPool().accept(this);
-        System.out.println("INFO:Process all the Methods of the class");
-        Logger.log("INFO:Process all the Methods of the class");
+        Console.verbose("INFO:Process all the Methods of the class");
+        Logger.log(Logger.Level.DEBUG, "INFO:Process all the Methods of the class");
         Method[] methods = jc.getMethods();
         for (int i = 0; i < methods.length; i++)
         {
         	methods[i].accept(this);
         }  
         
-        System.out.println("INFO:Process all the Attributes of the class");
-        Logger.log("INFO:Process all the Attributes of the class");
+        Console.verbose("INFO:Process all the Attributes of the class");
+        Logger.log(Logger.Level.DEBUG, "INFO:Process all the Attributes of the class");
         Field[] fields = jc.getFields();
         for(Field field: fields)
         {
@@ -80,27 +91,72 @@ public class ClassVisitor extends EmptyVisitor
     public void visitMethod(Method method)
     {
     	//System.out.println("visiting method: "+method.getName());
-        MethodGen mg = new MethodGen(method, clazz.getClassName(), constants);
-        MethodVisitor visitor = new MethodVisitor(mg, clazz);
+        MethodVisitor visitor = new MethodVisitor(method, clazz, invokeScanner);
         visitor.start(classId); 
         
-        System.out.println("INFO: Processed method: "+method.getName());
-        Logger.log("INFO: Processed method: "+method.getName());
+        if( visitor.getMethodId() > 0 )
+        {
+        	methodIds.put(method.getName(), visitor.getMethodId());
+        }
+        
+        if( Console.isEnabled(Console.Verbosity.VERBOSE) )
+        {
+            Console.verbose("INFO: Processed method: "+method.getName());
+        }
+        if( Logger.isEnabled(Logger.Level.DEBUG) )
+        {
+            Logger.log(Logger.Level.DEBUG, "INFO: Processed method: "+method.getName());
+        }
     }
     
     public void visitField(Field attribute)
     {
     	//System.out.println("visiting attribute:  "+attribute.getName());
         FieldGen fg = new FieldGen(attribute, constants);
-        FieldVisitor visitor = new FieldVisitor(fg, clazz);
+        FieldVisitor visitor = new FieldVisitor(fg, clazz, methodIds);
         visitor.start(classId);
         
         //System.out.println("-- Processed attribute: "+attribute.getName());
-        Logger.log("INFO: Processed attribute: "+attribute.getName());
+        if( Logger.isEnabled(Logger.Level.DEBUG) )
+        {
+            Logger.log(Logger.Level.DEBUG, "INFO: Processed attribute: "+attribute.getName());
+        }
+    }
+
+    /**
+     * Class level annotations, with their key-value pairs, and the direct supertypes of the class
+     */
+    private void processClassMetadata()
+    {
+        for(AnnotationEntry annotation : clazz.getAnnotationEntries())
+        {
+            int metadataId = SQLDriver.insertMetadataRecord(annotation.getAnnotationType(), Integer.toString(classId), "0", "0");
+            for(ElementValuePair pair : annotation.getElementValuePairs())
+            {
+                SQLDriver.insertMetadataKVPairRecord(pair.getNameString(), ((pair.getValue()).toString()).replaceAll("'", ""), Integer.toString(metadataId));
+            }
+            if( Logger.isEnabled(Logger.Level.DEBUG) )
+            {
+                Logger.log(Logger.Level.DEBUG, "INFO: Processed class metadata: "+annotation.getAnnotationType());
+            }
+        }
+        
+        if( !clazz.isInterface() )
+        {
+            SQLDriver.insertClassSupertypeRecord(Integer.toString(classId), clazz.getSuperclassName());
+        }
+        for(String interfaceName : clazz.getInterfaceNames())
+        {
+            SQLDriver.insertClassSupertypeRecord(Integer.toString(classId), interfaceName);
+        }
     }
 
     public void start() 
     {
+        processClassMetadata();
         visitJavaClass(clazz);
+        
+        //All the facts of the class are written, let the bulk load commit if it is due
+        SQLDriver.endBulkLoadClass();
     }
 }
@@ -1,5 +1,7 @@
 package main.java.orm.detector.analyzer.bcelvisitor;
 
+import java.util.Map;
+
 import org.apache.bcel.classfile.AnnotationEntry;
 import org.apache.bcel.classfile.ElementValuePair;
 import org.apache.bcel.classfile.JavaClass;
@@ -17,6 +19,7 @@ import org.apache.bcel.generic.InstructionHandle;
 import org.apache.bcel.generic.FieldGen;
 import org.apache.bcel.generic.ReturnInstruction;
 
+import main.java.orm.detector.logger.Console;
 import main.java.orm.detector.logger.Logger;
 import main.java.orm.detector.persistence.SQLDriver;
 
@@ -24,17 +27,22 @@ public class FieldVisitor extends EmptyVisitor
 {
 	JavaClass visitedClass;
 	private int classId;
+	private int attributeId;
 	private FieldGen fg;
 	
+	//Database ids of the methods of the visited class, by method name
+	private Map<String, Integer> methodIds;
+	
 	private int getterMethodId;
 	private int setterMethodId;
 	
 	private static final int NO_RECORD_RETURNED=0;
 	
-	public FieldVisitor(FieldGen f, JavaClass jc) 
+	public FieldVisitor(FieldGen f, JavaClass jc, Map<String, Integer> methodIds) 
 	{
 		visitedClass = jc;
 	    fg = f;
+	    this.methodIds = methodIds;
 	}
 	
 	public void start(int classId)
@@ -44,7 +52,7 @@ public class FieldVisitor extends EmptyVisitor
 		getterMethodId = processGetterMethodId();
 		setterMethodId = processSetterMethodId();
 		
-		SQLDriver.insertAttributeRecord(visitedClass.getClassName() + ":" + fg.getName(),fg.getType().toString(), Integer.toString(classId), Integer.toString(getterMethodId), Integer.toString(setterMethodId), "0");
+		attributeId = SQLDriver.insertAttributeRecord(visitedClass.getClassName() + ":" + fg.getName(),fg.getType().toString(), Integer.toString(classId), Integer.toString(getterMethodId), Integer.toString(setterMethodId), "0");
 		processFieldAnnotations();
 	}
 	
@@ -56,10 +64,13 @@ public class FieldVisitor extends EmptyVisitor
 			if((method.getName()).equalsIgnoreCase("get"+(fg.getField().getName())))
 			{
 				//Found a method that looks like the getter method, check if it exists in db
-				int returnedId = SQLDriver.getMethodIdByName((visitedClass.getClassName() + ":" + method.getName()));
+				int returnedId = getMethodId(method.getName());
 				if(returnedId > NO_RECORD_RETURNED )
 				{
-					Logger.log("Found Getter method: "+method.getName());
+					if( Logger.isEnabled(Logger.Level.DEBUG) )
+					{
+						Logger.log(Logger.Level.DEBUG, "Found Getter method: "+method.getName());
+					}
 					return returnedId;
 				}
 			}
@@ -75,10 +86,13 @@ public class FieldVisitor extends EmptyVisitor
 			if((method.getName()).equalsIgnoreCase("set"+(fg.getField().getName())))
 			{
 				//Found a method that looks like the getter method, check if it exists in db
-				int returnedId = SQLDriver.getMethodIdByName((visitedClass.getClassName() + ":" + method.getName()));
+				int returnedId = getMethodId(method.getName());
 				if(returnedId > NO_RECORD_RETURNED )
 				{
-					Logger.log("Found Setter method: "+method.getName());
+					if( Logger.isEnabled(Logger.Level.DEBUG) )
+					{
+						Logger.log(Logger.Level.DEBUG, "Found Setter method: "+method.getName());
+					}
 					return returnedId;
 				}
 			}
@@ -86,6 +100,12 @@ public class FieldVisitor extends EmptyVisitor
 		return NO_RECORD_RETURNED;
 	}
 	
+	private int getMethodId(String methodName)
+	{
+		Integer methodId = methodIds.get(methodName);
+		return ((methodId == null) ? NO_RECORD_RETURNED : methodId.intValue());
+	}
+	
 	private void markTaintedGetterSetter()
 	{
 		if(getterMethodId > 0)
@@ -99,7 +119,10 @@ public class FieldVisitor extends EmptyVisitor
 		}
 	}
 	
-	private boolean isSuspectedAnnotation(String annotationName)
+	/**
+	 * Annotations of an attribute that taint its getter and setter
+	 */
+	public static boolean isSuspectedAnnotation(String annotationName)
 	{
 		if((annotationName.isEmpty()) ||(annotationName==null))
 		{
@@ -146,15 +169,21 @@ public class FieldVisitor extends EmptyVisitor
 		{
 			//Insert Metadata of this attribute to the database
 			
-			SQLDriver.insertMetadataRecord(annotation.getAnnotationType(), Integer.toString(classId), "0", Integer.toString(SQLDriver.getTopAttributeId()));
+			int metadataId = SQLDriver.insertMetadataRecord(annotation.getAnnotationType(), Integer.toString(classId), "0", Integer.toString(attributeId));
 			
-			System.out.println("INFO: Processed metadata: "+annotation.getAnnotationType());
-			Logger.log("INFO: Processed metadata: "+ annotation.getAnnotationType());
+			if( Console.isEnabled(Console.Verbosity.VERBOSE) )
+			{
+				Console.verbose("INFO: Processed metadata: "+annotation.getAnnotationType());
+			}
+			if( Logger.isEnabled(Logger.Level.DEBUG) )
+			{
+				Logger.log(Logger.Level.DEBUG, "INFO: Processed metadata: "+ annotation.getAnnotationType());
+			}
 			
 			if(isSuspectedAnnotation(annotation.getAnnotationType()))
 			{
 				//Mark this attribute as tainted also
-				//SQLDriver.updateAttributeTaintedStatusById(SQLDriver.getTopAttributeId());
+				//SQLDriver.updateAttributeTaintedStatusById(attributeId);
 				
 				//Mark its getters and setters (if any) as tainted
 				markTaintedGetterSetter();
@@ -164,10 +193,13 @@ public class FieldVisitor extends EmptyVisitor
 			for(ElementValuePair pair : evpair)
 			{
 				//Insert Key and Value Pairs of this attribute to the database
-				SQLDriver.insertMetadataKVPairRecord(pair.getNameString(), ((pair.getValue()).toString()).replaceAll("'", ""), Integer.toString(SQLDriver.getTopMetadataId()));
+				SQLDriver.insertMetadataKVPairRecord(pair.getNameString(), ((pair.getValue()).toString()).replaceAll("'", ""), Integer.toString(metadataId));
 				
 				//System.out.println("---- Processed metadata \"key-value\" pair: "+" key: "+pair.getNameString()+" value: "+(pair.getValue()).toString());
-				Logger.log("INFO: Processed metadata \"key-value\" pair: "+" key: "+pair.getNameString()+" value: "+(pair.getValue()).toString());
+				if( Logger.isEnabled(Logger.Level.DEBUG) )
+				{
+					Logger.log(Logger.Level.DEBUG, "INFO: Processed metadata \"key-value\" pair: "+" key: "+pair.getNameString()+" value: "+(pair.getValue()).toString());
+				}
 			}
 		}
 	}
@@ -0,0 +1,221 @@
+package main.java.orm.detector.analyzer.bcelvisitor;
+
+import java.util.Arrays;
+
+import org.apache.bcel.Const;
+import org.apache.bcel.classfile.Code;
+import org.apache.bcel.classfile.ConstantCP;
+import org.apache.bcel.classfile.ConstantNameAndType;
+import org.apache.bcel.classfile.ConstantPool;
+import org.apache.bcel.classfile.Utility;
+
+import main.java.orm.detector.analyzer.symbol.SymbolTable;
+
+/**
+ * Finds the invoke instructions of a method by walking the raw bytes of its Code attribute, without building
+ * a MethodGen or an instruction list. Only the four invoke opcodes are decoded, the other instructions are skipped
+ * by their length. Method references are resolved once per class and cached by constant pool index.
+ *
+ * One scanner per class, the calls of the last scanned method are kept until the next scan.
+ */
+public class InvokeScanner
+{
+	//Length of each instruction, 0 when it depends on its operands, -1 for undefined opcodes
+	private static final byte[] LENGTHS = new byte[256];
+
+	static
+	{
+		Arrays.fill(LENGTHS, (byte) -1);
+		Arrays.fill(LENGTHS, Const.NOP, Const.DCONST_1 + 1, (byte) 1);
+		LENGTHS[Const.BIPUSH] = 2;
+		LENGTHS[Const.SIPUSH] = 3;
+		LENGTHS[Const.LDC] = 2;
+		LENGTHS[Const.LDC_W] = 3;
+		LENGTHS[Const.LDC2_W] = 3;
+		Arrays.fill(LENGTHS, Const.ILOAD, Const.ALOAD + 1, (byte) 2);
+		Arrays.fill(LENGTHS, Const.ILOAD_0, Const.SALOAD + 1, (byte) 1);
+		Arrays.fill(LENGTHS, Const.ISTORE, Const.ASTORE + 1, (byte) 2);
+		Arrays.fill(LENGTHS, Const.ISTORE_0, Const.LXOR + 1, (byte) 1);
+		LENGTHS[Const.IINC] = 3;
+		Arrays.fill(LENGTHS, Const.I2L, Const.DCMPG + 1, (byte) 1);
+		Arrays.fill(LENGTHS, Const.IFEQ, Const.JSR + 1, (byte) 3);
+		LENGTHS[Const.RET] = 2;
+		LENGTHS[Const.TABLESWITCH] = 0;
+		LENGTHS[Const.LOOKUPSWITCH] = 0;
+		Arrays.fill(LENGTHS, Const.IRETURN, Const.RETURN + 1, (byte) 1);
+		Arrays.fill(LENGTHS, Const.GETSTATIC, Const.INVOKESTATIC + 1, (byte) 3);
+		LENGTHS[Const.INVOKEINTERFACE] = 5;
+		LENGTHS[Const.INVOKEDYNAMIC] = 5;
+		LENGTHS[Const.NEW] = 3;
+		LENGTHS[Const.NEWARRAY] = 2;
+		LENGTHS[Const.ANEWARRAY] = 3;
+		LENGTHS[Const.ARRAYLENGTH] = 1;
+		LENGTHS[Const.ATHROW] = 1;
+		LENGTHS[Const.CHECKCAST] = 3;
+		LENGTHS[Const.INSTANCEOF] = 3;
+		LENGTHS[Const.MONITORENTER] = 1;
+		LENGTHS[Const.MONITOREXIT] = 1;
+		LENGTHS[Const.WIDE] = 0;
+		LENGTHS[Const.MULTIANEWARRAY] = 4;
+		LENGTHS[Const.IFNULL] = 3;
+		LENGTHS[Const.IFNONNULL] = 3;
+		LENGTHS[Const.GOTO_W] = 5;
+		LENGTHS[Const.JSR_W] = 5;
+		LENGTHS[Const.BREAKPOINT] = 1;
+		LENGTHS[Const.IMPDEP1 & 0xFF] = 1;
+		LENGTHS[Const.IMPDEP2 & 0xFF] = 1;
+	}
+
+	private ConstantPool constantPool;
+	private SymbolTable symbols;
+
+	//Constant pool index -> symbol id + 1 of the referenced method, 0 until resolved
+	private int[] resolvedTargets;
+
+	//Calls of the last scanned method: kind (M, I, O or S) and symbol id of the invoked method
+	private char[] callKinds = new char[16];
+	private int[] callTargets = new int[16];
+	private int callCount = 0;
+
+	public InvokeScanner(ConstantPool constantPool, SymbolTable symbols)
+	{
+		this.constantPool = constantPool;
+		this.symbols = symbols;
+		this.resolvedTargets = new int[constantPool.getLength()];
+	}
+
+	/**
+	 * Collects the invocations of a method body, in bytecode order
+	 */
+	public void scan(Code code)
+	{
+		callCount = 0;
+		if( code == null )
+		{
+			return;
+		}
+
+		byte[] bytes = code.getCode();
+		int pc = 0;
+		while( pc < bytes.length )
+		{
+			int opcode = bytes[pc] & 0xFF;
+			switch( opcode )
+			{
+				case Const.INVOKEVIRTUAL:
+					addCall('M', u2(bytes, pc + 1));
+					break;
+				case Const.INVOKEINTERFACE:
+					addCall('I', u2(bytes, pc + 1));
+					break;
+				case Const.INVOKESPECIAL:
+					addCall('O', u2(bytes, pc + 1));
+					break;
+				case Const.INVOKESTATIC:
+					addCall('S', u2(bytes, pc + 1));
+					break;
+				default:
+					break;
+			}
+			pc += length(bytes, pc, opcode);
+		}
+	}
+
+	public int getCallCount()
+	{
+		return callCount;
+	}
+
+	public char getCallKind(int call)
+	{
+		return callKinds[call];
+	}
+
+	public int getCallTarget(int call)
+	{
+		return callTargets[call];
+	}
+
+	private int length(byte[] bytes, int pc, int opcode)
+	{
+		int length = LENGTHS[opcode];
+		if( length > 0 )
+		{
+			return length;
+		}
+		if( length < 0 )
+		{
+			throw new IllegalArgumentException("Invalid opcode " + opcode + " at " + pc);
+		}
+
+		if( opcode == Const.WIDE )
+		{
+			return (((bytes[pc + 1] & 0xFF) == Const.IINC) ? 6 : 4);
+		}
+
+		//Switch operands start on a 4 bytes boundary, relative to the start of the code
+		int operands = (pc + 4) & ~3;
+		if( opcode == Const.TABLESWITCH )
+		{
+			int low = s4(bytes, operands + 4);
+			int high = s4(bytes, operands + 8);
+			return (operands - pc) + 12 + ((high - low + 1) * 4);
+		}
+		else
+		{
+			int pairs = s4(bytes, operands + 4);
+			return (operands - pc) + 8 + (pairs * 8);
+		}
+	}
+
+	private void addCall(char kind, int index)
+	{
+		int target = resolvedTargets[index] - 1;
+		if( target < 0 )
+		{
+			target = resolve(index);
+			resolvedTargets[index] = target + 1;
+		}
+
+		if( callCount == callTargets.length )
+		{
+			callKinds = Arrays.copyOf(callKinds, callCount * 2);
+			callTargets = Arrays.copyOf(callTargets, callCount * 2);
+		}
+		callKinds[callCount] = kind;
+		callTargets[callCount] = target;
+		callCount++;
+	}
+
+	/**
+	 * Same class and method names as InvokeInstruction.getReferenceType(cp).toString() and getMethodName(cp),
+	 * the descriptor tells the overloads apart
+	 */
+	private int resolve(int index)
+	{
+		ConstantCP reference = (ConstantCP) constantPool.getConstant(index);
+		String className = constantPool.getConstantString(reference.getClassIndex(), Const.CONSTANT_Class);
+		if( className.startsWith("[") )
+		{
+			//Methods invoked on arrays, clone() mostly
+			className = Utility.signatureToString(className, false);
+		}
+		else
+		{
+			className = className.replace('/', '.');
+		}
+
+		ConstantNameAndType nameAndType = (ConstantNameAndType) constantPool.getConstant(reference.getNameAndTypeIndex(), Const.CONSTANT_NameAndType);
+		return symbols.internMethod(className, nameAndType.getName(constantPool), nameAndType.getSignature(constantPool));
+	}
+
+	private static int u2(byte[] bytes, int offset)
+	{
+		return ((bytes[offset] & 0xFF) << 8) | (bytes[offset + 1] & 0xFF);
+	}
+
+	private static int s4(byte[] bytes, int offset)
+	{
+		return ((bytes[offset] & 0xFF) << 24) | ((bytes[offset + 1] & 0xFF) << 16) | ((bytes[offset + 2] & 0xFF) << 8) | (bytes[offset + 3] & 0xFF);
+	}
+}
@@ -1,141 +1,112 @@
 package main.java.orm.detector.analyzer.bcelvisitor;
 
-import java.util.ArrayList;
-
 import org.apache.bcel.classfile.AnnotationEntry;
 import org.apache.bcel.classfile.ElementValuePair;
 import org.apache.bcel.classfile.JavaClass;
-import org.apache.bcel.generic.BranchInstruction;
-import org.apache.bcel.generic.ConstantPoolGen;
-import org.apache.bcel.generic.ConstantPushInstruction;
-import org.apache.bcel.generic.EmptyVisitor;
-import org.apache.bcel.generic.GotoInstruction;
-import org.apache.bcel.generic.INVOKEINTERFACE;
-import org.apache.bcel.generic.INVOKESPECIAL;
-import org.apache.bcel.generic.INVOKESTATIC;
-import org.apache.bcel.generic.INVOKEVIRTUAL;
-import org.apache.bcel.generic.Instruction;
-import org.apache.bcel.generic.InstructionConstants;
-import org.apache.bcel.generic.InstructionHandle;
-import org.apache.bcel.generic.InstructionList;
-import org.apache.bcel.generic.InstructionTargeter;
-import org.apache.bcel.generic.MethodGen;
-import org.apache.bcel.generic.ReturnInstruction;
+import org.apache.bcel.classfile.Method;
 
-import main.java.orm.detector.analyzer.taint.TaintAnalysisComponent;
+import main.java.orm.detector.analyzer.symbol.SymbolTable;
+import main.java.orm.detector.logger.Console;
 import main.java.orm.detector.logger.Logger;
 import main.java.orm.detector.persistence.SQLDriver;
 
-@SuppressWarnings("deprecation")
-public class MethodVisitor extends EmptyVisitor 
+public class MethodVisitor 
 {
     @SuppressWarnings("unused")
 	private int classId;
     
     private int methodId;
-    private MethodGen mg;
-    private ConstantPoolGen cp;
-    private boolean ifInstructionDetectedFlag;
-    private boolean gotoInstructionDetectedFlag;
+    private Method method;
     JavaClass visitedClass;
     
-    ArrayList<String> buffer;
+    //Finds the invocations of the method, shared by the methods of the class
+    private InvokeScanner invokeScanner;
+    private SymbolTable symbols;
     
     @SuppressWarnings("unused")
 	private String format;
 
-    public MethodVisitor(MethodGen m, JavaClass jc) 
+    public MethodVisitor(Method m, JavaClass jc, InvokeScanner scanner) 
     {
-    	this.buffer = new ArrayList<String>();
-    	this.ifInstructionDetectedFlag= false;
-        this.gotoInstructionDetectedFlag= false;
+    	this.symbols = SymbolTable.getInstance();
         
         visitedClass = jc;
-        mg = m;
-        cp = mg.getConstantPool();
+        method = m;
+        invokeScanner = scanner;
     }
 
     public void start(int classId)
     {
     	this.classId = classId;
     	
-        if (mg.isAbstract() || mg.isNative())
+        if (method.isAbstract() || method.isNative())
         {
             return;
         }
         
-        //Insert method in Db
-        SQLDriver.insertMethodRecord(visitedClass.getClassName() + ":" + mg.getName(), Integer.toString(classId), "0");
-     
-        //Save its id
-        methodId = SQLDriver.getTopMethodId();
-        
-        //Loop through its instructions
-        //System.out.println("--------START INSTRUCTION LOOP---------");
+        //Overloads share the name, the descriptor tells them apart
+        int sourceSymbol = symbols.internMethod(visitedClass.getClassName(), method.getName(), method.getSignature());
         
-        for (InstructionHandle ih = mg.getInstructionList().getStart(); ih != null; ih = ih.getNext()) 
-        {
-            Instruction i = ih.getInstruction();
-            
-            if (!visitInstruction(i))
-            {
-            	 i.accept(this);
-            }  
-        }
+        //Names are only built here, to be persisted
+        String sourceMethodName = symbols.getMethodName(sourceSymbol);
+        String sourceMethodDescriptor = symbols.getDescriptor(sourceSymbol);
         
-//        if(ifInstructionDetectedFlag && gotoInstructionDetectedFlag)
-//        {
-//        	for(String entry : buffer)
-//        	{
-//        		String[] piece = entry.split("_");
-//        		SQLDriver.insertCallGraphRecord("",piece[0], piece[1], piece[2] ,piece[3],"1");
-//        	}
-//        }
-//        else
-//        {
-        	for(String entry : buffer)
-        	{
-        		String[] piece = entry.split("_");
-        		SQLDriver.insertCallGraphRecord("",piece[0], piece[1], piece[2] ,piece[3],"0");
-        	}
-//        }
+        //Insert method in Db and save its id
+        methodId = SQLDriver.insertMethodRecord(sourceMethodName, sourceMethodDescriptor, Integer.toString(classId), "0", Integer.toString(method.getAccessFlags()));
         
-        //Reset Loop Flags
-//        this.ifInstructionDetectedFlag=false;
-//        this.gotoInstructionDetectedFlag=false;
-        this.buffer.clear();
+        //Find the invocations in the bytecode
+        invokeScanner.scan(method.getCode());
         
-        //System.out.println("--------END INSTRUCTION LOOP---------");
+        String sourceMethodId = Integer.toString(methodId);
+        for(int i = 0; i < invokeScanner.getCallCount(); i++)
+        {
+        	int target = invokeScanner.getCallTarget(i);
+        	SQLDriver.insertCallGraphRecord("", sourceMethodName, sourceMethodDescriptor, sourceMethodId, String.valueOf(invokeScanner.getCallKind(i)), symbols.getMethodName(target), symbols.getDescriptor(target), "0");
+        }
         
         //Process Annotations
         processMethodAnnotations();
         
         //Check if it has a suspected annotation
-//       if( this.hasSuspectedAnnotation(visitedClass.getClassName() + ":" + mg.getName()))
+//       if( this.hasSuspectedAnnotation(visitedClass.getClassName() + ":" + method.getName()))
 //       {
-//    	   SQLDriver.updateMethodTaintedStatusByName(visitedClass.getClassName() + ":" + mg.getName());
-//    	   Logger.log("Method: "+(visitedClass.getClassName() + ":" + mg.getName())+" is tainted!");
+//    	   SQLDriver.updateMethodTaintedStatusByName(visitedClass.getClassName() + ":" + method.getName());
+//    	   Logger.log("Method: "+(visitedClass.getClassName() + ":" + method.getName())+" is tainted!");
 //       }
     }
     
+    /**
+     * Id of the method in the database, 0 when the method was not stored (abstract or native)
+     */
+    public int getMethodId()
+    {
+        return methodId;
+    }
+    
     private void processMethodAnnotations()
     {
-    	AnnotationEntry[] annotationEntries = mg.getMethod().getAnnotationEntries();
+    	AnnotationEntry[] annotationEntries = method.getAnnotationEntries();
     	
     	for(AnnotationEntry annotation : annotationEntries)
     	{
     		//Insert Metadata of this attribute to the database
     		
-    		SQLDriver.insertMetadataRecord(annotation.getAnnotationType(), "0", Integer.toString(SQLDriver.getTopMethodId()), "0");
+    		int metadataId = SQLDriver.insertMetadataRecord(annotation.getAnnotationType(), "0", Integer.toString(methodId), "0");
     		ElementValuePair[] evpair = annotation.getElementValuePairs();
     		
     		for(ElementValuePair pair : evpair)
     		{
     			//Insert Key and Value Pairs of this attribute to the database
-    			SQLDriver.insertMetadataKVPairRecord(pair.getNameString(), ((pair.getValue()).toString()).replaceAll("'", ""), Integer.toString(SQLDriver.getTopMetadataId()));
+    			SQLDriver.insertMetadataKVPairRecord(pair.getNameString(), ((pair.getValue()).toString()).replaceAll("'", ""), Integer.toString(metadataId));
     			
-    			System.out.println("INFO: Processed metadata \"key-value\" pair: "+" key: "+pair.getNameString()+" value: "+(pair.getValue()).toString());
-    			Logger.log("INFO: Processed metadata \"key-value\" pair: "+" key: "+pair.getNameString()+" value: "+(pair.getValue()).toString());
+    			if( Console.isEnabled(Console.Verbosity.VERBOSE) )
+    			{
+    				Console.verbose("INFO: Processed metadata \"key-value\" pair: "+" key: "+pair.getNameString()+" value: "+(pair.getValue()).toString());
+    			}
+    			if( Logger.isEnabled(Logger.Level.DEBUG) )
+    			{
+    				Logger.log(Logger.Level.DEBUG, "INFO: Processed metadata \"key-value\" pair: "+" key: "+pair.getNameString()+" value: "+(pair.getValue()).toString());
+    			}
     		}
     	}
     }
@@ -187,44 +158,4 @@ public class MethodVisitor extends EmptyVisitor
 //		}
 //		return false;
 //	}
-
-    private boolean visitInstruction(Instruction i) 
-    {
-    	//KLAJDI: Disable Loop detection for now as it is irrelevant here
-//    	if(i instanceof org.apache.bcel.generic.IfInstruction) 
-//    	{
-//    		this.ifInstructionDetectedFlag = true;
-//    	}
-//    	
-//    	if(i instanceof GotoInstruction)
-//    	{
-//    		this.gotoInstructionDetectedFlag = true;
-//    	}
-    	
-        return ((InstructionConstants.INSTRUCTIONS[i.getOpcode()] != null) && !(i instanceof ConstantPushInstruction) && !(i instanceof ReturnInstruction));
-    }
-
-    @Override
-    public void visitINVOKEVIRTUAL(INVOKEVIRTUAL i) 
-    {
-    	this.buffer.add((visitedClass.getClassName() + ":" + mg.getName())+"_"+Integer.toString(methodId)+"_M_"+((i.getReferenceType(cp).toString())+":"+i.getMethodName(cp)));
-    }
-   
-    @Override
-    public void visitINVOKEINTERFACE(INVOKEINTERFACE i) 
-    {
-    	this.buffer.add((visitedClass.getClassName() + ":" + mg.getName())+"_"+Integer.toString(methodId)+"_I_"+((i.getReferenceType(cp).toString())+":"+i.getMethodName(cp)));
-    }
-
-    @Override
-    public void visitINVOKESPECIAL(INVOKESPECIAL i) 
-    {
-    	this.buffer.add((visitedClass.getClassName() + ":" + mg.getName())+"_"+Integer.toString(methodId)+"_O_"+((i.getReferenceType(cp).toString())+":"+i.getMethodName(cp)));
-    }
-
-    @Override
-    public void visitINVOKESTATIC(INVOKESTATIC i) 
-    {
-    	this.buffer.add((visitedClass.getClassName() + ":" + mg.getName())+"_"+Integer.toString(methodId)+"_S_"+((i.getReferenceType(cp).toString())+":"+i.getMethodName(cp)));
-    }
 }
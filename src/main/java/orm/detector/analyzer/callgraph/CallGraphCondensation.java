@@ -0,0 +1,265 @@
+package main.java.orm.detector.analyzer.callgraph;
+
+import java.util.Arrays;
+
+/**
+ * Strongly connected components of the call graph (Tarjan, iterative so that deep call chains do not overflow
+ * the stack) and the condensed graph between them, which has no cycles.
+ *
+ * Components are numbered in the order Tarjan completes them: a component only calls components with a smaller id,
+ * so ascending ids are a bottom-up (callees first) order and descending ids a topological (callers first) order.
+ * Analyses that propagate facts along the calls can process each component once instead of re-traversing
+ * shared sub-graphs, recursion and mutually calling methods end up in the same component.
+ */
+public class CallGraphCondensation
+{
+	private CallGraphIndex callGraph;
+
+	//Method id -> component id
+	private int[] componentOf;
+	private int componentCount;
+
+	//Methods of component c are members[memberOffsets[c] .. memberOffsets[c+1]-1]
+	private int[] memberOffsets;
+	private int[] members;
+
+	//Distinct components called by component c, successors[successorOffsets[c] .. successorOffsets[c+1]-1]
+	private int[] successorOffsets;
+	private int[] successors;
+
+	//Distinct components calling component c
+	private int[] predecessorOffsets;
+	private int[] predecessors;
+
+	//Components containing a cycle, more than one method or a method calling itself
+	private boolean[] recursive;
+
+	public CallGraphCondensation(CallGraphIndex callGraph)
+	{
+		this.callGraph = callGraph;
+		findComponents();
+		groupMembers();
+		condense();
+	}
+
+	private void findComponents()
+	{
+		int methodCount = callGraph.getMethodCount();
+		componentOf = new int[methodCount];
+
+		int[] index = new int[methodCount];
+		int[] low = new int[methodCount];
+		Arrays.fill(index, -1);
+		boolean[] onStack = new boolean[methodCount];
+		int[] stack = new int[methodCount];
+		int stackSize = 0;
+
+		//Explicit call stack of the depth first search: method and next edge to follow
+		int[] frameMethod = new int[methodCount];
+		int[] frameEdge = new int[methodCount];
+		int frames = 0;
+
+		int counter = 0;
+		for(int root = 0; root < methodCount; root++)
+		{
+			if( index[root] >= 0 )
+			{
+				continue;
+			}
+
+			index[root] = low[root] = counter++;
+			stack[stackSize++] = root;
+			onStack[root] = true;
+			frameMethod[frames] = root;
+			frameEdge[frames] = callGraph.getEdgeOffset(root);
+			frames++;
+
+			while( frames > 0 )
+			{
+				int method = frameMethod[frames - 1];
+				int edge = frameEdge[frames - 1];
+
+				if( edge < callGraph.getEdgeOffset(method + 1) )
+				{
+					frameEdge[frames - 1]++;
+					int target = callGraph.getEdgeTarget(edge);
+					if( index[target] < 0 )
+					{
+						index[target] = low[target] = counter++;
+						stack[stackSize++] = target;
+						onStack[target] = true;
+						frameMethod[frames] = target;
+						frameEdge[frames] = callGraph.getEdgeOffset(target);
+						frames++;
+					}
+					else if( onStack[target] )
+					{
+						low[method] = Math.min(low[method], index[target]);
+					}
+					continue;
+				}
+
+				//All the edges of the method are followed
+				frames--;
+				if( low[method] == index[method] )
+				{
+					int member;
+					do
+					{
+						member = stack[--stackSize];
+						onStack[member] = false;
+						componentOf[member] = componentCount;
+					}
+					while( member != method );
+					componentCount++;
+				}
+				if( frames > 0 )
+				{
+					int caller = frameMethod[frames - 1];
+					low[caller] = Math.min(low[caller], low[method]);
+				}
+			}
+		}
+	}
+
+	private void groupMembers()
+	{
+		memberOffsets = new int[componentCount + 1];
+		members = new int[componentOf.length];
+		for(int component : componentOf)
+		{
+			memberOffsets[component + 1]++;
+		}
+		for(int c = 0; c < componentCount; c++)
+		{
+			memberOffsets[c + 1] += memberOffsets[c];
+		}
+		int[] fill = Arrays.copyOf(memberOffsets, componentCount);
+		for(int m = 0; m < componentOf.length; m++)
+		{
+			members[fill[componentOf[m]]++] = m;
+		}
+	}
+
+	private void condense()
+	{
+		recursive = new boolean[componentCount];
+
+		//Edge keys: source component in the high 32 bits, target component in the low ones
+		long[] keys = new long[callGraph.getEdgeOffset(componentOf.length)];
+		int keyCount = 0;
+		for(int m = 0; m < componentOf.length; m++)
+		{
+			for(int e = callGraph.getEdgeOffset(m); e < callGraph.getEdgeOffset(m + 1); e++)
+			{
+				int source = componentOf[m];
+				int target = componentOf[callGraph.getEdgeTarget(e)];
+				if( source == target )
+				{
+					recursive[source] = true;
+					continue;
+				}
+				keys[keyCount++] = ((long) source << 32) | target;
+			}
+		}
+		Arrays.sort(keys, 0, keyCount);
+
+		successorOffsets = new int[componentCount + 1];
+		successors = new int[keyCount];
+		int edgeCount = 0;
+		for(int k = 0; k < keyCount; k++)
+		{
+			if( (k > 0) && (keys[k] == keys[k - 1]) )
+			{
+				continue;
+			}
+			successorOffsets[(int) (keys[k] >>> 32) + 1]++;
+			successors[edgeCount++] = (int) keys[k];
+		}
+		successors = Arrays.copyOf(successors, edgeCount);
+		for(int c = 0; c < componentCount; c++)
+		{
+			successorOffsets[c + 1] += successorOffsets[c];
+		}
+
+		predecessorOffsets = new int[componentCount + 1];
+		predecessors = new int[edgeCount];
+		for(int target : successors)
+		{
+			predecessorOffsets[target + 1]++;
+		}
+		for(int c = 0; c < componentCount; c++)
+		{
+			predecessorOffsets[c + 1] += predecessorOffsets[c];
+		}
+		int[] fill = Arrays.copyOf(predecessorOffsets, componentCount);
+		for(int c = 0; c < componentCount; c++)
+		{
+			for(int e = successorOffsets[c]; e < successorOffsets[c + 1]; e++)
+			{
+				predecessors[fill[successors[e]]++] = c;
+			}
+		}
+	}
+
+	public CallGraphIndex getCallGraph()
+	{
+		return callGraph;
+	}
+
+	public int getComponentCount()
+	{
+		return componentCount;
+	}
+
+	public int getComponent(int methodId)
+	{
+		return componentOf[methodId];
+	}
+
+	public int[] getMembers(int component)
+	{
+		return Arrays.copyOfRange(members, memberOffsets[component], memberOffsets[component + 1]);
+	}
+
+	public int[] getSuccessors(int component)
+	{
+		return Arrays.copyOfRange(successors, successorOffsets[component], successorOffsets[component + 1]);
+	}
+
+	public int[] getPredecessors(int component)
+	{
+		return Arrays.copyOfRange(predecessors, predecessorOffsets[component], predecessorOffsets[component + 1]);
+	}
+
+	public boolean isRecursive(int component)
+	{
+		return recursive[component];
+	}
+
+	/**
+	 * Components with callees first, every component comes after all the components it calls
+	 */
+	public int[] getBottomUpOrder()
+	{
+		int[] order = new int[componentCount];
+		for(int c = 0; c < componentCount; c++)
+		{
+			order[c] = c;
+		}
+		return order;
+	}
+
+	/**
+	 * Components with callers first, every component comes before all the components it calls
+	 */
+	public int[] getTopologicalOrder()
+	{
+		int[] order = new int[componentCount];
+		for(int c = 0; c < componentCount; c++)
+		{
+			order[c] = componentCount - 1 - c;
+		}
+		return order;
+	}
+}
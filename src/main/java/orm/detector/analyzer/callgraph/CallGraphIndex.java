@@ -0,0 +1,335 @@
+package main.java.orm.detector.analyzer.callgraph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import main.java.orm.detector.analyzer.symbol.SymbolTable;
+import main.java.orm.detector.persistence.SQLDriver;
+import main.java.orm.detector.persistence.vo.CallGraphEdge;
+
+/**
+ * Read-only, in-memory copy of the callgraph table for the detectors.
+ * Methods are identified by their SymbolTable ids and the edges are stored in compressed sparse row form,
+ * once by source (forward) and once by target (reverse). Duplicate source/target pairs are merged, an edge
+ * is flagged as called in a loop if any of its rows was.
+ */
+public class CallGraphIndex
+{
+	private static final int[] NO_METHODS = new int[0];
+
+	private SymbolTable symbols;
+	private int methodCount;
+
+	//Targets of method m are forwardTargets[forwardOffsets[m] .. forwardOffsets[m+1]-1]
+	private int[] forwardOffsets;
+	private int[] forwardTargets;
+	private BitSet forwardInLoop;
+
+	//Sources of method m are reverseSources[reverseOffsets[m] .. reverseOffsets[m+1]-1]
+	private int[] reverseOffsets;
+	private int[] reverseSources;
+
+	//Class id -> ids of its methods
+	private HashMap<Integer, int[]> classMethods;
+
+	//Class names in ASCII lower case -> ids of the classes, sorted so that class name prefixes can be looked up as a range
+	private TreeMap<String, List<Integer>> sortedClassNames;
+
+	/**
+	 * Builds the index from the callgraph table with a single query.
+	 */
+	public static CallGraphIndex load()
+	{
+		return new CallGraphIndex(SQLDriver.getCallGraphEdges(), SymbolTable.getInstance());
+	}
+
+	public CallGraphIndex(List<CallGraphEdge> edges, SymbolTable symbols)
+	{
+		this(toEdgeKeys(edges, symbols), symbols);
+	}
+
+	/**
+	 * @param keys edges as built by toEdgeKey, on the method ids of the symbol table, in any order
+	 */
+	public CallGraphIndex(long[] keys, SymbolTable symbols)
+	{
+		this.symbols = symbols;
+		keys = keys.clone();
+		Arrays.sort(keys);
+
+		//Covers every method of the symbol table, the ones without edges get empty rows
+		methodCount = symbols.getMethodCount();
+
+		//Forward rows come out of the sorted keys directly, merging duplicates
+		forwardOffsets = new int[methodCount + 1];
+		forwardTargets = new int[keys.length];
+		forwardInLoop = new BitSet();
+		int edgeCount = 0;
+		long previous = -1;
+		for(long key : keys)
+		{
+			if( (edgeCount > 0) && ((key >>> 1) == (previous >>> 1)) )
+			{
+				//Same source and target, the set bit sorts last
+				if( (key & 1) == 1 )
+				{
+					forwardInLoop.set(edgeCount - 1);
+				}
+				continue;
+			}
+
+			int source = (int) (key >>> 32);
+			forwardOffsets[source + 1]++;
+			forwardTargets[edgeCount] = getEdgeKeyTarget(key);
+			if( (key & 1) == 1 )
+			{
+				forwardInLoop.set(edgeCount);
+			}
+			edgeCount++;
+			previous = key;
+		}
+		forwardTargets = Arrays.copyOf(forwardTargets, edgeCount);
+		for(int m = 0; m < methodCount; m++)
+		{
+			forwardOffsets[m + 1] += forwardOffsets[m];
+		}
+
+		//Reverse rows by counting sort on the targets
+		reverseOffsets = new int[methodCount + 1];
+		reverseSources = new int[edgeCount];
+		for(int target : forwardTargets)
+		{
+			reverseOffsets[target + 1]++;
+		}
+		for(int m = 0; m < methodCount; m++)
+		{
+			reverseOffsets[m + 1] += reverseOffsets[m];
+		}
+		int[] fill = Arrays.copyOf(reverseOffsets, methodCount);
+		for(int source = 0; source < methodCount; source++)
+		{
+			for(int e = forwardOffsets[source]; e < forwardOffsets[source + 1]; e++)
+			{
+				reverseSources[fill[forwardTargets[e]]++] = source;
+			}
+		}
+
+		//Group the methods by class
+		HashMap<Integer, ArrayList<Integer>> methodsByClass = new HashMap<Integer, ArrayList<Integer>>();
+		for(int m = 0; m < methodCount; m++)
+		{
+			int classId = symbols.getMethodClass(m);
+			ArrayList<Integer> methods = methodsByClass.get(classId);
+			if( methods == null )
+			{
+				methods = new ArrayList<Integer>();
+				methodsByClass.put(classId, methods);
+			}
+			methods.add(m);
+		}
+		classMethods = new HashMap<Integer, int[]>();
+		sortedClassNames = new TreeMap<String, List<Integer>>();
+		for(Map.Entry<Integer, ArrayList<Integer>> entry : methodsByClass.entrySet())
+		{
+			classMethods.put(entry.getKey(), toArray(entry.getValue()));
+
+			//Classes whose names only differ in case share the key
+			String key = toAsciiLowerCase(symbols.getClassName(entry.getKey()));
+			List<Integer> classes = sortedClassNames.get(key);
+			if( classes == null )
+			{
+				classes = new ArrayList<Integer>(1);
+				sortedClassNames.put(key, classes);
+			}
+			classes.add(entry.getKey());
+		}
+	}
+
+	/**
+	 * Interns the methods of the edges and returns their keys
+	 */
+	public static long[] toEdgeKeys(List<CallGraphEdge> edges, SymbolTable symbols)
+	{
+		long[] keys = new long[edges.size()];
+		for(int i = 0; i < edges.size(); i++)
+		{
+			CallGraphEdge edge = edges.get(i);
+			int source = symbols.internMethod(getClassName(edge.getSourceMethodName()), getMemberName(edge.getSourceMethodName()), edge.getSourceMethodDescriptor());
+			int target = symbols.internMethod(getClassName(edge.getTargetMethodName()), getMemberName(edge.getTargetMethodName()), edge.getTargetMethodDescriptor());
+			keys[i] = toEdgeKey(source, target, edge.isCalledInLoop());
+		}
+		return keys;
+	}
+
+	/**
+	 * Edge key: source in the high 32 bits, then target, then the loop flag in the lowest bit
+	 */
+	public static long toEdgeKey(int source, int target, boolean calledInLoop)
+	{
+		return (((long) source) << 32) | (((long) target) << 1) | (calledInLoop ? 1 : 0);
+	}
+
+	public static int getEdgeKeyTarget(long key)
+	{
+		return (int) ((key & 0xFFFFFFFFL) >>> 1);
+	}
+
+	/**
+	 * Class part of a "class:method" name
+	 */
+	public static String getClassName(String methodName)
+	{
+		int separator = methodName.lastIndexOf(':');
+		return ((separator < 0) ? methodName : methodName.substring(0, separator));
+	}
+
+	/**
+	 * Method part of a "class:method" name, empty when there is none
+	 */
+	public static String getMemberName(String methodName)
+	{
+		int separator = methodName.lastIndexOf(':');
+		return ((separator < 0) ? "" : methodName.substring(separator + 1));
+	}
+
+	public SymbolTable getSymbols()
+	{
+		return symbols;
+	}
+
+	public int getMethodCount()
+	{
+		return methodCount;
+	}
+
+	/**
+	 * @param descriptor JVM descriptor of the method, overloads are distinct methods
+	 * @return the id of the method, -1 when the method is not part of the index
+	 */
+	public int getMethodId(String methodName, String descriptor)
+	{
+		int methodId = symbols.lookupMethod(getClassName(methodName), getMemberName(methodName), descriptor);
+		return ((methodId < methodCount) ? methodId : SymbolTable.NOT_FOUND);
+	}
+
+	public String getMethodName(int methodId)
+	{
+		return symbols.getMethodName(methodId);
+	}
+
+	public int getOutDegree(int methodId)
+	{
+		return forwardOffsets[methodId + 1] - forwardOffsets[methodId];
+	}
+
+	/**
+	 * Distinct methods invoked by the method
+	 */
+	public int[] getTargets(int methodId)
+	{
+		return Arrays.copyOfRange(forwardTargets, forwardOffsets[methodId], forwardOffsets[methodId + 1]);
+	}
+
+	/**
+	 * Position of the first target of the method in the forward rows, the targets of m are at
+	 * getEdgeOffset(m) .. getEdgeOffset(m + 1) - 1. Lets graph algorithms iterate without copying rows.
+	 */
+	int getEdgeOffset(int methodId)
+	{
+		return forwardOffsets[methodId];
+	}
+
+	int getEdgeTarget(int edge)
+	{
+		return forwardTargets[edge];
+	}
+
+	/**
+	 * Distinct methods invoked by the method from within a loop
+	 */
+	public int[] getTargetsCalledInLoop(int methodId)
+	{
+		int[] targets = new int[getOutDegree(methodId)];
+		int count = 0;
+		for(int e = forwardInLoop.nextSetBit(forwardOffsets[methodId]); (e >= 0) && (e < forwardOffsets[methodId + 1]); e = forwardInLoop.nextSetBit(e + 1))
+		{
+			targets[count++] = forwardTargets[e];
+		}
+		return Arrays.copyOf(targets, count);
+	}
+
+	/**
+	 * Distinct methods invoking the method
+	 */
+	public int[] getSources(int methodId)
+	{
+		return Arrays.copyOfRange(reverseSources, reverseOffsets[methodId], reverseOffsets[methodId + 1]);
+	}
+
+	public int[] getMethodsOfClass(int classId)
+	{
+		int[] methods = classMethods.get(classId);
+		return ((methods == null) ? NO_METHODS : methods);
+	}
+
+	public int[] getMethodsOfClass(String className)
+	{
+		int classId = symbols.lookupClass(className);
+		return ((classId == SymbolTable.NOT_FOUND) ? NO_METHODS : getMethodsOfClass(classId));
+	}
+
+	/**
+	 * Distinct methods invoking a method of any class whose name starts with the prefix,
+	 * the in-memory counterpart of target_method_name LIKE 'prefix%'. Like SQLite's LIKE, the prefix is matched
+	 * case-insensitively for ASCII letters only.
+	 */
+	public int[] getSourcesOfClassPrefix(String classNamePrefix)
+	{
+		BitSet sources = new BitSet(getMethodCount());
+		String prefix = toAsciiLowerCase(classNamePrefix);
+		SortedMap<String, List<Integer>> classes = sortedClassNames.subMap(prefix, prefix + Character.MAX_VALUE);
+		for(List<Integer> classIds : classes.values())
+		{
+			for(int classId : classIds)
+			{
+				for(int m : getMethodsOfClass(classId))
+				{
+					for(int e = reverseOffsets[m]; e < reverseOffsets[m + 1]; e++)
+					{
+						sources.set(reverseSources[e]);
+					}
+				}
+			}
+		}
+		return sources.stream().toArray();
+	}
+
+	private static String toAsciiLowerCase(String value)
+	{
+		char[] chars = value.toCharArray();
+		for(int i = 0; i < chars.length; i++)
+		{
+			if( (chars[i] >= 'A') && (chars[i] <= 'Z') )
+			{
+				chars[i] = (char) (chars[i] + ('a' - 'A'));
+			}
+		}
+		return new String(chars);
+	}
+
+	private static int[] toArray(List<Integer> values)
+	{
+		int[] array = new int[values.size()];
+		for(int i = 0; i < array.length; i++)
+		{
+			array[i] = values.get(i);
+		}
+		return array;
+	}
+}
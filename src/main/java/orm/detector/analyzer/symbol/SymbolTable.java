@@ -0,0 +1,241 @@
+package main.java.orm.detector.analyzer.symbol;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Interns class names, member names and descriptors into dense int ids, and methods into signatures
+ * made of those three ids. The extraction and the detectors pass the ids around, strings are only built
+ * back (getMethodName) when a fact is persisted or reported.
+ *
+ * Overloads are distinct methods, they only share their "class:method" name. Methods recorded before the
+ * descriptors were persisted have the empty descriptor, NO_DESCRIPTOR.
+ */
+public class SymbolTable
+{
+	private static final SymbolTable GLOBAL = new SymbolTable();
+
+	//Descriptor id of the empty descriptor, for the methods whose descriptor is unknown
+	public static final int NO_DESCRIPTOR = 0;
+
+	public static final int NOT_FOUND = -1;
+
+	private StringPool classNames = new StringPool();
+	private StringPool memberNames = new StringPool();
+	private StringPool descriptors = new StringPool();
+
+	//Method id -> its class, name and descriptor ids
+	private int[] methodClass = new int[1024];
+	private int[] methodMember = new int[1024];
+	private int[] methodDescriptor = new int[1024];
+	private int methodCount = 0;
+
+	//Open addressing table of method id + 1, 0 marks a free slot
+	private int[] methodSlots = new int[2048];
+
+	public static SymbolTable getInstance()
+	{
+		return GLOBAL;
+	}
+
+	public SymbolTable()
+	{
+		descriptors.intern("");
+	}
+
+	public synchronized int internClass(String className)
+	{
+		return classNames.intern(className);
+	}
+
+	public synchronized int internMember(String memberName)
+	{
+		return memberNames.intern(memberName);
+	}
+
+	public synchronized int internDescriptor(String descriptor)
+	{
+		return descriptors.intern(descriptor);
+	}
+
+	/**
+	 * @param descriptor JVM method descriptor, e.g. (Ljava/lang/String;)V, null or empty when unknown
+	 */
+	public synchronized int internMethod(String className, String memberName, String descriptor)
+	{
+		return internMethod(classNames.intern(className), memberNames.intern(memberName), descriptors.intern((descriptor == null) ? "" : descriptor));
+	}
+
+	public synchronized int internMethod(int classId, int memberId, int descriptorId)
+	{
+		int slot = findSlot(classId, memberId, descriptorId);
+		if( methodSlots[slot] != 0 )
+		{
+			return methodSlots[slot] - 1;
+		}
+
+		if( methodCount == methodClass.length )
+		{
+			methodClass = Arrays.copyOf(methodClass, methodCount * 2);
+			methodMember = Arrays.copyOf(methodMember, methodCount * 2);
+			methodDescriptor = Arrays.copyOf(methodDescriptor, methodCount * 2);
+		}
+		int methodId = methodCount++;
+		methodClass[methodId] = classId;
+		methodMember[methodId] = memberId;
+		methodDescriptor[methodId] = descriptorId;
+		methodSlots[slot] = methodId + 1;
+
+		//Keep the table at most half full
+		if( methodCount * 2 > methodSlots.length )
+		{
+			rehash(methodSlots.length * 2);
+		}
+		return methodId;
+	}
+
+	/**
+	 * Id of a method without interning it, NOT_FOUND when the method was never seen.
+	 */
+	public synchronized int lookupMethod(String className, String memberName, String descriptor)
+	{
+		int classId = classNames.lookup(className);
+		int memberId = memberNames.lookup(memberName);
+		int descriptorId = descriptors.lookup((descriptor == null) ? "" : descriptor);
+		if( (classId == NOT_FOUND) || (memberId == NOT_FOUND) || (descriptorId == NOT_FOUND) )
+		{
+			return NOT_FOUND;
+		}
+		return lookupMethod(classId, memberId, descriptorId);
+	}
+
+	public synchronized int lookupMethod(int classId, int memberId, int descriptorId)
+	{
+		int slot = findSlot(classId, memberId, descriptorId);
+		return methodSlots[slot] - 1;
+	}
+
+	public synchronized int lookupClass(String className)
+	{
+		return classNames.lookup(className);
+	}
+
+	public synchronized int lookupMember(String memberName)
+	{
+		return memberNames.lookup(memberName);
+	}
+
+	public synchronized int getMethodCount()
+	{
+		return methodCount;
+	}
+
+	public synchronized int getClassCount()
+	{
+		return classNames.size();
+	}
+
+	public synchronized int getMethodClass(int methodId)
+	{
+		return methodClass[methodId];
+	}
+
+	public synchronized int getMethodMember(int methodId)
+	{
+		return methodMember[methodId];
+	}
+
+	public synchronized int getMethodDescriptor(int methodId)
+	{
+		return methodDescriptor[methodId];
+	}
+
+	public synchronized String getClassName(int classId)
+	{
+		return classNames.get(classId);
+	}
+
+	/**
+	 * "class:method" name of the method, as stored in the method and callgraph tables
+	 */
+	public synchronized String getMethodName(int methodId)
+	{
+		return classNames.get(methodClass[methodId]) + ":" + memberNames.get(methodMember[methodId]);
+	}
+
+	public synchronized String getDescriptor(int methodId)
+	{
+		return descriptors.get(methodDescriptor[methodId]);
+	}
+
+	private int findSlot(int classId, int memberId, int descriptorId)
+	{
+		int mask = methodSlots.length - 1;
+		int slot = hash(classId, memberId, descriptorId) & mask;
+		while( methodSlots[slot] != 0 )
+		{
+			int methodId = methodSlots[slot] - 1;
+			if( (methodClass[methodId] == classId) && (methodMember[methodId] == memberId) && (methodDescriptor[methodId] == descriptorId) )
+			{
+				return slot;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	private void rehash(int capacity)
+	{
+		methodSlots = new int[capacity];
+		for(int methodId = 0; methodId < methodCount; methodId++)
+		{
+			methodSlots[findSlot(methodClass[methodId], methodMember[methodId], methodDescriptor[methodId])] = methodId + 1;
+		}
+	}
+
+	private static int hash(int classId, int memberId, int descriptorId)
+	{
+		int h = classId * 0x9E3779B1;
+		h = (h ^ memberId) * 0x85EBCA6B;
+		h = (h ^ descriptorId) * 0xC2B2AE35;
+		return h ^ (h >>> 16);
+	}
+
+	/**
+	 * Dense numbering of the distinct strings of one kind
+	 */
+	private static class StringPool
+	{
+		private HashMap<String, Integer> ids = new HashMap<String, Integer>();
+		private ArrayList<String> values = new ArrayList<String>();
+
+		public int intern(String value)
+		{
+			Integer id = ids.get(value);
+			if( id == null )
+			{
+				id = values.size();
+				ids.put(value, id);
+				values.add(value);
+			}
+			return id;
+		}
+
+		public int lookup(String value)
+		{
+			Integer id = ids.get(value);
+			return ((id == null) ? NOT_FOUND : id.intValue());
+		}
+
+		public String get(int id)
+		{
+			return values.get(id);
+		}
+
+		public int size()
+		{
+			return values.size();
+		}
+	}
+}
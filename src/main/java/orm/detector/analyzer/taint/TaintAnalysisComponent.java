@@ -1,95 +1,191 @@
 package main.java.orm.detector.analyzer.taint;
 
-import org.apache.bcel.classfile.Method;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.LinkedHashSet;
 
+import main.java.orm.detector.analyzer.bcelvisitor.FieldVisitor;
+import main.java.orm.detector.analyzer.callgraph.CallGraphCondensation;
+import main.java.orm.detector.analyzer.callgraph.CallGraphIndex;
+import main.java.orm.detector.events.AnalysisEvent;
+import main.java.orm.detector.logger.Console;
+import main.java.orm.detector.logger.Logger;
+import main.java.orm.detector.metrics.Metrics;
+import main.java.orm.detector.metrics.PhaseMetrics;
+import main.java.orm.detector.metrics.Stopwatch;
 import main.java.orm.detector.persistence.SQLDriver;
+import main.java.orm.detector.persistence.vo.MethodMetadata;
 
-public class TaintAnalysisComponent 
+/**
+ * A method is tainted when it carries a suspected annotation, is the getter or setter of an attribute carrying one
+ * or calls, directly or not, a tainted method.
+ *
+ * The method metadata is loaded in one query and the taint is propagated over the strongly connected components
+ * of the in-memory call graph, each component is decided once, after its callees. The analysis only starts from the
+ * annotations, never from the flags of a previous run, so that a database extracted incrementally does not keep
+ * the taint of changed or removed callees. The flags of every method are replaced in one batch, by me_id, so
+ * overloads only share the taint when their own calls do.
+ */
+public class TaintAnalysisComponent
 {
-	private static final int NOT_TAINTED = 0;
-	private static final int TAINTED = 1;
-	
-	public int checkTainted(String methodName)
+	private CallGraphIndex callGraph;
+
+	//Tainted methods of the call graph, by method id
+	private BitSet tainted;
+
+	//Tainted methods unknown to the call graph, neither calling nor called, by me_id
+	private LinkedHashSet<Integer> taintedOutsideCallGraph;
+
+	public TaintAnalysisComponent(CallGraphIndex callGraph)
 	{
-		if( hasSuspectedAnnotation(methodName) )
-		{
-			return TAINTED;
-		}
-		else if( hasTargetEdges(methodName) )
+		this.callGraph = callGraph;
+	}
+
+	/**
+	 * Computes the taint of every method and replaces the tainted flags in the database
+	 */
+	public void run()
+	{
+		Stopwatch stopwatch = Stopwatch.start();
+		AnalysisEvent event = new AnalysisEvent();
+		event.begin();
+		tainted = new BitSet(callGraph.getMethodCount());
+		taintedOutsideCallGraph = new LinkedHashSet<Integer>();
+
+		//me_id and call graph id of every method, to write the propagated taint back
+		ArrayList<MethodMetadata> methods = SQLDriver.getMethodMetadata();
+		int[] rowIds = new int[methods.size()];
+		int[] callGraphIds = new int[methods.size()];
+
+		int sources = 0;
+		for(int i = 0; i < methods.size(); i++)
 		{
-			String[] targetEdges = getTargetEdges(methodName);
-			
-			if(targetEdges.length > 0)
+			MethodMetadata method = methods.get(i);
+			int methodId = callGraph.getMethodId(method.getMethodName(), method.getMethodDescriptor());
+			rowIds[i] = method.getMethodId();
+			callGraphIds[i] = methodId;
+
+			//Suspected annotation of the method itself, or of the attribute it is the getter or setter of
+			boolean source = (method.isAccessor() ? FieldVisitor.isSuspectedAnnotation(method.getMetadataName()) : isSuspectedAnnotation(method.getMetadataName()));
+			if( !source )
+			{
+				continue;
+			}
+
+			if( methodId >= 0 )
 			{
-				for(String targetMethod : targetEdges )
+				if( !tainted.get(methodId) )
 				{
-					if((targetMethod == null) || (targetMethod.isEmpty()))
-					{
-						continue;
-					}
-					checkTainted(targetMethod);
+					tainted.set(methodId);
+					sources++;
 				}
 			}
+			else if( taintedOutsideCallGraph.add(method.getMethodId()) )
+			{
+				sources++;
+			}
 		}
-		
-		return NOT_TAINTED;
-	}
-	
-	private boolean hasSuspectedAnnotation(String methodName)
-	{
-		//Retrieve this method's id
-		int method_id = SQLDriver.getMethodIdByName(methodName);
-		
-		if(method_id <= 0)
+
+		propagate();
+
+		LinkedHashSet<Integer> taintedMethods = new LinkedHashSet<Integer>(taintedOutsideCallGraph);
+		for(int i = 0; i < rowIds.length; i++)
 		{
-			return false; //Actually throw an error because system is inconsistent if this happen
+			if( (callGraphIds[i] >= 0) && tainted.get(callGraphIds[i]) )
+			{
+				taintedMethods.add(rowIds[i]);
+			}
 		}
-		
-		//Check all metadata(annotation) that belong to this method
-		String[] metadataList = (SQLDriver.getMetadataListforMethod(method_id )).split(",");
-		
-		if(metadataList == null)
+		SQLDriver.replaceMethodTaintedStatus(taintedMethods);
+
+		Console.info("INFO: Taint analysis flagged "+taintedMethods.size()+" methods from "+sources+" annotated methods");
+		Logger.log("INFO: Taint analysis flagged "+taintedMethods.size()+" methods from "+sources+" annotated methods");
+
+		AnalysisEvent.commit(event, "taint", callGraph.getMethodCount(), taintedMethods.size());
+
+		PhaseMetrics taintMetrics = Metrics.record(Metrics.TAINT, stopwatch);
+		taintMetrics.count("call_graph_methods", callGraph.getMethodCount());
+		taintMetrics.count("source_methods", sources);
+		taintMetrics.count("tainted_methods", taintedMethods.size());
+	}
+
+	/**
+	 * Taints the callers of the tainted methods. Components are visited bottom-up, so a component is tainted
+	 * once all its callees are decided: when one of its methods is tainted or one of the components it calls is.
+	 * All the methods of a component call each other, they share its taint.
+	 */
+	private void propagate()
+	{
+		CallGraphCondensation condensation = new CallGraphCondensation(callGraph);
+		boolean[] taintedComponents = new boolean[condensation.getComponentCount()];
+
+		for(int m = tainted.nextSetBit(0); m >= 0; m = tainted.nextSetBit(m + 1))
 		{
-			return false;
+			taintedComponents[condensation.getComponent(m)] = true;
 		}
-		
-		//Filter out suspected metadata(annotation) and k-vpairs to make decision
-		for(String metadata : metadataList)
+
+		for(int component : condensation.getBottomUpOrder())
 		{
-			if((metadata.isEmpty()) ||(metadata==null))
+			if( !taintedComponents[component] )
 			{
-				continue;
-			}
-			
-			if(metadata.matches(".*Column;"))
-			{
-				return true;
-			}
-			else if(metadata.matches(".*ManyToOne;"))
-			{
-				return true;
-			}
-			else if(metadata.matches(".*JoinColumn;"))
-			{
-				return true;
+				for(int callee : condensation.getSuccessors(component))
+				{
+					if( taintedComponents[callee] )
+					{
+						taintedComponents[component] = true;
+						break;
+					}
+				}
 			}
-			else if(metadata.matches(".*Id;"))
+
+			if( taintedComponents[component] )
 			{
-				return true;
+				for(int method : condensation.getMembers(component))
+				{
+					tainted.set(method);
+				}
 			}
-			
-			//TODO what are the rules??
 		}
-		return false;
 	}
-	
-	private boolean hasTargetEdges(String methodName)
+
+	/**
+	 * @param methodId call graph id of the method
+	 */
+	public boolean isTainted(int methodId)
 	{
-		return ((SQLDriver.methodInTableCallGraph(methodName) > 0)?true:false);
+		if( tainted == null )
+		{
+			run();
+		}
+		return tainted.get(methodId);
 	}
-	
-	private String[] getTargetEdges(String methodName)
+
+	private static boolean isSuspectedAnnotation(String metadata)
 	{
-		return (SQLDriver.getTargetEdgeNamesForMethod(methodName)).split(",");
+		if( (metadata == null) || metadata.isEmpty() )
+		{
+			return false;
+		}
+
+		//Filter out suspected metadata(annotation) to make decision
+		if(metadata.matches(".*Column;"))
+		{
+			return true;
+		}
+		else if(metadata.matches(".*ManyToOne;"))
+		{
+			return true;
+		}
+		else if(metadata.matches(".*JoinColumn;"))
+		{
+			return true;
+		}
+		else if(metadata.matches(".*Id;"))
+		{
+			return true;
+		}
+
+		//TODO what are the rules??
+		return false;
 	}
 }
@@ -1,8 +1,8 @@
 package main.java.orm.detector.antipattern;
 
-import java.util.ArrayList;
-
-import main.java.orm.detector.persistence.SQLDriver;
+import main.java.orm.detector.analyzer.callgraph.CallGraphIndex;
+import main.java.orm.detector.analyzer.taint.TaintAnalysisComponent;
+import main.java.orm.detector.logger.Console;
 
 public class AntipatternDetector 
 {
@@ -10,23 +10,17 @@ public class AntipatternDetector
 	{
 		//if current  = previous skip
 		
+		CallGraphIndex callGraph = CallGraphIndex.load();
+		TaintAnalysisComponent taint = new TaintAnalysisComponent(callGraph);
 		
-		ArrayList<String> source_targetEntry= new ArrayList<String>();
-		
-		source_targetEntry = SQLDriver.getLoopCallGraphEntries();
-		
-		if(!source_targetEntry.isEmpty())
+		int counter = 0;
+		for(int source = 0; source < callGraph.getMethodCount(); source++)
 		{
-			for(int i = 0; i < source_targetEntry.size(); i ++)
+			for(int target : callGraph.getTargetsCalledInLoop(source))
 			{
-				String[] piece = (source_targetEntry.get(i)).split("_");
-				
-				String source = piece[0];
-				String target = piece[1];
-				
-				if(SQLDriver.checkMethodTaintedStatus(source) || SQLDriver.checkMethodTaintedStatus(target) )
+				if( taint.isTainted(source) || taint.isTainted(target) )
 				{
-					System.out.println("("+(i+1)+")"+"METHOD: "+target+" is antipattern! with source: "+source);
+					Console.info("("+(++counter)+")"+"METHOD: "+callGraph.getMethodName(target)+" is antipattern! with source: "+callGraph.getMethodName(source));
 				}
 			}
 		}
@@ -1,11 +1,18 @@
 package main.java.orm.detector.antipattern;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Set;
 
+import main.java.orm.detector.analyzer.callgraph.CallGraphIndex;
+import main.java.orm.detector.events.AnalysisEvent;
+import main.java.orm.detector.logger.Console;
 import main.java.orm.detector.logger.Logger;
+import main.java.orm.detector.metrics.Metrics;
+import main.java.orm.detector.metrics.PhaseMetrics;
+import main.java.orm.detector.metrics.Stopwatch;
 import main.java.orm.detector.persistence.SQLDriver;
 import main.java.orm.detector.persistence.vo.EagerlyMappedEntitiesTuple;
 
@@ -20,12 +27,19 @@ public class EDAntipatternDetector
 {
 	private ArrayList<EagerlyMappedEntitiesTuple> relatedEntities = new ArrayList<EagerlyMappedEntitiesTuple>();
 	private Set<String> antipatternsSet = new HashSet<String>();
+	private CallGraphIndex callGraph;
 	
 	public void run()
 	{
-		System.out.println("INFO: Starting Excessive Data Antipattern Analysis...");
+		Stopwatch stopwatch = Stopwatch.start();
+		AnalysisEvent event = new AnalysisEvent();
+		event.begin();
+		Console.info("INFO: Starting Excessive Data Antipattern Analysis...");
 		Logger.log("INFO: Starting Excessive Data Antipattern Analysis...");
 		
+		//Load the call graph once, every lookup of the analysis is answered in memory
+		this.callGraph = CallGraphIndex.load();
+		
 		//Go through call graph, check all methods who have a method of mapper in their target but not a method of mapped, potential antipattern detected
 		ArrayList<EagerlyMappedEntitiesTuple> eagerlyMappedTuplesList = SQLDriver.getEagerlyMappedEntities();
 		
@@ -49,56 +63,60 @@ public class EDAntipatternDetector
 			counter++;
 		}
 
-		System.out.println("INFO: Ending Excessive Data Antipattern Analysis...");
+		Console.info("INFO: Ending Excessive Data Antipattern Analysis...");
 		Logger.log("INFO: Ending Excessive Data Antipattern Analysis...");
+
+		AnalysisEvent.commit(event, "excessive data", (eagerlyMappedTuplesList == null) ? 0 : eagerlyMappedTuplesList.size(), this.antipatternsSet.size());
+
+		PhaseMetrics detectorMetrics = Metrics.record(Metrics.EXCESSIVE_DATA, stopwatch);
+		detectorMetrics.count("tuples", (eagerlyMappedTuplesList == null) ? 0 : eagerlyMappedTuplesList.size());
+		detectorMetrics.count("antipatterns", this.antipatternsSet.size());
 	}
 	
+	/**
+	 * A method calling the mapper is reported when it also calls a method of another class than the mapped entity,
+	 * i.e. unless all its invocation targets are methods of the mapped entity. Expressed on method ids: the callers
+	 * of the mapper minus the callers whose out-degree equals their number of calls into the mapped entity,
+	 * which only touches the edges of the two classes.
+	 */
 	private void dataFlowAnalysis(EagerlyMappedEntitiesTuple eagerlyMappedTuple)
 	{
-		System.out.println("\n\n\n");
-		System.out.println("Analyzing the tuple: { [Mapper]=> "+ eagerlyMappedTuple.getMapperEntityName() + " [Mapped] => "+ eagerlyMappedTuple.getMappedEntityName()+" }");
+		Console.verbose("\n\n\n");
+		Console.verbose("Analyzing the tuple: { [Mapper]=> "+ eagerlyMappedTuple.getMapperEntityName() + " [Mapped] => "+ eagerlyMappedTuple.getMappedEntityName()+" }");
 		Logger.log("Analyzing the tuple: { [Mapper]=> "+ eagerlyMappedTuple.getMapperEntityName() + " [Mapped] => "+ eagerlyMappedTuple.getMappedEntityName()+" }");
 		
 		// Get all methods originating from the mapper
-		ArrayList<String> sourceMethodsList = SQLDriver.getSourceMethodsOfEntity(eagerlyMappedTuple.getMapperEntityName());
+		int[] sourceMethods = this.callGraph.getSourcesOfClassPrefix(eagerlyMappedTuple.getMapperEntityName());
+		if( sourceMethods.length == 0 )
+		{
+			return;
+		}
 		
-		//Iterate through these methods
-		if(sourceMethodsList.size() > 0)
+		//Number of distinct methods of the mapped entity each method invokes
+		HashMap<Integer, Integer> callsToMapped = new HashMap<Integer, Integer>();
+		for(int mappedMethod : this.callGraph.getMethodsOfClass(eagerlyMappedTuple.getMappedEntityName()))
 		{
-			//System.out.println(" A bunch of Source Methods call a method of: "+eagerlyMappedTuple.getMapperEntityName()
-			//+ " , now checking if : "+ eagerlyMappedTuple.getMappedEntityName() + " is part of the targets of these source");
-			
-			//partial Flag: There exist methods that call the Mapper's getters/setters, these should also call the MappedBy
-			for(int i=0; i < sourceMethodsList.size(); i++)
+			for(int caller : this.callGraph.getSources(mappedMethod))
 			{
-				ArrayList<String> targetMethods = SQLDriver.getTargetMethodsOfSource(sourceMethodsList.get(i));
-				
-				//System.out.println("Checking all targets of source method: "+sourceMethodsList.get(i));
-				
-				//Iterate through the list target method that a source method invokes
-				for(int j=0; j < targetMethods.size(); j++)
-				{
-					if(targetMethods.size() > 0)
-					{
-						String[] pieces = targetMethods.get(j).split(":");
-						
-						//System.out.println("Source method: "+sourceMethodsList.get(i)+ " which called a method from: "+ eagerlyMappedTuple.getMapperEntityName()+" also calls a method from: "+ pieces[0]);
-						
-						if(pieces[0].equals(eagerlyMappedTuple.getMappedEntityName()))
-						{
-							//This is the case where all is good, the target includes calls to the mapped by
-							//System.out.println("since "+ pieces[0] + " matches "+ eagerlyMappedTuple.getMappedEntityName() + "it means that the EAGER link is properly used");
-							//System.out.println("All good, source methods calls both mapper and mappedby in target");
-						}
-						else
-						{
-							this.antipatternsSet.add(sourceMethodsList.get(i)+" of tuple "+"{ [Mapper]=> "+ eagerlyMappedTuple.getMapperEntityName() + " [Mapped] => "+ eagerlyMappedTuple.getMappedEntityName()+" }");
-							System.out.println(" *** ["+j+"] [Potential Excessive Data Antipattern Detected] in method:" + sourceMethodsList.get(i) + " of Entity class: [Entity] => "+ eagerlyMappedTuple.getMapperEntityName()+ " but does not include any invocation to the Mapped Entity [Entity] => "+eagerlyMappedTuple.getMappedEntityName()+" in its invocation targets");
-							Logger.log(" *** ["+j+"] [Potential Excessive Data Antipattern Detected] in method:" + sourceMethodsList.get(i) + " of Entity class: [Entity] => "+ eagerlyMappedTuple.getMapperEntityName()+ " but does not include any invocation to the Mapped Entity [Entity] => "+eagerlyMappedTuple.getMappedEntityName()+" in its invocation targets");
-						}
-					}
-				}
+				Integer calls = callsToMapped.get(caller);
+				callsToMapped.put(caller, (calls == null) ? 1 : calls + 1);
 			}
 		}
+		
+		//partial Flag: There exist methods that call the Mapper's getters/setters, these should also call the MappedBy
+		for(int sourceMethod : sourceMethods)
+		{
+			Integer calls = callsToMapped.get(sourceMethod);
+			if( this.callGraph.getOutDegree(sourceMethod) == ((calls == null) ? 0 : calls.intValue()) )
+			{
+				//All good, every target of the source method belongs to the mapped by
+				continue;
+			}
+			
+			String sourceMethodName = this.callGraph.getMethodName(sourceMethod);
+			this.antipatternsSet.add(sourceMethodName+" of tuple "+"{ [Mapper]=> "+ eagerlyMappedTuple.getMapperEntityName() + " [Mapped] => "+ eagerlyMappedTuple.getMappedEntityName()+" }");
+			Console.info(" *** [Potential Excessive Data Antipattern Detected] in method:" + sourceMethodName + " of Entity class: [Entity] => "+ eagerlyMappedTuple.getMapperEntityName()+ " but does not include any invocation to the Mapped Entity [Entity] => "+eagerlyMappedTuple.getMappedEntityName()+" in its invocation targets");
+			Logger.log(" *** [Potential Excessive Data Antipattern Detected] in method:" + sourceMethodName + " of Entity class: [Entity] => "+ eagerlyMappedTuple.getMapperEntityName()+ " but does not include any invocation to the Mapped Entity [Entity] => "+eagerlyMappedTuple.getMappedEntityName()+" in its invocation targets");
+		}
 	}
 }
@@ -1,42 +1,379 @@
 package main.java.orm.detector.antipattern;
 
+import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
 
+import main.java.orm.detector.analyzer.callgraph.CallGraphCondensation;
+import main.java.orm.detector.analyzer.callgraph.CallGraphIndex;
+import main.java.orm.detector.analyzer.symbol.SymbolTable;
+import main.java.orm.detector.events.AnalysisEvent;
+import main.java.orm.detector.logger.Console;
+import main.java.orm.detector.logger.Logger;
+import main.java.orm.detector.metrics.Metrics;
+import main.java.orm.detector.metrics.PhaseMetrics;
+import main.java.orm.detector.metrics.Stopwatch;
 import main.java.orm.detector.persistence.SQLDriver;
+import main.java.orm.detector.persistence.vo.ClassSupertype;
+import main.java.orm.detector.persistence.vo.TransactionalMethod;
 
-//Nested Transaction Anti-pattern Detector
-public class NTAntipatternDetector 
+/**
+ * Nested Transaction Anti-pattern Detector
+ *
+ * A method running in a transaction (@Transactional, on the method or on its class) that reaches, through a chain
+ * of calls, a method declared with @Transactional(propagation = REQUIRES_NEW) suspends its transaction for a new one,
+ * which is reported as an instance of the anti-pattern (see releases/sdn-requires-new-master).
+ *
+ * Calls to a supertype method are also followed to the methods of the same name and descriptor of the extracted subclasses,
+ * so that calls through interfaces reach their implementations.
+ *
+ * Like Spring's proxies, a class level annotation does not apply to the private and static methods, and a call
+ * from a method of the same class (self-invocation) into a REQUIRES_NEW method does not start a new transaction,
+ * the callee runs in the caller's transaction.
+ *
+ * Reachability is computed once for all the transactional methods: every strongly connected component of the
+ * call graph gets the set (bitset) of REQUIRES_NEW methods it reaches, from the sets of the components it calls.
+ */
+public class NTAntipatternDetector
 {
-	public static void run()
+	private static final String REQUIRES_NEW = "REQUIRES_NEW";
+
+	//Propagations that do not run the method in a transaction
+	private static final Set<String> NON_TRANSACTIONAL_PROPAGATIONS = new HashSet<String>();
+	static
+	{
+		NON_TRANSACTIONAL_PROPAGATIONS.add("NOT_SUPPORTED");
+		NON_TRANSACTIONAL_PROPAGATIONS.add("NEVER");
+		NON_TRANSACTIONAL_PROPAGATIONS.add("SUPPORTS");
+	}
+
+	//Access flags of the methods a class level annotation does not apply to
+	private static final int NOT_PROXIED_FLAGS = Modifier.PRIVATE | Modifier.STATIC;
+
+	private CallGraphIndex callGraph;
+	private CallGraphCondensation condensation;
+	private SymbolTable symbols;
+
+	//Methods running in a transaction and methods starting a new one, by method id
+	private BitSet transactionalMethods = new BitSet();
+	private BitSet requiresNewMethods = new BitSet();
+
+	//REQUIRES_NEW methods numbered densely, bit i of the reachability sets is requiresNewIds[i]
+	private int[] requiresNewIds;
+
+	//Component -> REQUIRES_NEW methods reachable from it through at least one call, null when there are none
+	private BitSet[] reachable;
+
+	private Set<String> antipatternsSet = new LinkedHashSet<String>();
+
+	public void run()
+	{
+		Stopwatch stopwatch = Stopwatch.start();
+		AnalysisEvent event = new AnalysisEvent();
+		event.begin();
+		Console.info("INFO: Starting Nested Transaction Antipattern Analysis...");
+		Logger.log("INFO: Starting Nested Transaction Antipattern Analysis...");
+
+		this.symbols = SymbolTable.getInstance();
+		ArrayList<TransactionalMethod> declaredMethods = SQLDriver.getTransactionalMethods();
+
+		//Methods without calls are not part of the call graph table, they still have to be part of the index
+		for(TransactionalMethod method : declaredMethods)
+		{
+			symbols.internMethod(CallGraphIndex.getClassName(method.getMethodName()), CallGraphIndex.getMemberName(method.getMethodName()), method.getMethodDescriptor());
+		}
+
+		this.callGraph = new CallGraphIndex(withDispatchEdges(CallGraphIndex.toEdgeKeys(SQLDriver.getCallGraphEdges(), symbols)), symbols);
+		this.condensation = new CallGraphCondensation(this.callGraph);
+
+		classifyMethods(declaredMethods);
+		computeReachability();
+
+		//Every transactional method against the REQUIRES_NEW methods of its component's set
+		for(int root = transactionalMethods.nextSetBit(0); root >= 0; root = transactionalMethods.nextSetBit(root + 1))
+		{
+			BitSet reached = reachable[condensation.getComponent(root)];
+			if( reached == null )
+			{
+				continue;
+			}
+
+			for(int i = reached.nextSetBit(0); i >= 0; i = reached.nextSetBit(i + 1))
+			{
+				int target = requiresNewIds[i];
+				if( target == root )
+				{
+					continue;
+				}
+
+				String source = callGraph.getMethodName(root);
+				String chain = toChain(findChain(root, target, i));
+				if( this.antipatternsSet.add(callGraph.getMethodName(target)+" called from transaction "+source) )
+				{
+					Console.info("("+this.antipatternsSet.size()+")"+"METHOD: "+callGraph.getMethodName(target)+" is a nested transaction antipattern! with source: "+source+" through "+chain);
+					Logger.log("("+this.antipatternsSet.size()+")"+"METHOD: "+callGraph.getMethodName(target)+" is a nested transaction antipattern! with source: "+source+" through "+chain);
+				}
+			}
+		}
+
+		Console.info("INFO: Ending Nested Transaction Antipattern Analysis, "+this.antipatternsSet.size()+" reported...");
+		Logger.log("INFO: Ending Nested Transaction Antipattern Analysis, "+this.antipatternsSet.size()+" reported...");
+
+		AnalysisEvent.commit(event, "nested transaction", declaredMethods.size(), this.antipatternsSet.size());
+
+		PhaseMetrics detectorMetrics = Metrics.record(Metrics.NESTED_TRANSACTION, stopwatch);
+		detectorMetrics.count("transactional_methods", declaredMethods.size());
+		detectorMetrics.count("call_graph_methods", this.callGraph.getMethodCount());
+		detectorMetrics.count("antipatterns", this.antipatternsSet.size());
+	}
+
+	public Set<String> getAntipatterns()
+	{
+		return this.antipatternsSet;
+	}
+
+	/**
+	 * Adds an edge from every invoked method to the methods of the same name and descriptor in the subclasses of its class
+	 */
+	private long[] withDispatchEdges(long[] keys)
 	{
-		// Record the annotations information for each method - done in data extraction
-		// find all the methods which are executed in a transaction - done in data extraction
-		/* This is how a transaction declaration is made:
-		* @Transactional
-		* Use the AST data extractor to find all instances of @Transactional
-		* Then use the AST data extractor to find the properties of those
-		* If the property is REQUIRES_NEW check all source and target nodes
-		* If the source or a target node has @Transactional(REQUIRES_NEW)
-		* then it is an anti-pattern
-		*/
+		//Supertype -> classes directly extending or implementing it, by class id
+		HashMap<Integer, List<Integer>> subclasses = new HashMap<Integer, List<Integer>>();
+		for(ClassSupertype supertype : SQLDriver.getClassSupertypes())
+		{
+			int supertypeId = symbols.internClass(supertype.getSupertypeName());
+			List<Integer> classes = subclasses.get(supertypeId);
+			if( classes == null )
+			{
+				classes = new ArrayList<Integer>();
+				subclasses.put(supertypeId, classes);
+			}
+			classes.add(symbols.internClass(supertype.getClassName()));
+		}
+
+		if( subclasses.isEmpty() )
+		{
+			return keys;
+		}
 
-		ArrayList<String> source_targetEntry= new ArrayList<String>();
-		
-		// If there are instance
-		if(!source_targetEntry.isEmpty())
+		long[] allKeys = Arrays.copyOf(keys, keys.length * 2);
+		int keyCount = keys.length;
+		BitSet dispatchedTargets = new BitSet(symbols.getMethodCount());
+		for(long key : keys)
 		{
-			for(int i = 0; i < source_targetEntry.size(); i ++)
+			int target = CallGraphIndex.getEdgeKeyTarget(key);
+			if( dispatchedTargets.get(target) )
 			{
-				String[] piece = (source_targetEntry.get(i)).split("_");
-				
-				String source = piece[0];
-				String target = piece[1];
-				
-				if(SQLDriver.checkMethodTaintedStatus(source) && SQLDriver.checkMethodTaintedStatus(target) )
+				continue;
+			}
+			dispatchedTargets.set(target);
+
+			//Walk the subclasses transitively
+			int memberId = symbols.getMethodMember(target);
+			int descriptorId = symbols.getMethodDescriptor(target);
+			ArrayDeque<Integer> pending = new ArrayDeque<Integer>();
+			HashSet<Integer> visited = new HashSet<Integer>();
+			pending.add(symbols.getMethodClass(target));
+			while( !pending.isEmpty() )
+			{
+				List<Integer> classes = subclasses.get(pending.poll());
+				if( classes == null )
+				{
+					continue;
+				}
+
+				for(int classId : classes)
 				{
-					System.out.println("("+(i+1)+")"+"METHOD: "+target+" is a nested transaction antipattern! with source: "+source);
+					if( !visited.add(classId) )
+					{
+						continue;
+					}
+
+					int implementation = symbols.lookupMethod(classId, memberId, descriptorId);
+					if( implementation != SymbolTable.NOT_FOUND )
+					{
+						if( keyCount == allKeys.length )
+						{
+							allKeys = Arrays.copyOf(allKeys, keyCount * 2);
+						}
+						allKeys[keyCount++] = CallGraphIndex.toEdgeKey(target, implementation, false);
+					}
+					pending.add(classId);
 				}
 			}
 		}
+		return Arrays.copyOf(allKeys, keyCount);
+	}
+
+	/**
+	 * A method annotation overrides the annotation of its class, the query lists method annotations first
+	 */
+	private void classifyMethods(ArrayList<TransactionalMethod> declaredMethods)
+	{
+		BitSet declaredOnMethod = new BitSet();
+		for(TransactionalMethod method : declaredMethods)
+		{
+			int methodId = callGraph.getMethodId(method.getMethodName(), method.getMethodDescriptor());
+			if( methodId < 0 )
+			{
+				continue;
+			}
+
+			if( method.isClassLevel() )
+			{
+				//Constructors, static initializers, private and static methods are not proxied
+				String memberName = CallGraphIndex.getMemberName(method.getMethodName());
+				if( declaredOnMethod.get(methodId) || memberName.equals("<init>") || memberName.equals("<clinit>") || ((method.getAccessFlags() & NOT_PROXIED_FLAGS) != 0) )
+				{
+					continue;
+				}
+			}
+			else
+			{
+				declaredOnMethod.set(methodId);
+			}
+
+			String propagation = method.getPropagation();
+			if( (propagation != null) && propagation.endsWith(REQUIRES_NEW) )
+			{
+				requiresNewMethods.set(methodId);
+			}
+			if( (propagation == null) || !NON_TRANSACTIONAL_PROPAGATIONS.contains(propagation.substring(propagation.lastIndexOf('.') + 1)) )
+			{
+				transactionalMethods.set(methodId);
+			}
+		}
+	}
+
+	/**
+	 * One bottom-up sweep over the components: a component reaches what its callees reach plus the REQUIRES_NEW
+	 * methods its members call through the proxy, i.e. from another class. Inside a recursive component the
+	 * REQUIRES_NEW methods called from another class of the component are reached by all its members.
+	 */
+	private void computeReachability()
+	{
+		requiresNewIds = new int[requiresNewMethods.cardinality()];
+		HashMap<Integer, Integer> requiresNewIndex = new HashMap<Integer, Integer>();
+		for(int m = requiresNewMethods.nextSetBit(0), i = 0; m >= 0; m = requiresNewMethods.nextSetBit(m + 1), i++)
+		{
+			requiresNewIds[i] = m;
+			requiresNewIndex.put(m, i);
+		}
+
+		int componentCount = condensation.getComponentCount();
+		reachable = new BitSet[componentCount];
+		for(int component : condensation.getBottomUpOrder())
+		{
+			BitSet reached = null;
+			for(int callee : condensation.getSuccessors(component))
+			{
+				reached = union(reached, reachable[callee]);
+			}
+
+			for(int method : condensation.getMembers(component))
+			{
+				for(int target : callGraph.getTargets(method))
+				{
+					if( requiresNewMethods.get(target) && startsTransaction(method, target) )
+					{
+						if( reached == null )
+						{
+							reached = new BitSet(requiresNewIds.length);
+						}
+						reached.set(requiresNewIndex.get(target));
+					}
+				}
+			}
+			reachable[component] = reached;
+		}
+	}
+
+	/**
+	 * A call into a REQUIRES_NEW method only goes through the proxy, and starts a new transaction, from another class
+	 */
+	private boolean startsTransaction(int caller, int target)
+	{
+		return symbols.getMethodClass(caller) != symbols.getMethodClass(target);
+	}
+
+	private static BitSet union(BitSet into, BitSet from)
+	{
+		if( from == null )
+		{
+			return into;
+		}
+		if( into == null )
+		{
+			return (BitSet) from.clone();
+		}
+		into.or(from);
+		return into;
+	}
+
+	/**
+	 * One call chain from the source to the target, for the report. The search only enters methods from which
+	 * the target is reachable, so it does not wander off into the rest of the graph.
+	 */
+	private ArrayList<Integer> findChain(int source, int target, int targetBit)
+	{
+		HashMap<Integer, Integer> previous = new HashMap<Integer, Integer>();
+		ArrayDeque<Integer> pending = new ArrayDeque<Integer>();
+		pending.add(source);
+		previous.put(source, source);
+
+		while( !pending.isEmpty() )
+		{
+			int method = pending.poll();
+			for(int callee : callGraph.getTargets(method))
+			{
+				if( previous.containsKey(callee) )
+				{
+					continue;
+				}
+
+				//The chain has to end with a call through the proxy
+				boolean reachesTarget = ((callee == target) && startsTransaction(method, target));
+				BitSet reached = reachable[condensation.getComponent(callee)];
+				if( !reachesTarget && ((reached == null) || !reached.get(targetBit)) )
+				{
+					continue;
+				}
+
+				previous.put(callee, method);
+				if( reachesTarget )
+				{
+					ArrayList<Integer> chain = new ArrayList<Integer>();
+					for(int m = target; m != source; m = previous.get(m))
+					{
+						chain.add(0, m);
+					}
+					chain.add(0, source);
+					return chain;
+				}
+				pending.add(callee);
+			}
+		}
+		return new ArrayList<Integer>();
+	}
+
+	private String toChain(List<Integer> chain)
+	{
+		StringBuilder sb = new StringBuilder();
+		for(int method : chain)
+		{
+			if( sb.length() > 0 )
+			{
+				sb.append(" -> ");
+			}
+			sb.append(callGraph.getMethodName(method));
+		}
+		return sb.toString();
 	}
 }
@@ -1,17 +1,29 @@
 package main.java.orm.detector.antipattern;
 
-import java.io.FileNotFoundException;
-import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Scanner;
 
 import main.java.orm.detector.analyzer.astvisitor.AnnotationVisitor;
+import main.java.orm.detector.events.AnalysisEvent;
+import main.java.orm.detector.logger.Console;
+import main.java.orm.detector.logger.Logger;
+import main.java.orm.detector.metrics.Metrics;
+import main.java.orm.detector.metrics.PhaseMetrics;
+import main.java.orm.detector.metrics.Stopwatch;
+import main.java.orm.detector.schema.SequenceCatalog;
 
 //Sequence Name Mismatch Anti-pattern Detector
 public class SNMAntipatternDetector
-{	
-	public static void run()
+{
+	/**
+	 * @param sequenceCatalog the sequences of the release's sql schema (see SequenceCatalog.load), indexed once
+	 */
+	public static void run(SequenceCatalog sequenceCatalog)
 	{
+		Stopwatch stopwatch = Stopwatch.start();
+		AnalysisEvent event = new AnalysisEvent();
+		event.begin();
+		int antipatterns = 0;
+
 		//Scan the annotations in the source code in order to extract the sequence name in the annotation
 		ArrayList<String> sequence_names = AnnotationVisitor.getSeq();
 		/* This is how a sequence name declaration is made:
@@ -20,72 +32,29 @@ public class SNMAntipatternDetector
 		* Use SQLDriver to retrieve these
 		 */
 		//sequence_names = SQLDriver.getSequenceNames(); //Method to get sequence names
-		
-		//Get the sequence names from the database to compare to
-		//location of the sequence names database file:
-		String sqlPath = "C:/Users/freyjaj93/workspace/soen691/releases/BroadleafCommerce-broadleaf-1.5.3-GA/quick-start/ecommerce-archetype/src/main/resources/archetype-resources/site-war/src/main/resources/sql/load_table_sequences";
-		boolean antipattern = true;
-		String[] arr = null;
-		
+
+		if( sequenceCatalog.size() == 0 )
+		{
+			Console.info("SNMAntipatternDetector: no sequence found in the sql schema!");
+		}
+
 		//for each sequence name seq if there are any sequence names
-		if(!sequence_names.isEmpty())
+		for(String seq : sequence_names)
 		{
-			for(int i = 0; i < sequence_names.size(); i ++)
+			//The sequence name is an anti-pattern unless the schema knows it
+			if( !sequenceCatalog.contains(seq) )
 			{
-				//The sequence name is an anti-pattern until it has been proved otherwise.
-				antipattern = true;
-				
-				String seq = sequence_names.get(i);
-				
-				//Find the corresponding sequence name in load_table_sequences.sql 
-				arr = readDatabase(sqlPath);
-				
-				//Compare to see if there is a mismatch between seq and sql
-				//Make sure words were found in database
-				if(arr == null)
-					System.out.println("load_table_sequences.sql EMPTY!");
-				
-		        for(String sql : arr)
-		        {
-			        //If the sql sequence name matches the java sequence name, it is not an anti-pattern
-			        if(seq == sql) { 
-			            antipattern = false;
-			        }
-		        }
-		        
 				//Maybe display the line of code too
-				if(antipattern)
-					System.out.println("Sequence name: " +seq +" is an anti-pattern!");
+				Console.info("Sequence name: " +seq +" is an anti-pattern!");
+				Logger.log("Sequence name: " +seq +" is an anti-pattern!");
+				antipatterns++;
 			}
-		}		
-	}
-	
-	private static String[] readDatabase(String sqlPath){
-		// String to split lines in database
-		String[] arr = null;
-		Scanner scan = null;
-		
-		try{
-			//Open Database file
-			scan = new Scanner(sqlPath);
-			
-			//Start on the first line of the database
-		    while (scan.hasNextLine()) {
-		        String line = scan.nextLine();
-		        arr = line.split(" ");
-		    } 
-		}catch (Exception e){
-				System.out.println("load_table_sequences.sql NOT FOUND!!");
-		} finally{
-            try{
-				scan.close();
-			}catch (Exception e) {
-				// TODO Auto-generated catch block
-				e.printStackTrace();
-			}
-        }	
-		
-		return arr;
-	}
+		}
 
-}
\ No newline at end of file
+		AnalysisEvent.commit(event, "sequence name mismatch", sequence_names.size(), antipatterns);
+
+		PhaseMetrics detectorMetrics = Metrics.record(Metrics.SEQUENCE_NAME_MISMATCH, stopwatch);
+		detectorMetrics.count("sequence_names", sequence_names.size());
+		detectorMetrics.count("antipatterns", antipatterns);
+	}
+}
@@ -0,0 +1,45 @@
+package main.java.orm.detector.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A run of the taint analysis or of an anti-pattern detector
+ */
+@Name("orm.detector.Analysis")
+@Label("Analysis")
+@Category({"ORM Detector", "Detection"})
+@Description("The taint analysis or an anti-pattern detector, over the facts of the report database")
+@StackTrace(false)
+public class AnalysisEvent extends Event
+{
+	@Label("Analysis")
+	public String analysis;
+
+	@Label("Items")
+	@Description("Methods, tuples or sequence names the analysis went through")
+	public long items;
+
+	@Label("Reported")
+	@Description("Tainted methods or anti-patterns reported")
+	public long reported;
+
+	/**
+	 * Ends the event of an analysis, its fields are only filled in when a flight recording takes it
+	 */
+	public static void commit(AnalysisEvent event, String analysis, long items, long reported)
+	{
+		event.end();
+		if( event.shouldCommit() )
+		{
+			event.analysis = analysis;
+			event.items = items;
+			event.reported = reported;
+			event.commit();
+		}
+	}
+}
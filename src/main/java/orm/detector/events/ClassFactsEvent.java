@@ -0,0 +1,34 @@
+package main.java.orm.detector.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Visiting a parsed class and writing its facts, on the fact sink thread
+ */
+@Name("orm.detector.ClassFacts")
+@Label("Class Facts")
+@Category({"ORM Detector", "Extraction"})
+@Description("The methods, attributes and annotations of a class are visited and written to the database")
+@StackTrace(false)
+public class ClassFactsEvent extends Event
+{
+	@Label("Jar")
+	public String jar;
+
+	@Label("Class")
+	public String className;
+
+	@Label("Class Id")
+	public int classId;
+
+	@Label("Methods")
+	public int methods;
+
+	@Label("Fields")
+	public int fields;
+}
@@ -0,0 +1,34 @@
+package main.java.orm.detector.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Reading, hashing and parsing one class file on a worker thread
+ */
+@Name("orm.detector.ClassParse")
+@Label("Class Parse")
+@Category({"ORM Detector", "Extraction"})
+@Description("A class file is read, hashed, pre-filtered and parsed by BCEL")
+@StackTrace(false)
+public class ClassParseEvent extends Event
+{
+	@Label("Jar")
+	public String jar;
+
+	@Label("Entry")
+	public String entry;
+
+	@Label("Size")
+	@DataAmount
+	public long size;
+
+	@Label("Outcome")
+	@Description("unchanged, prefiltered, out of scope, entity, transactional or skipped")
+	public String outcome;
+}
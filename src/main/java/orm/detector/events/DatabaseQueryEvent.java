@@ -0,0 +1,25 @@
+package main.java.orm.detector.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A query of the report database and the reading of its rows
+ */
+@Name("orm.detector.DatabaseQuery")
+@Label("Database Query")
+@Category({"ORM Detector", "Database"})
+@Description("A query of the report database, from the connection opening to the last row read")
+@StackTrace(false)
+public class DatabaseQueryEvent extends Event
+{
+	@Label("Query")
+	public String query;
+
+	@Label("Rows")
+	public long rows;
+}
@@ -0,0 +1,25 @@
+package main.java.orm.detector.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Rows sent to or committed in the report database
+ */
+@Name("orm.detector.DatabaseWrite")
+@Label("Database Write")
+@Category({"ORM Detector", "Database"})
+@Description("Batched rows flushed or committed, or a bulk update of the report database")
+@StackTrace(false)
+public class DatabaseWriteEvent extends Event
+{
+	@Label("Operation")
+	public String operation;
+
+	@Label("Rows")
+	public long rows;
+}
@@ -0,0 +1,25 @@
+package main.java.orm.detector.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Opening a jar and listing its entries
+ */
+@Name("orm.detector.JarScan")
+@Label("Jar Scan")
+@Category({"ORM Detector", "Extraction"})
+@Description("A jar of the release is mapped and its central directory read")
+@StackTrace(false)
+public class JarScanEvent extends Event
+{
+	@Label("Jar")
+	public String jar;
+
+	@Label("Entries")
+	public int entries;
+}
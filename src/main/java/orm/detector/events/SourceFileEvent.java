@@ -0,0 +1,29 @@
+package main.java.orm.detector.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Parsing and visiting one java file of the release, in batch mode only the visit is timed
+ */
+@Name("orm.detector.SourceFile")
+@Label("Source File")
+@Category({"ORM Detector", "Extraction"})
+@Description("A java file of the release is parsed by JDT and its sequence generators checked")
+@StackTrace(false)
+public class SourceFileEvent extends Event
+{
+	@Label("File")
+	public String file;
+
+	@Label("Findings")
+	public int findings;
+
+	@Label("Batch")
+	@Description("Parsed by a createASTs call, the duration only covers the visit")
+	public boolean batch;
+}
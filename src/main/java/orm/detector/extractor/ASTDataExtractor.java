@@ -7,6 +7,8 @@ import java.io.IOException;
 import main.java.orm.detector.analyzer.astvisitor.ClassVisitor;
 import main.java.orm.detector.analyzer.astvisitor.MethodVisitor;
 import main.java.orm.detector.analyzer.astvisitor.AnnotationVisitor;
+import main.java.orm.detector.analyzer.astvisitor.FusedAstVisitor;
+import main.java.orm.detector.logger.Console;
 import main.java.orm.detector.logger.Logger;
 
 import com.github.javaparser.JavaParser; //Parse Java source code and creates Abstract Syntax Trees.
@@ -44,8 +46,8 @@ public class ASTDataExtractor
 		    		
 		    		try 
 		    		{
-		    			Logger.log("Checking: " + file.getAbsolutePath());
-		    			System.out.println("*** Checking: " + file.getAbsolutePath());
+		    			Logger.log(Logger.Level.DEBUG, "Checking: " + file.getAbsolutePath());
+		    			Console.verbose("*** Checking: " + file.getAbsolutePath());
 		    			fin = new FileInputStream(file.getAbsolutePath());
 		    			
 		    			parse(fin);
@@ -74,14 +76,13 @@ public class ASTDataExtractor
 	            // parse the file
 	            cu = JavaParser.parse(fin);
 	            
-	            // visit and print the methods names
-	            ClassVisitor cv = new ClassVisitor();
-	            MethodVisitor mv = new MethodVisitor();
-	            AnnotationVisitor av = new AnnotationVisitor();
+	            // visit the classes, methods and annotations in a single walk of the tree
+	            FusedAstVisitor visitor = new FusedAstVisitor();
+	            visitor.register(new ClassVisitor());
+	            visitor.register(new MethodVisitor());
+	            visitor.register(new AnnotationVisitor());
 	            
-	            cv.visit(cu,null);
-	            mv.visit(cu, null);
-	            av.visit(cu,null);
+	            visitor.visit(cu, null);
 	        }
 	        catch(Exception e)
 	        {
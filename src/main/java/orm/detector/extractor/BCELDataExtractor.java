@@ -2,135 +2,622 @@ package main.java.orm.detector.extractor;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.Enumeration;
-import java.util.jar.JarEntry;
-import java.util.jar.JarFile;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.bcel.classfile.JavaClass;
 
 import main.java.orm.detector.analyzer.bcelvisitor.ClassVisitor;
+import main.java.orm.detector.extractor.jar.ByteBufferInputStream;
+import main.java.orm.detector.extractor.jar.MappedJarFile;
+import main.java.orm.detector.events.ClassFactsEvent;
+import main.java.orm.detector.events.ClassParseEvent;
+import main.java.orm.detector.events.JarScanEvent;
+import main.java.orm.detector.logger.Console;
 import main.java.orm.detector.logger.Logger;
+import main.java.orm.detector.logger.Progress;
+import main.java.orm.detector.metrics.Metrics;
+import main.java.orm.detector.metrics.PhaseMetrics;
+import main.java.orm.detector.metrics.Stopwatch;
 import main.java.orm.detector.persistence.SQLDriver;
+import main.java.orm.detector.persistence.vo.ClassSource;
 
 import org.apache.bcel.classfile.AnnotationEntry;
-import org.apache.bcel.classfile.Attribute;
 import org.apache.bcel.classfile.ClassParser;
-import org.apache.bcel.classfile.Field;
+import org.apache.bcel.classfile.Method;
 
-public class BCELDataExtractor 
+public class BCELDataExtractor
 {
+	//Number of parsed classes allowed to wait for the fact sink, per worker thread
+	private static final int PENDING_CLASSES_PER_WORKER = 32;
+
+	//Default number of rows written between two commits of the bulk load
+	private static final int DEFAULT_BULK_COMMIT_ROWS = 5000;
+
+	private int workerCount;
+	private int bulkCommitRows;
+
+	//Packages analyzed by default
+	public static final String DEFAULT_PACKAGE_INCLUDES = "org.broadleafcommerce";
+
+	private PackageScopeFilter packageScope = PackageScopeFilter.parse(DEFAULT_PACKAGE_INCLUDES, "");
+
+	//Only re-extract the class files whose content changed since the previous run
+	private boolean incremental = false;
+
+	//Also extract the non-entity classes using @Transactional, for the nested transaction analysis
+	private boolean extractTransactional = false;
+
+	//Class files of the previous run not seen yet by the fact sink, by ClassSource key
+	private Map<String, ClassSource> previousSources = Collections.emptyMap();
+
+	//Classes stored for the jar currently drained by the fact sink
+	private int counter = 0;
+
+	//Class files of the jar currently drained by the fact sink that did not change since the previous run
+	private int unchangedCounter = 0;
+
+	//Class files drained by the fact sink, out of the class files of the package scope in every jar
+	private Progress progress;
+
 	public BCELDataExtractor()
 	{
-		
+		this(1, DEFAULT_BULK_COMMIT_ROWS);
+	}
+
+	/**
+	 * @param workerCount number of threads parsing class files, the facts are always written by the calling thread
+	 * @param bulkCommitRows number of rows after which the fact sink commits, at the end of the current class
+	 */
+	public BCELDataExtractor(int workerCount, int bulkCommitRows)
+	{
+		this.workerCount = Math.max(1, workerCount);
+		this.bulkCommitRows = Math.max(1, bulkCommitRows);
+	}
+
+	/**
+	 * In incremental mode the database of the previous run is kept: class files whose content hash did not change
+	 * are neither parsed nor visited again, the facts of changed and removed class files are retracted.
+	 */
+	public void setIncremental(boolean incremental)
+	{
+		this.incremental = incremental;
+	}
+
+	/**
+	 * When set, the classes annotated with @Transactional or having @Transactional methods are extracted
+	 * as well as the entities, stored with is_entity 0
+	 */
+	public void setExtractTransactionalClasses(boolean extractTransactional)
+	{
+		this.extractTransactional = extractTransactional;
+	}
+
+	/**
+	 * Packages whose classes are extracted, the others are skipped before being read
+	 */
+	public void setPackageScope(PackageScopeFilter packageScope)
+	{
+		this.packageScope = packageScope;
 	}
-	
+
+	/**
+	 * Parses every class of every jar on a pool of workers and hands the results over to the fact sink
+	 * (the calling thread) in jar/entry order, so database ids do not depend on the scheduling of the workers.
+	 */
 	public void process( String jarFilesPath )
 	{
-	   ClassParser cp;
-       try 
-       {
-    	   //User defined database id's, for the sake of simplicity
-    	    int databaseClassID=1;
-    	   
-        	File[] jarsDirectory = new File(jarFilesPath).listFiles();
-        	
-        	for (File jar : jarsDirectory) 
-        	{
-        		if( jar.isDirectory() )
-        		{
-        			continue; //Ignore directories
-        		}
-        		else if( !(jar.getName().toLowerCase().contains(".jar")) )
-        		{
-        			continue; //Ignore non jar files
-        		}
-        		else
-        		{
-        			if (!jar.exists()) 
-	                {
-	                    System.err.println("Jar file " + jar.getName() + " does not exist");
-	                    continue;
-	                }
-        			
-        			@SuppressWarnings("resource")
-					Enumeration<JarEntry> entries = ( new JarFile(jar) ).entries();
-        			
-        			int counter = 0;
-        			
-        			while ( entries.hasMoreElements() ) 
-	                {
-	                    JarEntry entry = entries.nextElement();
-	                    if (entry.isDirectory())
-	                    {
-	                    	continue;
-	                    }
-	                        
-	                    if (!entry.getName().endsWith(".class"))
-	                    {
-	                    	continue;
-	                    }
-	                        
-	                    cp = new ClassParser( jar.getAbsolutePath(), entry.getName() );
-	                    
-	                    // Go through each class
-	                    
-	                    //Check if class is part of org.broadleafcommerce package
-	                    JavaClass javaClassInstance = cp.parse();
-	                    
-	                    String isEntity = "0";
-	                    
-	                    //Ommit the non-broadleaf classes from the calculation
-	                    if(!((javaClassInstance.getPackageName()).matches("org.broadleafcommerce.*")))
-	                    {
-	                    	databaseClassID++;
-	                    	continue;
-	                    }
-	                    
-	                    AnnotationEntry[] annotationEntries = javaClassInstance.getAnnotationEntries();
-	                    for(AnnotationEntry annotation: annotationEntries)
-	                    {
-	                    	if((annotation.toString()).matches(".*javax/persistence/Entity.*"))
-	                    	{
-	                    		Logger.log("Class: "+javaClassInstance.getClassName()+ "is an Entity");
-	                    		isEntity = "1";
-	                    	}
-	                    }
-	                    
-	                    //Omit Non-Entity Classes
-	                    if(Integer.parseInt(isEntity) == 0)
-	                    {
-	                    	Logger.log("Omitting: "+javaClassInstance.getClassName());
-	                    	databaseClassID++;
-	                    	continue;
-	                    }
-	                    
-	                    //Insert Class in Database
-	                    SQLDriver.insertClassRecord(javaClassInstance.getClassName(), javaClassInstance.getPackageName(), isEntity, "");
-	                    
-	                    //Increment ID Counter
-	                    databaseClassID++;
-	                    
-	                    //Get top class id form database...
-	                    
-	                    //Visit Methods and Attributes
-	                    ClassVisitor visitor = new ClassVisitor( javaClassInstance, SQLDriver.getTopClassId() );
-	                    
-	                    visitor.start();
-	                    counter++;
-	                    
-	                    //System.out.println("- Processed class: "+javaClassInstance.getClassName());
-	                    Logger.log("INFO: Processed class: "+javaClassInstance.getClassName());
-	                }
-        			
-        			System.out.println("Processed "+counter+" elements in jar package: "+jar.getAbsolutePath());
-        			Logger.log("Processed "+counter+" elements in jar package: "+jar.getAbsolutePath());
-        		}
-        	}
-        } 
-        catch (IOException e) 
-        {
-            System.err.println("Error while processing jar: " + e.getMessage());
-            e.printStackTrace();
-        }
+		Stopwatch stopwatch = Stopwatch.start();
+		ExecutorService workers = Executors.newFixedThreadPool(this.workerCount);
+		ArrayDeque<PendingEntry> pendingEntries = new ArrayDeque<PendingEntry>();
+		int maxPendingEntries = this.workerCount * PENDING_CLASSES_PER_WORKER;
+		EntityPrefilter prefilter = (this.extractTransactional ? new EntityPrefilter(EntityPrefilter.ENTITY_ANNOTATION, EntityPrefilter.TRANSACTIONAL_ANNOTATION) : new EntityPrefilter(EntityPrefilter.ENTITY_ANNOTATION));
+
+		//All the facts go through a single batched connection
+		SQLDriver.beginBulkLoad(this.bulkCommitRows);
+
+		if( this.incremental )
+		{
+			previousSources = SQLDriver.getClassSources();
+		}
+
+		//Jars mapped by the scan and not yet handed over to the fact sink, which closes them
+		ArrayDeque<ScannedJar> scannedJars = new ArrayDeque<ScannedJar>();
+
+		try
+		{
+			File[] jarsDirectory = new File(jarFilesPath).listFiles();
+
+			//listFiles() gives no ordering guarantee, sort to keep the database ids stable between runs
+			Arrays.sort(jarsDirectory);
+
+			//Every central directory is read before the first parse, so that the progress knows the whole run
+			long classEntries = 0;
+			for (File jar : jarsDirectory)
+			{
+				if( jar.isDirectory() )
+				{
+					continue; //Ignore directories
+				}
+				else if( !(jar.getName().toLowerCase().contains(".jar")) )
+				{
+					continue; //Ignore non jar files
+				}
+				else
+				{
+					if (!jar.exists())
+					{
+						System.err.println("Jar file " + jar.getName() + " does not exist");
+						continue;
+					}
+
+					//The jar is mapped once and shared by the workers, it is closed by its end of jar marker
+					Stopwatch scan = Stopwatch.start();
+					JarScanEvent scanEvent = new JarScanEvent();
+					scanEvent.begin();
+					MappedJarFile jarFile = new MappedJarFile(jar);
+					scanEvent.end();
+					if( scanEvent.shouldCommit() )
+					{
+						scanEvent.jar = jar.getName();
+						scanEvent.entries = jarFile.entries().size();
+						scanEvent.commit();
+					}
+					scannedJars.add(new ScannedJar(jar, jarFile));
+					PhaseMetrics jarMetrics = Metrics.jar(jar.getName());
+					jarMetrics.record(scan);
+					Metrics.phase(Metrics.JAR_SCAN).record(scan);
+					Metrics.phase(Metrics.JAR_SCAN).increment("jars");
+					Metrics.phase(Metrics.JAR_SCAN).count("entries", jarFile.entries().size());
+
+					for (MappedJarFile.Entry entry : jarFile.entries())
+					{
+						if( isClassInScope(entry) )
+						{
+							classEntries++;
+						}
+					}
+				}
+			}
+
+			progress = Console.startProgress("Extracting classes", "classes", classEntries);
+
+			while ( !scannedJars.isEmpty() )
+			{
+				ScannedJar scannedJar = scannedJars.peek();
+				File jar = scannedJar.jar;
+				MappedJarFile jarFile = scannedJar.jarFile;
+				PhaseMetrics jarMetrics = Metrics.jar(jar.getName());
+
+				for (MappedJarFile.Entry entry : jarFile.entries())
+				{
+					//Ommit the classes out of the package scope before any read
+					if( !isClassInScope(entry) )
+					{
+						continue;
+					}
+
+					ClassSource previousSource = previousSources.get(ClassSource.getKey(jar.getName(), entry.getName()));
+					String previousHash = ((previousSource == null) ? null : previousSource.getContentHash());
+					pendingEntries.add(new PendingEntry(jar, jarFile, workers.submit(new ClassParsingTask(jarFile, entry, previousHash, packageScope, prefilter, extractTransactional, jarMetrics))));
+
+					//Keep the workers busy but do not let them run too far ahead of the fact sink
+					while ( pendingEntries.size() >= maxPendingEntries )
+					{
+						sink(pendingEntries.poll());
+					}
+				}
+
+				//End of jar marker, the fact sink closes the jar from now on
+				pendingEntries.add(new PendingEntry(jar, jarFile, null));
+				scannedJars.poll();
+			}
+
+			while ( !pendingEntries.isEmpty() )
+			{
+				sink(pendingEntries.poll());
+			}
+			progress.finish();
+
+			//Whatever was not seen in this run was removed from the jars
+			ArrayList<ClassSource> removedSources = new ArrayList<ClassSource>(previousSources.values());
+			if( !removedSources.isEmpty() )
+			{
+				Console.info("Retracting facts of "+removedSources.size()+" removed class files");
+				Logger.log("Retracting facts of "+removedSources.size()+" removed class files");
+				SQLDriver.retractClassSources(removedSources);
+			}
+		}
+		catch (IOException e)
+		{
+			System.err.println("Error while processing jar: " + e.getMessage());
+			e.printStackTrace();
+		}
+		finally
+		{
+			workers.shutdownNow();
+
+			//Jars left open when the extraction stopped early
+			for(PendingEntry pendingEntry : pendingEntries)
+			{
+				if( pendingEntry.parsedClass == null )
+				{
+					closeJar(pendingEntry.jarFile);
+				}
+			}
+			for(ScannedJar scannedJar : scannedJars)
+			{
+				closeJar(scannedJar.jarFile);
+			}
+
+			SQLDriver.endBulkLoad();
+			Metrics.phase(Metrics.EXTRACTION).record(stopwatch);
+		}
+	}
+
+	/**
+	 * Single fact sink, all the database writes of the extraction happen here and in entry order.
+	 */
+	private void sink(PendingEntry pendingEntry)
+	{
+		if( pendingEntry.parsedClass == null )
+		{
+			closeJar(pendingEntry.jarFile);
+			Console.verbose("Processed "+counter+" elements in jar package: "+pendingEntry.jar.getAbsolutePath()+" ("+unchangedCounter+" unchanged class files skipped)");
+			Logger.log("Processed "+counter+" elements in jar package: "+pendingEntry.jar.getAbsolutePath()+" ("+unchangedCounter+" unchanged class files skipped)");
+			counter = 0;
+			unchangedCounter = 0;
+			return;
+		}
+
+		progress.increment();
+
+		ParsedClass parsedClass;
+		try
+		{
+			parsedClass = pendingEntry.parsedClass.get();
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			return;
+		}
+		catch (ExecutionException e)
+		{
+			System.err.println("Error while parsing class of jar: " + pendingEntry.jar.getName() + " -> " + e.getCause());
+			return;
+		}
+
+		ClassSource previousSource = previousSources.remove(ClassSource.getKey(pendingEntry.jar.getName(), parsedClass.entryName));
+
+		PhaseMetrics jarMetrics = Metrics.jar(pendingEntry.jar.getName());
+
+		//Facts of the previous run are still valid
+		if( parsedClass.unchanged )
+		{
+			unchangedCounter++;
+			jarMetrics.increment("unchanged_classes");
+			return;
+		}
+
+		//The facts of the previous content go in the same transaction as the facts replacing them,
+		//a run stopping in between never leaves both in the database
+		if( previousSource != null )
+		{
+			SQLDriver.retractClassSources(Collections.singletonList(previousSource));
+		}
+
+		JavaClass javaClassInstance = parsedClass.javaClass;
+
+		//Ommit the classes out of the package scope, they are not recorded so that they are read if the package scope changes
+		if( parsedClass.contentHash == null )
+		{
+			return;
+		}
+
+		//Omit Non-Entity Classes, either rejected by the pre-filter or after the full parse
+		if( !parsedClass.isEntity && !parsedClass.isTransactional )
+		{
+			jarMetrics.increment("omitted_classes");
+			if( Logger.isEnabled(Logger.Level.DEBUG) )
+			{
+				Logger.log(Logger.Level.DEBUG, "Omitting: "+((javaClassInstance == null) ? parsedClass.entryName : javaClassInstance.getClassName()));
+			}
+			SQLDriver.insertClassSourceRecord(parsedClass.entryName, pendingEntry.jar.getName(), parsedClass.contentHash, "0");
+			return;
+		}
+
+		if( Logger.isEnabled(Logger.Level.DEBUG) )
+		{
+			Logger.log(Logger.Level.DEBUG, "Class: "+javaClassInstance.getClassName()+ (parsedClass.isEntity ? "is an Entity" : "is Transactional"));
+		}
+
+		//Insert Class in Database
+		int classId = SQLDriver.insertClassRecord(javaClassInstance.getClassName(), javaClassInstance.getPackageName(), (parsedClass.isEntity ? "1" : "0"), "");
+
+		//Visit Methods and Attributes
+		ClassVisitor visitor = new ClassVisitor( javaClassInstance, classId );
+
+		SQLDriver.insertClassSourceRecord(parsedClass.entryName, pendingEntry.jar.getName(), parsedClass.contentHash, Integer.toString(classId));
+		Stopwatch visit = Stopwatch.start();
+		ClassFactsEvent factsEvent = new ClassFactsEvent();
+		factsEvent.begin();
+		visitor.start();
+		factsEvent.end();
+		if( factsEvent.shouldCommit() )
+		{
+			factsEvent.jar = pendingEntry.jar.getName();
+			factsEvent.className = javaClassInstance.getClassName();
+			factsEvent.classId = classId;
+			factsEvent.methods = javaClassInstance.getMethods().length;
+			factsEvent.fields = javaClassInstance.getFields().length;
+			factsEvent.commit();
+		}
+		jarMetrics.record(visit);
+		PhaseMetrics visitMetrics = Metrics.phase(Metrics.METHOD_VISIT);
+		visitMetrics.record(visit);
+		visitMetrics.increment("classes");
+		visitMetrics.count("methods", javaClassInstance.getMethods().length);
+		visitMetrics.count("fields", javaClassInstance.getFields().length);
+		jarMetrics.increment("extracted_classes");
+		counter++;
+
+		if( Logger.isEnabled(Logger.Level.DEBUG) )
+		{
+			Logger.log(Logger.Level.DEBUG, "INFO: Processed class: "+javaClassInstance.getClassName());
+		}
+	}
+
+	/**
+	 * Class file entry of the package scope, decided from the central directory only
+	 */
+	private boolean isClassInScope(MappedJarFile.Entry entry)
+	{
+		return !entry.isDirectory() && entry.getName().endsWith(".class") && packageScope.acceptsEntry(entry.getName());
+	}
+
+	private static void closeJar(MappedJarFile jarFile)
+	{
+		try
+		{
+			jarFile.close();
+		}
+		catch (IOException e)
+		{
+			System.err.println("Error while closing jar: " + jarFile.getName() + " -> " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Hex encoded SHA-1 of a class file, the buffer's position is left untouched
+	 */
+	private static String hash(ByteBuffer content)
+	{
+		try
+		{
+			MessageDigest messageDigest = MessageDigest.getInstance("SHA-1");
+			messageDigest.update(content.duplicate());
+			byte[] digest = messageDigest.digest();
+			StringBuilder hex = new StringBuilder(digest.length * 2);
+			for(byte b : digest)
+			{
+				hex.append(Character.forDigit((b >> 4) & 0xF, 16));
+				hex.append(Character.forDigit(b & 0xF, 16));
+			}
+			return hex.toString();
+		}
+		catch (NoSuchAlgorithmException e)
+		{
+			//Every JRE ships SHA-1
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Reads and hashes one jar entry of the package scope, then parses it and checks whether it is an entity
+	 * (or a transactional class) unless its content is the one of the previous run or the pre-filter rules it out. Runs on the worker threads.
+	 */
+	private static class ClassParsingTask implements Callable<ParsedClass>
+	{
+		private MappedJarFile jarFile;
+		private MappedJarFile.Entry entry;
+		private String previousHash;
+		private PackageScopeFilter packageScope;
+		private EntityPrefilter prefilter;
+		private boolean extractTransactional;
+		private PhaseMetrics jarMetrics;
+
+		public ClassParsingTask(MappedJarFile jarFile, MappedJarFile.Entry entry, String previousHash, PackageScopeFilter packageScope, EntityPrefilter prefilter, boolean extractTransactional, PhaseMetrics jarMetrics)
+		{
+			this.jarFile = jarFile;
+			this.entry = entry;
+			this.previousHash = previousHash;
+			this.packageScope = packageScope;
+			this.prefilter = prefilter;
+			this.extractTransactional = extractTransactional;
+			this.jarMetrics = jarMetrics;
+		}
+
+		@Override
+		public ParsedClass call() throws IOException
+		{
+			Stopwatch parse = Stopwatch.start();
+			try
+			{
+				ClassParseEvent event = new ClassParseEvent();
+				event.begin();
+				ParsedClass parsedClass = parse();
+				event.end();
+				if( event.shouldCommit() )
+				{
+					event.jar = jarFile.getName();
+					event.entry = entry.getName();
+					event.size = entry.getSize();
+					event.outcome = parsedClass.getOutcome();
+					event.commit();
+				}
+				return parsedClass;
+			}
+			finally
+			{
+				jarMetrics.record(parse);
+				Metrics.phase(Metrics.CLASS_PARSE).record(parse);
+			}
+		}
+
+		private ParsedClass parse() throws IOException
+		{
+			PhaseMetrics parseMetrics = Metrics.phase(Metrics.CLASS_PARSE);
+			parseMetrics.increment("entries");
+
+			ByteBuffer content = jarFile.getContent(entry);
+			String contentHash = hash(content);
+			if( contentHash.equals(previousHash) )
+			{
+				parseMetrics.increment("unchanged");
+				return new ParsedClass(entry.getName(), contentHash, true, null, false, false);
+			}
+
+			//Only the classes that may carry the annotations looked for are parsed
+			if( !prefilter.mayMatch(content) )
+			{
+				parseMetrics.increment("prefiltered");
+				return new ParsedClass(entry.getName(), contentHash, false, null, false, false);
+			}
+
+			JavaClass javaClassInstance = ( new ClassParser( new ByteBufferInputStream(content), entry.getName() ) ).parse();
+			parseMetrics.increment("parsed");
+
+			//The entry path may not match the class declared in it
+			if( !packageScope.acceptsPackage(javaClassInstance.getPackageName()) )
+			{
+				return new ParsedClass(entry.getName(), null, false, null, false, false);
+			}
+
+			boolean isEntity = false;
+			AnnotationEntry[] annotationEntries = javaClassInstance.getAnnotationEntries();
+			for(AnnotationEntry annotation: annotationEntries)
+			{
+				if((annotation.toString()).matches(".*javax/persistence/Entity.*"))
+				{
+					isEntity = true;
+				}
+			}
+
+			boolean isTransactional = (extractTransactional && isTransactional(javaClassInstance));
+
+			return new ParsedClass(entry.getName(), contentHash, false, javaClassInstance, isEntity, isTransactional);
+		}
+
+		/**
+		 * @Transactional on the class or on one of its methods
+		 */
+		private static boolean isTransactional(JavaClass javaClassInstance)
+		{
+			for(AnnotationEntry annotation : javaClassInstance.getAnnotationEntries())
+			{
+				if( annotation.getAnnotationType().endsWith(EntityPrefilter.TRANSACTIONAL_ANNOTATION) )
+				{
+					return true;
+				}
+			}
+
+			for(Method method : javaClassInstance.getMethods())
+			{
+				for(AnnotationEntry annotation : method.getAnnotationEntries())
+				{
+					if( annotation.getAnnotationType().endsWith(EntityPrefilter.TRANSACTIONAL_ANNOTATION) )
+					{
+						return true;
+					}
+				}
+			}
+			return false;
+		}
+	}
+
+	private static class ParsedClass
+	{
+		private String entryName;
+		private String contentHash;
+		private boolean unchanged;
+		private JavaClass javaClass;
+		private boolean isEntity;
+		private boolean isTransactional;
+
+		public ParsedClass(String entryName, String contentHash, boolean unchanged, JavaClass javaClass, boolean isEntity, boolean isTransactional)
+		{
+			this.entryName = entryName;
+			this.contentHash = contentHash;
+			this.unchanged = unchanged;
+			this.javaClass = javaClass;
+			this.isEntity = isEntity;
+			this.isTransactional = isTransactional;
+		}
+
+		/**
+		 * What the worker made of the entry, for the profiling events
+		 */
+		public String getOutcome()
+		{
+			if( unchanged )
+			{
+				return "unchanged";
+			}
+			else if( contentHash == null )
+			{
+				return "out of scope";
+			}
+			else if( javaClass == null )
+			{
+				return "prefiltered";
+			}
+			else if( isEntity )
+			{
+				return "entity";
+			}
+			else if( isTransactional )
+			{
+				return "transactional";
+			}
+			return "skipped";
+		}
+	}
+
+	private static class ScannedJar
+	{
+		private File jar;
+		private MappedJarFile jarFile;
+
+		public ScannedJar(File jar, MappedJarFile jarFile)
+		{
+			this.jar = jar;
+			this.jarFile = jarFile;
+		}
+	}
+
+	private static class PendingEntry
+	{
+		private File jar;
+		private MappedJarFile jarFile;
+		private Future<ParsedClass> parsedClass;
+
+		public PendingEntry(File jar, MappedJarFile jarFile, Future<ParsedClass> parsedClass)
+		{
+			this.jar = jar;
+			this.jarFile = jarFile;
+			this.parsedClass = parsedClass;
+		}
 	}
 }
@@ -2,185 +2,556 @@ package main.java.orm.detector.extractor;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveTask;
 
 import org.apache.commons.io.FileUtils;
+import org.eclipse.jdt.core.JavaCore;
 import org.eclipse.jdt.core.dom.AST;
 import org.eclipse.jdt.core.dom.ASTNode;
 import org.eclipse.jdt.core.dom.ASTParser;
 import org.eclipse.jdt.core.dom.ASTVisitor;
-import org.eclipse.jdt.core.dom.AbstractTypeDeclaration;
-import org.eclipse.jdt.core.dom.BodyDeclaration;
 import org.eclipse.jdt.core.dom.CompilationUnit;
-import org.eclipse.jdt.core.dom.FieldDeclaration;
-import org.eclipse.jdt.core.dom.ImportDeclaration;
+import org.eclipse.jdt.core.dom.FileASTRequestor;
+import org.eclipse.jdt.core.dom.IAnnotationBinding;
 import org.eclipse.jdt.core.dom.MethodDeclaration;
 import org.eclipse.jdt.core.dom.NormalAnnotation;
 import org.eclipse.jdt.core.dom.SingleVariableDeclaration;
-import org.eclipse.jdt.core.dom.VariableDeclaration;
 import org.eclipse.jdt.core.dom.VariableDeclarationFragment;
-import org.eclipse.jdt.internal.core.MemberValuePair;
-import org.eclipse.jface.text.BadLocationException;
-import org.eclipse.jface.text.Document;
-import org.eclipse.text.edits.MalformedTreeException;
-import org.eclipse.text.edits.TextEdit;
 
-import main.java.orm.detector.analyzer.FileReader;
+import main.java.orm.detector.events.SourceFileEvent;
+import main.java.orm.detector.logger.Console;
 import main.java.orm.detector.logger.Logger;
+import main.java.orm.detector.logger.Progress;
+import main.java.orm.detector.metrics.Metrics;
+import main.java.orm.detector.metrics.PhaseMetrics;
+import main.java.orm.detector.metrics.Stopwatch;
+import main.java.orm.detector.schema.SequenceCatalog;
 
-
+/**
+ * Source front-end: the java files of the release are found by a parallel directory walk and parsed on a pool of
+ * workers, each worker thread reuses its own ASTParser. The visitors add their findings to a thread-safe collector,
+ * which are reported once all the files are parsed, ordered by file and position so the report does not depend on
+ * the scheduling of the workers.
+ *
+ * In batch mode each worker hands a whole slice of the files to one ASTParser.createASTs call instead of one
+ * createAST per file. In bindings mode the release is parsed by a single createASTs call with binding resolution,
+ * its name environment (the classpath and the source roots of the release) is set up once for all the files, and
+ * annotations are recognized by their resolved type.
+ */
 public class ESTDataExtractor
-{	
-	private static String sql_schema;
-	
-	public ESTDataExtractor(String sql_schema) 
+{
+	//Sequences of the sql schema, indexed once for all the annotations of the release
+	private static SequenceCatalog sequenceCatalog = new SequenceCatalog();
+
+	//A parser is reset after each createAST, every worker thread keeps its own instance
+	private static final ThreadLocal<ASTParser> PARSERS = new ThreadLocal<ASTParser>()
+	{
+		protected ASTParser initialValue()
+		{
+			return ASTParser.newParser(AST.JLS8);
+		}
+	};
+
+	private static final String SEQUENCE_GENERATOR_ANNOTATION = "javax.persistence.SequenceGenerator";
+
+	//Source trees of the maven modules, the parent directory of a file is its root otherwise
+	private static final String[] SOURCE_ROOT_MARKERS = { "/src/main/java/", "/src/test/java/" };
+
+	private int workerCount;
+	private boolean batchParsing = false;
+	private boolean resolveBindings = false;
+	private String[] classpath = new String[0];
+	private SourceFindings findings = new SourceFindings();
+
+	public ESTDataExtractor(String sql_schema)
 	{
-		ESTDataExtractor.sql_schema = sql_schema;
+		this(SequenceCatalog.load(sql_schema));
 	}
-	
-	private void scanFiles(File[] files) 
+
+	public ESTDataExtractor(SequenceCatalog sequenceCatalog)
 	{
-		//Go through every file
-	    for (File file : files) 
-	    {
-	    	System.out.println("Processing "+file.getAbsolutePath());
-	    	//Ignore directories
-	        if (file.isDirectory()) 
-	        {
-	            System.out.println("Directory: " + file.getName());
-	            scanFiles(file.listFiles()); // Calls self, recursively
-	        } 
-	        else 
-	        {
-	        	if( !(file.getName().toLowerCase().contains(".java")) )
-	    		{
-	    			//TODO ... deal with non-java files, ignore them ...
-	        		//System.out.println("ASTDataExtractor::scanFiles() => not a jave file");
-	    		}
-	        	else //Deal with java files
-	        	{
-	        		System.out.println("INFO: Processing file: "+file.getName());
-	        		try 
-	        		{
-						this.processJavaFile(file);
-					} 
-	        		catch (MalformedTreeException e) 
-	        		{
-						e.printStackTrace();
-					} 
-	        		catch (IOException e) 
-	        		{
-						e.printStackTrace();
-					} 
-	        		catch (BadLocationException e) 
-	        		{
-						e.printStackTrace();
-					}
-	        	}
-	        }
-	    }
+		this(sequenceCatalog, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * @param workerCount number of threads walking the directories and parsing the java files
+	 */
+	public ESTDataExtractor(SequenceCatalog sequenceCatalog, int workerCount)
+	{
+		ESTDataExtractor.sequenceCatalog = sequenceCatalog;
+		this.workerCount = Math.max(1, workerCount);
+	}
+
+	/**
+	 * Parses the files of a worker with one createASTs call
+	 */
+	public void setBatchParsing(boolean batchParsing)
+	{
+		this.batchParsing = batchParsing;
 	}
-	
+
+	/**
+	 * Resolves the bindings, the release is then parsed in one batch sharing a single name environment
+	 *
+	 * @param classpath jars and class folders the sources are compiled against (e.g. the jars of jar_path)
+	 */
+	public void setResolveBindings(boolean resolveBindings, String[] classpath)
+	{
+		this.resolveBindings = resolveBindings;
+		this.classpath = ((classpath == null) ? new String[0] : classpath);
+	}
+
 	public void process(String releasepath)
 	{
-		//Get a list of all files in the root directory
-		this.scanFiles(new File(releasepath).listFiles());
+		Stopwatch stopwatch = Stopwatch.start();
+
+		//Find every java file under the release, sorted so that the files are submitted in a stable order
+		ForkJoinPool walkers = new ForkJoinPool(this.workerCount);
+		List<File> javaFiles;
+		try
+		{
+			javaFiles = walkers.invoke(new DirectoryScanTask(new File(releasepath)));
+		}
+		finally
+		{
+			walkers.shutdown();
+		}
+		Collections.sort(javaFiles);
+
+		Console.info("INFO: Parsing "+javaFiles.size()+" java files on "+this.workerCount+" workers");
+		Logger.log("INFO: Parsing "+javaFiles.size()+" java files on "+this.workerCount+" workers");
+
+		//One task per file, per slice of files in batch mode, a single one when the bindings are resolved
+		List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+		Progress progress = Console.startProgress("Parsing sources", "files", javaFiles.size());
+		if( this.resolveBindings )
+		{
+			tasks.add(new BatchParsingTask(javaFiles, this.findings, this.classpath, getSourceRoots(javaFiles), progress));
+		}
+		else if( this.batchParsing )
+		{
+			int sliceSize = (javaFiles.size() + this.workerCount - 1) / this.workerCount;
+			for(int from = 0; from < javaFiles.size(); from += sliceSize)
+			{
+				tasks.add(new BatchParsingTask(javaFiles.subList(from, Math.min(javaFiles.size(), from + sliceSize)), this.findings, null, null, progress));
+			}
+		}
+		else
+		{
+			for(File javaFile : javaFiles)
+			{
+				tasks.add(new FileParsingTask(javaFile, this.findings, progress));
+			}
+		}
+
+		ExecutorService workers = Executors.newFixedThreadPool(this.workerCount);
+		try
+		{
+			List<Future<Void>> parsedFiles = new ArrayList<Future<Void>>(tasks.size());
+			for(Callable<Void> task : tasks)
+			{
+				parsedFiles.add(workers.submit(task));
+			}
+
+			for(int i = 0; i < parsedFiles.size(); i++)
+			{
+				try
+				{
+					parsedFiles.get(i).get();
+				}
+				catch (ExecutionException e)
+				{
+					System.err.println("Error while parsing: " + tasks.get(i) + " -> " + e.getCause());
+				}
+			}
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+		finally
+		{
+			workers.shutdownNow();
+		}
+		progress.finish();
+
+		report();
+
+		PhaseMetrics extractionMetrics = Metrics.phase(Metrics.SOURCE_EXTRACTION);
+		extractionMetrics.record(stopwatch);
+		extractionMetrics.count("files", javaFiles.size());
+	}
+
+	/**
+	 * Prints the findings in file and visit order, the anti-pattern reports are logged as well, the trace of the
+	 * visit is only printed in verbose mode
+	 */
+	private void report()
+	{
+		PhaseMetrics extractionMetrics = Metrics.phase(Metrics.SOURCE_EXTRACTION);
+		for(SourceFinding finding : this.findings.drain())
+		{
+			extractionMetrics.increment("findings");
+			if( finding.isReport() )
+			{
+				extractionMetrics.increment("antipatterns");
+				Console.info(finding.getMessage());
+				Logger.log(finding.getMessage());
+			}
+			else
+			{
+				Console.verbose(finding.getMessage());
+			}
+		}
 	}
-	
+
+	/**
+	 * @param sequenceGeneratorNameValue sequenceName of a @SequenceGenerator, with or without its quotes
+	 * @return true when the sql schema does not know the sequence
+	 */
 	public static boolean isPotentialNameMismatch(String sequenceGeneratorNameValue){
-		String sql_file_content = FileReader.readFile(ESTDataExtractor.sql_schema);
-		boolean antipatternFlag = true;
 		//Strip Quotes
-		sequenceGeneratorNameValue = sequenceGeneratorNameValue.replace("\"", "");
-		
-		// Read line-by-line and apply filters
-    	String[] lines = sql_file_content.split(System.getProperty("line.separator"));
-    	
-    	int linenr = 0;
-    	for(String line : lines)
-    	{
-    		//read line by line
-    		
-    		if(line.matches("(.*)"+sequenceGeneratorNameValue+"(.*)"))
-    		{
-    			Logger.log("[Report] The value: "+sequenceGeneratorNameValue+" has a match in the sql file, no antipattern detected for this value.");
-    			
-    			System.out.println("[Report] The value: "+sequenceGeneratorNameValue+" has a match in the sql file, no antipattern detected for this value.");
-    			antipatternFlag = false;
-    			return false;
-    		}
-    	}
-		
-		return antipatternFlag;
+		sequenceGeneratorNameValue = sequenceGeneratorNameValue.replace("\"", "").trim();
+
+		return !ESTDataExtractor.sequenceCatalog.contains(sequenceGeneratorNameValue);
+	}
+
+	private static void processJavaFile(File file, List<SourceFinding> fileFindings) throws IOException
+	{
+		String source = FileUtils.readFileToString(file);
+		ASTParser parser = PARSERS.get();
+		parser.setKind(ASTParser.K_COMPILATION_UNIT);
+		parser.setSource(source.toCharArray());
+		CompilationUnit unit = (CompilationUnit)parser.createAST(null);
+
+		unit.accept(new FindingsVisitor(file.getAbsolutePath(), unit, fileFindings, false));
+	}
+
+	/**
+	 * Jars of a directory, sorted, for the classpath of the bindings mode
+	 */
+	public static String[] listJars(String directory)
+	{
+		List<String> jars = new ArrayList<String>();
+		File[] files = ((directory == null) ? null : new File(directory).listFiles());
+		if( files != null )
+		{
+			for(File file : files)
+			{
+				if( file.isFile() && file.getName().toLowerCase().endsWith(".jar") )
+				{
+					jars.add(file.getAbsolutePath());
+				}
+			}
+		}
+		Collections.sort(jars);
+		return jars.toArray(new String[jars.size()]);
+	}
+
+	/**
+	 * Source roots of the release for the name environment, derived from the file paths
+	 */
+	private static String[] getSourceRoots(List<File> javaFiles)
+	{
+		LinkedHashSet<String> sourceRoots = new LinkedHashSet<String>();
+		for(File javaFile : javaFiles)
+		{
+			String path = javaFile.getAbsolutePath().replace(File.separatorChar, '/');
+			String sourceRoot = null;
+			for(String marker : SOURCE_ROOT_MARKERS)
+			{
+				int index = path.lastIndexOf(marker);
+				if( index >= 0 )
+				{
+					sourceRoot = path.substring(0, index + marker.length() - 1);
+					break;
+				}
+			}
+			sourceRoots.add((sourceRoot != null) ? sourceRoot : javaFile.getParentFile().getAbsolutePath());
+		}
+		return sourceRoots.toArray(new String[sourceRoots.size()]);
+	}
+
+	/**
+	 * Collects the findings of one file, in visit order
+	 */
+	private static class FindingsVisitor extends ASTVisitor
+	{
+		private String path;
+		private CompilationUnit unit;
+		private List<SourceFinding> fileFindings;
+		private boolean resolveBindings;
+
+		public FindingsVisitor(String path, CompilationUnit unit, List<SourceFinding> fileFindings, boolean resolveBindings)
+		{
+			this.path = path;
+			this.unit = unit;
+			this.fileFindings = fileFindings;
+			this.resolveBindings = resolveBindings;
+		}
+
+		/**
+		 * By its resolved type when the bindings are there, look-alikes of other packages are ignored,
+		 * by its name otherwise
+		 */
+		private boolean isSequenceGenerator(NormalAnnotation node)
+		{
+			if( resolveBindings )
+			{
+				IAnnotationBinding binding = node.resolveAnnotationBinding();
+				if( (binding != null) && (binding.getAnnotationType() != null) )
+				{
+					return SEQUENCE_GENERATOR_ANNOTATION.equals(binding.getAnnotationType().getQualifiedName());
+				}
+			}
+
+			String typeName = node.getTypeName().getFullyQualifiedName();
+			return typeName.equalsIgnoreCase("sequencegenerator") || typeName.equals(SEQUENCE_GENERATOR_ANNOTATION);
+		}
+
+		private void add(ASTNode node, String message, boolean report)
+		{
+			fileFindings.add(new SourceFinding(path, unit.getLineNumber(node.getStartPosition()), fileFindings.size(), message, report));
+		}
+
+		public boolean visit(NormalAnnotation node)
+		{
+			add(node, "Annotation: "+ node.getTypeName().getFullyQualifiedName()+ ":" + unit.getLineNumber(node.getTypeName().getStartPosition()), false);
+
+			if(isSequenceGenerator(node))
+			{
+				//Chop on ,
+				for(Object pair : node.values())
+				{
+					String[] piece = pair.toString().split("=");
+
+					if( piece[0] == null )
+					{
+						break;
+					}
+
+					if(piece[0].trim().equalsIgnoreCase("sequencename"))
+					{
+						if(ESTDataExtractor.isPotentialNameMismatch(piece[1]))
+						{
+							add(node, "[Report] The value: "+piece[1]+" has no match in the sql file, Name Mismatch antipattern detected for this value.", true);
+						}
+						else
+						{
+							add(node, "[Report] The value: "+piece[1].replace("\"", "").trim()+" has a match in the sql file, no antipattern detected for this value.", true);
+						}
+					}
+				}
+			}
+			return false;
+		}
+
+		public boolean visit(VariableDeclarationFragment node)
+		{
+			add(node, "var.declaration"+ node.getName().getFullyQualifiedName()+ ":" + unit.getLineNumber(node.getName().getStartPosition()), false);
+			return false; // do not continue
+		}
+
+		@SuppressWarnings("unchecked")
+		public boolean visit(MethodDeclaration method)
+		{
+			add(method, "method " + method.getName().getFullyQualifiedName(), false);
+			List<SingleVariableDeclaration> params = method.parameters();
+
+			for(SingleVariableDeclaration param: params)
+			{
+				add(param, "param " + param.getName().getFullyQualifiedName(), false);
+			}
+			return false;
+		}
+	}
+
+	/**
+	 * Parses one file and hands its findings over to the collector at once
+	 */
+	private static class FileParsingTask implements Callable<Void>
+	{
+		private File file;
+		private SourceFindings findings;
+		private Progress progress;
+
+		public FileParsingTask(File file, SourceFindings findings, Progress progress)
+		{
+			this.file = file;
+			this.findings = findings;
+			this.progress = progress;
+		}
+
+		public Void call() throws IOException
+		{
+			Stopwatch stopwatch = Stopwatch.start();
+			SourceFileEvent event = new SourceFileEvent();
+			event.begin();
+			List<SourceFinding> fileFindings = new ArrayList<SourceFinding>();
+			processJavaFile(this.file, fileFindings);
+			this.findings.addAll(fileFindings);
+			event.end();
+			if( event.shouldCommit() )
+			{
+				event.file = this.file.getAbsolutePath();
+				event.findings = fileFindings.size();
+				event.commit();
+			}
+			PhaseMetrics parseMetrics = Metrics.phase(Metrics.SOURCE_PARSE);
+			parseMetrics.record(stopwatch);
+			parseMetrics.increment("files");
+			this.progress.increment();
+			return null;
+		}
+
+		public String toString()
+		{
+			return this.file.getAbsolutePath();
+		}
+	}
+
+	/**
+	 * Parses a list of files with one createASTs call, the ASTs are visited as the parser hands them over
+	 */
+	private static class BatchParsingTask implements Callable<Void>
+	{
+		private List<File> files;
+		private SourceFindings findings;
+		private String[] classpath;
+		private String[] sourceRoots;
+		private Progress progress;
+
+		/**
+		 * @param classpath null to parse without bindings
+		 */
+		public BatchParsingTask(List<File> files, SourceFindings findings, String[] classpath, String[] sourceRoots, Progress progress)
+		{
+			this.files = files;
+			this.findings = findings;
+			this.classpath = classpath;
+			this.sourceRoots = sourceRoots;
+			this.progress = progress;
+		}
+
+		public Void call()
+		{
+			Stopwatch stopwatch = Stopwatch.start();
+			final boolean resolveBindings = (this.classpath != null);
+			String[] paths = new String[this.files.size()];
+			String[] encodings = new String[this.files.size()];
+			for(int i = 0; i < paths.length; i++)
+			{
+				paths[i] = this.files.get(i).getAbsolutePath();
+				encodings[i] = "UTF-8";
+			}
+
+			ASTParser parser = PARSERS.get();
+			parser.setKind(ASTParser.K_COMPILATION_UNIT);
+			if( resolveBindings )
+			{
+				Map<String, String> options = JavaCore.getOptions();
+				JavaCore.setComplianceOptions(JavaCore.VERSION_1_8, options);
+				parser.setCompilerOptions(options);
+
+				String[] sourceEncodings = new String[this.sourceRoots.length];
+				for(int i = 0; i < sourceEncodings.length; i++)
+				{
+					sourceEncodings[i] = "UTF-8";
+				}
+				parser.setEnvironment(this.classpath, this.sourceRoots, sourceEncodings, true);
+				parser.setResolveBindings(true);
+				parser.setBindingsRecovery(true);
+			}
+
+			final SourceFindings findings = this.findings;
+			final Progress progress = this.progress;
+			parser.createASTs(paths, encodings, new String[0], new FileASTRequestor()
+			{
+				public void acceptAST(String sourceFilePath, CompilationUnit unit)
+				{
+					SourceFileEvent event = new SourceFileEvent();
+					event.begin();
+					List<SourceFinding> fileFindings = new ArrayList<SourceFinding>();
+					unit.accept(new FindingsVisitor(sourceFilePath, unit, fileFindings, resolveBindings));
+					findings.addAll(fileFindings);
+					event.end();
+					if( event.shouldCommit() )
+					{
+						event.file = sourceFilePath;
+						event.findings = fileFindings.size();
+						event.batch = true;
+						event.commit();
+					}
+					progress.increment();
+				}
+			}, null);
+
+			PhaseMetrics parseMetrics = Metrics.phase(Metrics.SOURCE_PARSE);
+			parseMetrics.record(stopwatch);
+			parseMetrics.count("files", this.files.size());
+			return null;
+		}
+
+		public String toString()
+		{
+			return this.files.size()+" files from "+(this.files.isEmpty() ? "" : this.files.get(0).getAbsolutePath());
+		}
 	}
-	
-	private void  processJavaFile(File file) throws IOException, MalformedTreeException, BadLocationException 
+
+	/**
+	 * Lists the java files under a directory, its sub-directories are walked by forked tasks
+	 */
+	private static class DirectoryScanTask extends RecursiveTask<List<File>>
 	{
-	    String source = FileUtils.readFileToString(file);
-	    Document document = new Document(source);
-	    ASTParser parser = ASTParser.newParser(AST.JLS8);
-	    parser.setSource(document.get().toCharArray());
-	    CompilationUnit unit = (CompilationUnit)parser.createAST(null);
-	    
-	    unit.accept(
-    		new ASTVisitor()
-    		{
-		    	public boolean visit(NormalAnnotation node) 
-		    	{
-		    		System.out.println("Annotation: "+ node.getTypeName().getFullyQualifiedName()+ ":" + unit.getLineNumber(node.getTypeName().getStartPosition()));
-		    		
-		    		if((node.getTypeName().getFullyQualifiedName()).equalsIgnoreCase("sequencegenerator"))
-		    		{
-		    			
-		    			//Chop on ,
-		    			for(Object pair : node.values())
-		    			{
-		    				String[] piece = pair.toString().split("=");
-		    				
-		    				if( piece[0] == null )
-		    				{
-		    					break;
-		    				}
-		    				
-		    				if(piece[0].equalsIgnoreCase("sequencename"))
-		    				{
-		    					if(ESTDataExtractor.isPotentialNameMismatch(piece[1]))
-		    					{
-		    						Logger.log("[Report] The value: "+piece[1]+" has no match in the sql file, Name Mismatch antipattern detected for this value.");
-		    		    			
-		    						System.out.println("[Report] The value: "+piece[1]+" has no match in the sql file, Name Mismatch antipattern detected for this value.");
-		    		    			
-		    					}
-		    				}
-		    			}
-		    		}
-					return false;
-		    	}
-	
-		        public boolean visit(VariableDeclarationFragment node) 
-		        {
-		           // SimpleName name = node.getName();
-		            System.out.println("var.declaration"+ node.getName().getFullyQualifiedName()+ ":" + unit.getLineNumber(node.getName().getStartPosition()));
-		            return false; // do not continue 
-		        }
-	
-		        public boolean visit(MethodDeclaration method) 
-		        {
-		        	System.out.println("method " + method.getName().getFullyQualifiedName());
-		           // System.out.println("method.return " + method.getReturnType2().toString());
-		            List<SingleVariableDeclaration> params = method.parameters();
-	
-		            for(SingleVariableDeclaration param: params) 
-		            {
-		            	System.out.println("param " + param.getName().getFullyQualifiedName());
-		            }
-	
-		           // Block methodBlock = method.getBody();
-		            //String myblock = methodBlock.toString();
-		           // methodVisitor(myblock);
-		            return false;
-		        }
-		    }
-	    );
+		private static final long serialVersionUID = 1L;
+
+		private File directory;
+
+		public DirectoryScanTask(File directory)
+		{
+			this.directory = directory;
+		}
+
+		protected List<File> compute()
+		{
+			List<File> javaFiles = new ArrayList<File>();
+			File[] files = this.directory.listFiles();
+			if( files == null )
+			{
+				return javaFiles;
+			}
+
+			List<DirectoryScanTask> subdirectories = new ArrayList<DirectoryScanTask>();
+			for(File file : files)
+			{
+				if( file.isDirectory() )
+				{
+					DirectoryScanTask subdirectory = new DirectoryScanTask(file);
+					subdirectory.fork();
+					subdirectories.add(subdirectory);
+				}
+				else if( file.getName().toLowerCase().endsWith(".java") )
+				{
+					javaFiles.add(file);
+				}
+			}
+
+			for(DirectoryScanTask subdirectory : subdirectories)
+			{
+				javaFiles.addAll(subdirectory.join());
+			}
+			return javaFiles;
+		}
 	}
 }
@@ -0,0 +1,141 @@
+package main.java.orm.detector.extractor;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * Cheap check run on a jar entry before BCEL parses it. It only rejects classes the full check of the
+ * extraction would reject as well: the annotations the extraction looks for are searched in the raw constant pool,
+ * where the type name of every annotation of the class and of its members is stored as a UTF8 constant.
+ */
+public class EntityPrefilter
+{
+	private static final int MAGIC = 0xCAFEBABE;
+
+	public static final String ENTITY_ANNOTATION = "javax/persistence/Entity";
+
+	//Spring's and JTA's @Transactional
+	public static final String TRANSACTIONAL_ANNOTATION = "/Transactional;";
+
+	//Constant pool tags
+	private static final int CONSTANT_UTF8 = 1;
+	private static final int CONSTANT_INTEGER = 3;
+	private static final int CONSTANT_FLOAT = 4;
+	private static final int CONSTANT_LONG = 5;
+	private static final int CONSTANT_DOUBLE = 6;
+	private static final int CONSTANT_CLASS = 7;
+	private static final int CONSTANT_STRING = 8;
+	private static final int CONSTANT_FIELDREF = 9;
+	private static final int CONSTANT_METHODREF = 10;
+	private static final int CONSTANT_INTERFACE_METHODREF = 11;
+	private static final int CONSTANT_NAME_AND_TYPE = 12;
+	private static final int CONSTANT_METHOD_HANDLE = 15;
+	private static final int CONSTANT_METHOD_TYPE = 16;
+	private static final int CONSTANT_DYNAMIC = 17;
+	private static final int CONSTANT_INVOKE_DYNAMIC = 18;
+	private static final int CONSTANT_MODULE = 19;
+	private static final int CONSTANT_PACKAGE = 20;
+
+	private byte[][] fragments;
+
+	/**
+	 * @param annotationFragments parts of the annotation type names to look for, ENTITY_ANNOTATION for instance
+	 */
+	public EntityPrefilter(String... annotationFragments)
+	{
+		fragments = new byte[annotationFragments.length][];
+		for(int i = 0; i < annotationFragments.length; i++)
+		{
+			fragments[i] = annotationFragments[i].getBytes(Charset.forName("UTF-8"));
+		}
+	}
+
+	/**
+	 * False only when no UTF8 constant of the class contains one of the fragments, in which case none of its
+	 * annotations can be one of the annotations looked for. Malformed or unknown content answers true and is left to BCEL.
+	 */
+	public boolean mayMatch(ByteBuffer classFile)
+	{
+		ByteBuffer in = classFile.duplicate();
+		try
+		{
+			if( in.getInt() != MAGIC )
+			{
+				return true;
+			}
+			in.getInt(); //minor and major version
+
+			int constantCount = in.getShort() & 0xFFFF;
+			for(int i = 1; i < constantCount; i++)
+			{
+				int tag = in.get() & 0xFF;
+				switch( tag )
+				{
+					case CONSTANT_UTF8:
+						int length = in.getShort() & 0xFFFF;
+						for(byte[] fragment : fragments)
+						{
+							if( contains(in, in.position(), length, fragment) )
+							{
+								return true;
+							}
+						}
+						in.position(in.position() + length);
+						break;
+					case CONSTANT_CLASS:
+					case CONSTANT_STRING:
+					case CONSTANT_METHOD_TYPE:
+					case CONSTANT_MODULE:
+					case CONSTANT_PACKAGE:
+						in.position(in.position() + 2);
+						break;
+					case CONSTANT_METHOD_HANDLE:
+						in.position(in.position() + 3);
+						break;
+					case CONSTANT_INTEGER:
+					case CONSTANT_FLOAT:
+					case CONSTANT_FIELDREF:
+					case CONSTANT_METHODREF:
+					case CONSTANT_INTERFACE_METHODREF:
+					case CONSTANT_NAME_AND_TYPE:
+					case CONSTANT_DYNAMIC:
+					case CONSTANT_INVOKE_DYNAMIC:
+						in.position(in.position() + 4);
+						break;
+					case CONSTANT_LONG:
+					case CONSTANT_DOUBLE:
+						//Takes two slots of the pool
+						in.position(in.position() + 8);
+						i++;
+						break;
+					default:
+						return true;
+				}
+			}
+			return false;
+		}
+		catch (RuntimeException e)
+		{
+			//Truncated class file, BufferUnderflowException or IllegalArgumentException
+			return true;
+		}
+	}
+
+	private static boolean contains(ByteBuffer buffer, int offset, int length, byte[] pattern)
+	{
+		int last = offset + length - pattern.length;
+		for(int start = offset; start <= last; start++)
+		{
+			int matched = 0;
+			while( (matched < pattern.length) && (buffer.get(start + matched) == pattern[matched]) )
+			{
+				matched++;
+			}
+			if( matched == pattern.length )
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+}
@@ -0,0 +1,159 @@
+package main.java.orm.detector.extractor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Decides which packages are analyzed, from include and exclude package patterns compiled once into a prefix trie.
+ * A pattern "org.example" covers the package org.example and all its sub-packages (org.example.* is accepted as well),
+ * the most specific matching pattern wins and packages matching no pattern are excluded, unless there are no includes.
+ *
+ * Jar entry names are matched directly, "org/example/Foo.class" is in the package org.example.
+ */
+public class PackageScopeFilter
+{
+	private static final int NO_RULE = 0;
+	private static final int INCLUDE = 1;
+	private static final int EXCLUDE = 2;
+
+	private Node root = new Node();
+	private boolean includeByDefault;
+
+	/**
+	 * @param includes comma separated package patterns, everything is included when empty
+	 * @param excludes comma separated package patterns
+	 */
+	public static PackageScopeFilter parse(String includes, String excludes)
+	{
+		return new PackageScopeFilter(split(includes), split(excludes));
+	}
+
+	public PackageScopeFilter(List<String> includes, List<String> excludes)
+	{
+		includeByDefault = includes.isEmpty();
+		for(String include : includes)
+		{
+			add(include, INCLUDE);
+		}
+
+		//On the same pattern the exclude wins
+		for(String exclude : excludes)
+		{
+			add(exclude, EXCLUDE);
+		}
+	}
+
+	/**
+	 * @param entryName jar entry of a class, path separated by '/'
+	 */
+	public boolean acceptsEntry(String entryName)
+	{
+		return accepts(entryName, entryName.lastIndexOf('/'), '/');
+	}
+
+	/**
+	 * @param packageName package separated by '.'
+	 */
+	public boolean acceptsPackage(String packageName)
+	{
+		return accepts(packageName, packageName.length(), '.');
+	}
+
+	private boolean accepts(String name, int packageEnd, char separator)
+	{
+		//Default package
+		int rule = root.rule;
+		Node node = root;
+		for(int i = 0; (i < packageEnd) && (node != null); i++)
+		{
+			char c = name.charAt(i);
+			node = node.child((c == separator) ? '.' : c);
+
+			//Patterns only match whole package segments
+			if( (node != null) && (node.rule != NO_RULE) && ((i + 1 == packageEnd) || (name.charAt(i + 1) == separator)) )
+			{
+				rule = node.rule;
+			}
+		}
+
+		if( rule == NO_RULE )
+		{
+			return includeByDefault;
+		}
+		return (rule == INCLUDE);
+	}
+
+	private void add(String pattern, int rule)
+	{
+		if( pattern.endsWith(".*") )
+		{
+			pattern = pattern.substring(0, pattern.length() - 2);
+		}
+
+		Node node = root;
+		for(int i = 0; i < pattern.length(); i++)
+		{
+			node = node.addChild(pattern.charAt(i));
+		}
+		node.rule = rule;
+	}
+
+	private static List<String> split(String patterns)
+	{
+		ArrayList<String> values = new ArrayList<String>();
+		if( patterns == null )
+		{
+			return values;
+		}
+
+		for(String pattern : patterns.split(","))
+		{
+			if( !pattern.trim().isEmpty() )
+			{
+				values.add(pattern.trim());
+			}
+		}
+		return values;
+	}
+
+	private static class Node
+	{
+		private static final char[] NO_KEYS = new char[0];
+		private static final Node[] NO_CHILDREN = new Node[0];
+
+		private int rule = NO_RULE;
+
+		//Few children per node, a sorted array beats a map
+		private char[] keys = NO_KEYS;
+		private Node[] children = NO_CHILDREN;
+
+		private Node child(char key)
+		{
+			int index = Arrays.binarySearch(keys, key);
+			return ((index < 0) ? null : children[index]);
+		}
+
+		private Node addChild(char key)
+		{
+			int index = Arrays.binarySearch(keys, key);
+			if( index >= 0 )
+			{
+				return children[index];
+			}
+
+			index = -index - 1;
+			char[] newKeys = new char[keys.length + 1];
+			Node[] newChildren = new Node[children.length + 1];
+			System.arraycopy(keys, 0, newKeys, 0, index);
+			System.arraycopy(children, 0, newChildren, 0, index);
+			System.arraycopy(keys, index, newKeys, index + 1, keys.length - index);
+			System.arraycopy(children, index, newChildren, index + 1, children.length - index);
+			newKeys[index] = key;
+			newChildren[index] = new Node();
+			keys = newKeys;
+			children = newChildren;
+			return newChildren[index];
+		}
+	}
+}
@@ -0,0 +1,56 @@
+package main.java.orm.detector.extractor;
+
+/**
+ * Something a source visitor found in a file, reported once all the files are parsed. The ordinal is the position
+ * of the finding in its file's visit, findings are ordered by file path then ordinal.
+ */
+public class SourceFinding implements Comparable<SourceFinding>
+{
+	private String path;
+	private int line;
+	private int ordinal;
+	private String message;
+	private boolean report;
+
+	/**
+	 * @param report true for the anti-pattern reports, which are logged as well, false for the trace of the visit
+	 */
+	public SourceFinding( String path, int line, int ordinal, String message, boolean report )
+	{
+		this.path = path;
+		this.line = line;
+		this.ordinal = ordinal;
+		this.message = message;
+		this.report = report;
+	}
+
+	public String getPath()
+	{
+		return path;
+	}
+
+	public int getLine()
+	{
+		return line;
+	}
+
+	public String getMessage()
+	{
+		return message;
+	}
+
+	public boolean isReport()
+	{
+		return report;
+	}
+
+	public int compareTo( SourceFinding other )
+	{
+		int byPath = path.compareTo(other.path);
+		if( byPath != 0 )
+		{
+			return byPath;
+		}
+		return (ordinal < other.ordinal) ? -1 : ((ordinal == other.ordinal) ? 0 : 1);
+	}
+}
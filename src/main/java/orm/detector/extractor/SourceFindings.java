@@ -0,0 +1,41 @@
+package main.java.orm.detector.extractor;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Thread-safe collector of the findings of the source visitors. Workers add the findings of a file in one go,
+ * drain() hands them out sorted by file and visit order, whatever order the files were parsed in.
+ */
+public class SourceFindings
+{
+	private ConcurrentLinkedQueue<SourceFinding> findings = new ConcurrentLinkedQueue<SourceFinding>();
+
+	public void add(SourceFinding finding)
+	{
+		findings.add(finding);
+	}
+
+	public void addAll(Collection<SourceFinding> fileFindings)
+	{
+		findings.addAll(fileFindings);
+	}
+
+	/**
+	 * Removes the collected findings, in file path then visit order
+	 */
+	public List<SourceFinding> drain()
+	{
+		List<SourceFinding> drained = new ArrayList<SourceFinding>();
+		SourceFinding finding;
+		while( (finding = findings.poll()) != null )
+		{
+			drained.add(finding);
+		}
+		Collections.sort(drained);
+		return drained;
+	}
+}
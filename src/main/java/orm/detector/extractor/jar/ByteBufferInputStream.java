@@ -0,0 +1,55 @@
+package main.java.orm.detector.extractor.jar;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * InputStream over the remaining bytes of a buffer, reads do not copy anything but the requested bytes.
+ * The buffer's position moves with the stream, pass a duplicate to keep the original untouched.
+ */
+public class ByteBufferInputStream extends InputStream
+{
+	private ByteBuffer buffer;
+
+	public ByteBufferInputStream(ByteBuffer buffer)
+	{
+		this.buffer = buffer;
+	}
+
+	@Override
+	public int read()
+	{
+		return (buffer.hasRemaining() ? (buffer.get() & 0xFF) : -1);
+	}
+
+	@Override
+	public int read(byte[] bytes, int offset, int length)
+	{
+		if( length == 0 )
+		{
+			return 0;
+		}
+		if( !buffer.hasRemaining() )
+		{
+			return -1;
+		}
+
+		int count = Math.min(length, buffer.remaining());
+		buffer.get(bytes, offset, count);
+		return count;
+	}
+
+	@Override
+	public long skip(long count)
+	{
+		int skipped = (int) Math.max(0, Math.min(count, buffer.remaining()));
+		buffer.position(buffer.position() + skipped);
+		return skipped;
+	}
+
+	@Override
+	public int available()
+	{
+		return buffer.remaining();
+	}
+}
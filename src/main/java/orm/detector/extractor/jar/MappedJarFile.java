@@ -0,0 +1,310 @@
+package main.java.orm.detector.extractor.jar;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * Read-only jar mapped in memory once: the central directory is indexed when the jar is opened and the content
+ * of an entry is served from the mapping, without re-opening the file or going through a stream per entry.
+ * Stored entries are returned as slices of the mapping, deflated entries are inflated into a single array.
+ *
+ * Safe for concurrent reads once opened. Zip64 jars (over 65535 entries or 4GB) are not supported.
+ */
+public class MappedJarFile implements Closeable
+{
+	private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+	private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+	private static final int END_OF_CENTRAL_DIRECTORY_SIGNATURE = 0x06054b50;
+
+	private static final int LOCAL_HEADER_SIZE = 30;
+	private static final int CENTRAL_HEADER_SIZE = 46;
+	private static final int END_OF_CENTRAL_DIRECTORY_SIZE = 22;
+	private static final int MAX_COMMENT_SIZE = 0xFFFF;
+
+	private static final int METHOD_STORED = 0;
+	private static final int METHOD_DEFLATED = 8;
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private File file;
+	private FileChannel channel;
+
+	//Never read through its own position, only through absolute gets and duplicates
+	private MappedByteBuffer mapping;
+
+	private List<Entry> entries;
+
+	public MappedJarFile(File file) throws IOException
+	{
+		this.file = file;
+
+		RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+		try
+		{
+			channel = randomAccessFile.getChannel();
+			if( channel.size() > Integer.MAX_VALUE )
+			{
+				throw new ZipException("Jar too large to be mapped: " + file.getName());
+			}
+
+			mapping = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			mapping.order(ByteOrder.LITTLE_ENDIAN);
+			entries = Collections.unmodifiableList(readCentralDirectory());
+		}
+		catch (IOException e)
+		{
+			randomAccessFile.close();
+			throw e;
+		}
+	}
+
+	public String getName()
+	{
+		return file.getPath();
+	}
+
+	/**
+	 * Entries in central directory order
+	 */
+	public List<Entry> entries()
+	{
+		return entries;
+	}
+
+	/**
+	 * Uncompressed content of the entry, positioned at its first byte.
+	 * Each call returns an independent buffer, stored entries share the memory of the mapping.
+	 */
+	public ByteBuffer getContent(Entry entry) throws IOException
+	{
+		ByteBuffer data = slice(getDataOffset(entry), entry.compressedSize);
+
+		if( entry.method == METHOD_STORED )
+		{
+			return data;
+		}
+		else if( entry.method == METHOD_DEFLATED )
+		{
+			return ByteBuffer.wrap(inflate(data, entry)).asReadOnlyBuffer();
+		}
+		else
+		{
+			throw new ZipException("Unsupported compression method " + entry.method + " for entry " + entry.name + " of " + file.getName());
+		}
+	}
+
+	/**
+	 * Closes the file, the mapping itself is released by the garbage collector.
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		channel.close();
+	}
+
+	private List<Entry> readCentralDirectory() throws IOException
+	{
+		int end = findEndOfCentralDirectory();
+		int entryCount = u2(end + 10);
+		long directorySize = u4(end + 12);
+		long directoryOffset = u4(end + 16);
+
+		if( (entryCount == 0xFFFF) || (directorySize == 0xFFFFFFFFL) || (directoryOffset == 0xFFFFFFFFL) )
+		{
+			throw new ZipException("Zip64 jars are not supported: " + file.getName());
+		}
+		if( directoryOffset + directorySize > end )
+		{
+			throw new ZipException("Invalid central directory in " + file.getName());
+		}
+
+		ArrayList<Entry> centralEntries = new ArrayList<Entry>(entryCount);
+		int position = (int) directoryOffset;
+		for(int i = 0; i < entryCount; i++)
+		{
+			if( (position + CENTRAL_HEADER_SIZE > end) || (mapping.getInt(position) != CENTRAL_HEADER_SIGNATURE) )
+			{
+				throw new ZipException("Invalid central directory header " + i + " in " + file.getName());
+			}
+
+			int method = u2(position + 10);
+			long compressedSize = u4(position + 20);
+			long uncompressedSize = u4(position + 24);
+			int nameLength = u2(position + 28);
+			int extraLength = u2(position + 30);
+			int commentLength = u2(position + 32);
+			long localHeaderOffset = u4(position + 42);
+
+			byte[] name = new byte[nameLength];
+			ByteBuffer nameBytes = mapping.duplicate();
+			nameBytes.position(position + CENTRAL_HEADER_SIZE);
+			nameBytes.get(name);
+
+			if( (localHeaderOffset + LOCAL_HEADER_SIZE > directoryOffset) || (uncompressedSize > Integer.MAX_VALUE) )
+			{
+				throw new ZipException("Invalid entry " + new String(name, UTF8) + " in " + file.getName());
+			}
+
+			centralEntries.add(new Entry(new String(name, UTF8), method, (int) compressedSize, (int) uncompressedSize, (int) localHeaderOffset));
+			position += CENTRAL_HEADER_SIZE + nameLength + extraLength + commentLength;
+		}
+		return centralEntries;
+	}
+
+	/**
+	 * The end of central directory record is at the end of the file, followed by a comment of up to 64KB
+	 */
+	private int findEndOfCentralDirectory() throws ZipException
+	{
+		int last = mapping.capacity() - END_OF_CENTRAL_DIRECTORY_SIZE;
+		int first = Math.max(0, last - MAX_COMMENT_SIZE);
+		for(int position = last; position >= first; position--)
+		{
+			if( (mapping.getInt(position) == END_OF_CENTRAL_DIRECTORY_SIGNATURE) && (position + END_OF_CENTRAL_DIRECTORY_SIZE + u2(position + 20) == mapping.capacity()) )
+			{
+				return position;
+			}
+		}
+		throw new ZipException("Not a jar file: " + file.getName());
+	}
+
+	/**
+	 * The local header repeats the name but may have a different extra field, its length is read from there
+	 */
+	private int getDataOffset(Entry entry) throws ZipException
+	{
+		int header = entry.localHeaderOffset;
+		if( mapping.getInt(header) != LOCAL_HEADER_SIGNATURE )
+		{
+			throw new ZipException("Invalid local header for entry " + entry.name + " of " + file.getName());
+		}
+
+		int dataOffset = header + LOCAL_HEADER_SIZE + u2(header + 26) + u2(header + 28);
+		if( (long) dataOffset + entry.compressedSize > mapping.capacity() )
+		{
+			throw new ZipException("Truncated entry " + entry.name + " of " + file.getName());
+		}
+		return dataOffset;
+	}
+
+	private ByteBuffer slice(int offset, int length)
+	{
+		ByteBuffer data = mapping.duplicate();
+		data.position(offset);
+		data.limit(offset + length);
+		return data.slice().asReadOnlyBuffer();
+	}
+
+	private byte[] inflate(ByteBuffer data, Entry entry) throws ZipException
+	{
+		byte[] content = new byte[entry.uncompressedSize];
+		byte[] input = new byte[Math.min(Math.max(data.remaining(), 1), 8192)];
+		int length = 0;
+		boolean endOfInput = false;
+
+		Inflater inflater = new Inflater(true);
+		try
+		{
+			while( !inflater.finished() && (length < content.length) )
+			{
+				if( inflater.needsInput() )
+				{
+					if( endOfInput )
+					{
+						throw new ZipException("Truncated entry " + entry.name + " of " + file.getName());
+					}
+
+					int count = Math.min(input.length, data.remaining());
+					if( count == 0 )
+					{
+						//Raw deflate streams may need one extra byte to finish, as in java.util.zip.ZipFile
+						input[0] = 0;
+						count = 1;
+						endOfInput = true;
+					}
+					else
+					{
+						data.get(input, 0, count);
+					}
+					inflater.setInput(input, 0, count);
+				}
+
+				length += inflater.inflate(content, length, content.length - length);
+				if( inflater.needsDictionary() )
+				{
+					throw new ZipException("Invalid deflated entry " + entry.name + " of " + file.getName());
+				}
+			}
+		}
+		catch (DataFormatException e)
+		{
+			throw new ZipException("Invalid deflated entry " + entry.name + " of " + file.getName() + ": " + e.getMessage());
+		}
+		finally
+		{
+			inflater.end();
+		}
+
+		if( length != content.length )
+		{
+			throw new ZipException("Size mismatch for entry " + entry.name + " of " + file.getName());
+		}
+		return content;
+	}
+
+	private int u2(int position)
+	{
+		return mapping.getShort(position) & 0xFFFF;
+	}
+
+	private long u4(int position)
+	{
+		return mapping.getInt(position) & 0xFFFFFFFFL;
+	}
+
+	public static class Entry
+	{
+		private String name;
+		private int method;
+		private int compressedSize;
+		private int uncompressedSize;
+		private int localHeaderOffset;
+
+		private Entry(String name, int method, int compressedSize, int uncompressedSize, int localHeaderOffset)
+		{
+			this.name = name;
+			this.method = method;
+			this.compressedSize = compressedSize;
+			this.uncompressedSize = uncompressedSize;
+			this.localHeaderOffset = localHeaderOffset;
+		}
+
+		public String getName()
+		{
+			return name;
+		}
+
+		public boolean isDirectory()
+		{
+			return name.endsWith("/");
+		}
+
+		public int getSize()
+		{
+			return uncompressedSize;
+		}
+	}
+}
@@ -0,0 +1,113 @@
+package main.java.orm.detector.logger;
+
+/**
+ * Console reporting channel with verbosity levels. Phase messages and reports are NORMAL, the per class, method,
+ * annotation and finding traces are VERBOSE and raw dumps (file contents) are DEBUG, so that the default run does
+ * not spend its time writing to the terminal. Progress lines are rendered by Progress, at most a few times per second.
+ */
+public class Console
+{
+	public enum Verbosity { QUIET, NORMAL, VERBOSE, DEBUG }
+
+	private static volatile Verbosity verbosity = Verbosity.NORMAL;
+
+	//Progress currently drawn on the last line of the terminal, ended by a line break before anything else is printed
+	private static Progress activeProgress;
+
+	public static void setVerbosity(Verbosity level)
+	{
+		verbosity = level;
+	}
+
+	/**
+	 * True when messages of the level are printed, to skip building expensive messages
+	 */
+	public static boolean isEnabled(Verbosity level)
+	{
+		return (level != Verbosity.QUIET) && (level.ordinal() <= verbosity.ordinal());
+	}
+
+	/**
+	 * Phases, summaries and anti-pattern reports
+	 */
+	public static void info(String message)
+	{
+		print(Verbosity.NORMAL, message);
+	}
+
+	/**
+	 * Per item traces of the extraction and the analyses
+	 */
+	public static void verbose(String message)
+	{
+		print(Verbosity.VERBOSE, message);
+	}
+
+	/**
+	 * Raw dumps
+	 */
+	public static void debug(String message)
+	{
+		print(Verbosity.DEBUG, message);
+	}
+
+	/**
+	 * Always printed, on the error stream
+	 */
+	public static synchronized void error(String message)
+	{
+		clearProgress();
+		System.err.println(message);
+	}
+
+	/**
+	 * Starts a progress line, only one is drawn at a time
+	 *
+	 * @param total number of items expected, -1 when unknown (no ETA then)
+	 */
+	public static Progress startProgress(String label, String unit, long total)
+	{
+		return new Progress(label, unit, total, isEnabled(Verbosity.NORMAL));
+	}
+
+	private static void print(Verbosity level, String message)
+	{
+		if( !isEnabled(level) )
+		{
+			return;
+		}
+
+		synchronized( Console.class )
+		{
+			clearProgress();
+			System.out.println(message);
+		}
+	}
+
+	/**
+	 * Draws a progress line, on a terminal it is redrawn in place, otherwise it is printed as a line of its own
+	 */
+	static synchronized void drawProgress(Progress progress, String line, boolean last)
+	{
+		if( System.console() == null )
+		{
+			System.out.println(line);
+			return;
+		}
+
+		System.out.print("\r"+line+(last ? System.lineSeparator() : ""));
+		System.out.flush();
+		activeProgress = (last ? null : progress);
+	}
+
+	private static void clearProgress()
+	{
+		if( activeProgress == null )
+		{
+			return;
+		}
+
+		System.out.print(System.lineSeparator());
+		activeProgress = null;
+	}
+}
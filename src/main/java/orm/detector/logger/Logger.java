@@ -1,25 +1,289 @@
 package main.java.orm.detector.logger;
 
 import java.io.BufferedWriter;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
-public class Logger 
+/**
+ * Asynchronous file logger. log() only puts the message in a bounded queue, a daemon thread writes the queued
+ * messages in batches to a single open channel on the file at PATH. When the queue is full a DEBUG message is
+ * dropped (and counted) rather than blocking the analysis thread, the other levels wait for the flusher to make room.
+ * The queue is drained when the JVM exits.
+ *
+ * Messages below the level threshold (INFO by default) are discarded before they are queued, the per-item traces
+ * of the extraction are logged at DEBUG.
+ */
+public class Logger
 {
+	public enum Level { DEBUG, INFO, WARN, ERROR }
+
 	public static String PATH="";
-    public static void log(String input) 
-    {
-        try 
-        {
-            FileWriter fstream = new FileWriter(PATH, true);
-            BufferedWriter out = new BufferedWriter(fstream);
-            out.write(input);
-            out.newLine();
-            out.close();
-        } 
-        catch (IOException e) 
-        {
-            e.printStackTrace();
-        }
-    }
-}
\ No newline at end of file
+
+	private static final int DEFAULT_CAPACITY = 1 << 16;
+	private static final int MAX_BATCH_SIZE = 4096;
+	private static final long FLUSH_INTERVAL_MILLIS = 200;
+
+	private static volatile Level threshold = Level.INFO;
+	private static volatile ArrayBlockingQueue<String> queue = new ArrayBlockingQueue<String>(DEFAULT_CAPACITY);
+	private static final AtomicLong dropped = new AtomicLong();
+
+	private static Thread flusher;
+	private static volatile boolean running = false;
+	private static boolean hookRegistered = false;
+
+	//Guards the writer, the flusher and flush() may both write
+	private static final Object writeLock = new Object();
+	private static Writer writer;
+	private static String writerPath;
+
+	public static void log(String input)
+	{
+		log(Level.INFO, input);
+	}
+
+	public static void log(Level level, String input)
+	{
+		if( level.ordinal() < threshold.ordinal() )
+		{
+			return;
+		}
+
+		if( !running )
+		{
+			start();
+		}
+
+		if( queue.offer(input) )
+		{
+			return;
+		}
+
+		//A burst of traces is dropped, the other messages (reports) wait for room
+		if( level == Level.DEBUG )
+		{
+			dropped.incrementAndGet();
+			return;
+		}
+
+		try
+		{
+			queue.put(input);
+		}
+		catch (InterruptedException e)
+		{
+			dropped.incrementAndGet();
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * True when messages of the level are written, to skip building expensive messages
+	 */
+	public static boolean isEnabled(Level level)
+	{
+		return level.ordinal() >= threshold.ordinal();
+	}
+
+	public static void setLevel(Level level)
+	{
+		threshold = level;
+	}
+
+	/**
+	 * Size of the message queue, only taken into account before the first message is logged
+	 */
+	public static synchronized void setCapacity(int capacity)
+	{
+		if( !running && (capacity > 0) )
+		{
+			queue = new ArrayBlockingQueue<String>(capacity);
+		}
+	}
+
+	/**
+	 * Number of DEBUG messages dropped because the queue was full, since the last drop notice was written
+	 */
+	public static long getDroppedCount()
+	{
+		return dropped.get();
+	}
+
+	/**
+	 * Writes every queued message before returning
+	 */
+	public static void flush()
+	{
+		while( writeBatch(queue.poll()) )
+		{
+			//Until the queue is empty
+		}
+	}
+
+	/**
+	 * Stops the flusher, writes the remaining messages and closes the file, later messages start a new flusher
+	 */
+	public static synchronized void shutdown()
+	{
+		if( !running )
+		{
+			return;
+		}
+
+		running = false;
+		try
+		{
+			flusher.join(FLUSH_INTERVAL_MILLIS * 5);
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+		flusher = null;
+
+		flush();
+		synchronized( writeLock )
+		{
+			closeWriter();
+		}
+	}
+
+	private static synchronized void start()
+	{
+		if( running )
+		{
+			return;
+		}
+
+		running = true;
+		flusher = new Thread(new Runnable()
+		{
+			public void run()
+			{
+				while( running )
+				{
+					try
+					{
+						writeBatch(queue.poll(FLUSH_INTERVAL_MILLIS, TimeUnit.MILLISECONDS));
+					}
+					catch (InterruptedException e)
+					{
+						return;
+					}
+				}
+			}
+		}, "logger-flusher");
+		flusher.setDaemon(true);
+		flusher.start();
+
+		//Registered once, drains whatever is left when the program ends
+		if( !hookRegistered )
+		{
+			hookRegistered = true;
+			Runtime.getRuntime().addShutdownHook(new Thread(new Runnable()
+			{
+				public void run()
+				{
+					shutdown();
+				}
+			}, "logger-shutdown"));
+		}
+	}
+
+	/**
+	 * Writes the given message and up to a batch of queued ones, returns false when there was nothing to write
+	 */
+	private static boolean writeBatch(String first)
+	{
+		if( first == null )
+		{
+			return false;
+		}
+
+		synchronized( writeLock )
+		{
+			List<String> batch = new ArrayList<String>(Math.min(MAX_BATCH_SIZE, queue.size() + 1));
+			batch.add(first);
+			queue.drainTo(batch, MAX_BATCH_SIZE - 1);
+
+			try
+			{
+				Writer out = getWriter();
+				if( out == null )
+				{
+					return true;
+				}
+
+				for(String line : batch)
+				{
+					out.write(line);
+					out.write(System.lineSeparator());
+				}
+
+				long droppedMessages = dropped.getAndSet(0);
+				if( droppedMessages > 0 )
+				{
+					out.write("WARN: Logger queue full, "+droppedMessages+" messages dropped"+System.lineSeparator());
+				}
+				out.flush();
+			}
+			catch (IOException e)
+			{
+				e.printStackTrace();
+				closeWriter();
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * The file stays open between batches, it is reopened when PATH changes
+	 */
+	private static Writer getWriter() throws IOException
+	{
+		String path = PATH;
+		if( (path == null) || path.isEmpty() )
+		{
+			return null;
+		}
+
+		if( (writer != null) && path.equals(writerPath) )
+		{
+			return writer;
+		}
+
+		closeWriter();
+		FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+		writer = new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8.newEncoder(), -1), 1 << 16);
+		writerPath = path;
+		return writer;
+	}
+
+	private static void closeWriter()
+	{
+		if( writer == null )
+		{
+			return;
+		}
+
+		try
+		{
+			writer.close();
+		}
+		catch (IOException e)
+		{
+			e.printStackTrace();
+		}
+		writer = null;
+		writerPath = null;
+	}
+}
@@ -0,0 +1,108 @@
+package main.java.orm.detector.logger;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Progress of a phase: items done, rate and ETA. Any thread may add items, the line is redrawn at most every
+ * quarter of a second on a terminal (every few seconds otherwise) by whichever thread crosses the deadline,
+ * the other threads only pay for an atomic increment.
+ */
+public class Progress
+{
+	private static final long TERMINAL_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(250);
+	private static final long LINE_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+	private String label;
+	private String unit;
+	private long total;
+	private boolean enabled;
+	private long intervalNanos;
+	private long startNanos;
+
+	private AtomicLong done = new AtomicLong();
+	private AtomicLong nextDrawNanos;
+
+	Progress(String label, String unit, long total, boolean enabled)
+	{
+		this.label = label;
+		this.unit = unit;
+		this.total = total;
+		this.enabled = enabled;
+		this.intervalNanos = ((System.console() != null) ? TERMINAL_INTERVAL_NANOS : LINE_INTERVAL_NANOS);
+		this.startNanos = System.nanoTime();
+		this.nextDrawNanos = new AtomicLong(this.startNanos + this.intervalNanos);
+	}
+
+	public void increment()
+	{
+		add(1);
+	}
+
+	public void add(long items)
+	{
+		long count = done.addAndGet(items);
+		if( !enabled )
+		{
+			return;
+		}
+
+		long now = System.nanoTime();
+		long next = nextDrawNanos.get();
+		if( (now >= next) && nextDrawNanos.compareAndSet(next, now + intervalNanos) )
+		{
+			Console.drawProgress(this, format(count, now), false);
+		}
+	}
+
+	public long getCount()
+	{
+		return done.get();
+	}
+
+	/**
+	 * Draws the final line: items, elapsed time and average rate
+	 */
+	public void finish()
+	{
+		if( !enabled )
+		{
+			return;
+		}
+
+		long elapsedNanos = System.nanoTime() - startNanos;
+		long count = done.get();
+		Console.drawProgress(this, label+": "+count+" "+unit+" in "+formatDuration(elapsedNanos)+" ("+formatRate(count, elapsedNanos)+" "+unit+"/s)", true);
+	}
+
+	private String format(long count, long now)
+	{
+		long elapsedNanos = now - startNanos;
+		StringBuilder line = new StringBuilder(label).append(": ").append(count);
+		long expected = total;
+		if( expected > 0 )
+		{
+			line.append('/').append(expected);
+		}
+		line.append(' ').append(unit).append(", ").append(formatRate(count, elapsedNanos)).append(' ').append(unit).append("/s");
+
+		if( (expected > 0) && (count > 0) && (count < expected) )
+		{
+			long remainingNanos = (long) (((double) elapsedNanos / count) * (expected - count));
+			line.append(", ETA ").append(formatDuration(remainingNanos));
+		}
+		return line.toString();
+	}
+
+	private static String formatRate(long count, long elapsedNanos)
+	{
+		double seconds = Math.max(elapsedNanos, 1) / 1e9;
+		return String.format("%.1f", count / seconds);
+	}
+
+	private static String formatDuration(long nanos)
+	{
+		long seconds = TimeUnit.NANOSECONDS.toSeconds(nanos);
+		return String.format("%02d:%02d:%02d", seconds / 3600, (seconds / 60) % 60, seconds % 60);
+	}
+}
@@ -0,0 +1,218 @@
+package main.java.orm.detector.metrics;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.json.Json;
+import javax.json.stream.JsonGenerator;
+
+/**
+ * Metrics of a run: one PhaseMetrics per phase (jar scan, class parse, method visit, db write, taint, detectors)
+ * and one per jar, written as a JSON file at the end of the run so that runs on different releases can be compared.
+ * Phases and jars are listed in the order they were first recorded. The extraction phases contain the phases they
+ * drive, the phases run by the workers (class_parse, source_parse) sum the busy time and CPU time of every worker.
+ */
+public class Metrics
+{
+	public static final String EXTRACTION = "extraction";
+	public static final String JAR_SCAN = "jar_scan";
+	public static final String CLASS_PARSE = "class_parse";
+	public static final String METHOD_VISIT = "method_visit";
+	public static final String DB_WRITE = "db_write";
+	public static final String TAINT = "taint";
+	public static final String SCHEMA_PARSE = "schema_parse";
+	public static final String SOURCE_EXTRACTION = "source_extraction";
+	public static final String SOURCE_PARSE = "source_parse";
+	public static final String SEQUENCE_NAME_MISMATCH = "detector.sequence_name_mismatch";
+	public static final String EXCESSIVE_DATA = "detector.excessive_data";
+	public static final String NESTED_TRANSACTION = "detector.nested_transaction";
+
+	private static final Map<String, PhaseMetrics> phases = new LinkedHashMap<String, PhaseMetrics>();
+	private static final Map<String, PhaseMetrics> jars = new LinkedHashMap<String, PhaseMetrics>();
+	private static final Map<String, String> attributes = new LinkedHashMap<String, String>();
+
+	private static Date started = new Date();
+
+	public static synchronized PhaseMetrics phase(String name)
+	{
+		return get(phases, name);
+	}
+
+	/**
+	 * Records a run of the phase measured by the stopwatch, the counts of the run go to the returned metrics
+	 */
+	public static PhaseMetrics record(String name, Stopwatch stopwatch)
+	{
+		PhaseMetrics metrics = phase(name);
+		metrics.record(stopwatch);
+		return metrics;
+	}
+
+	public static synchronized PhaseMetrics jar(String jarName)
+	{
+		return get(jars, jarName);
+	}
+
+	/**
+	 * Describes the run (release, configuration), written as is in the metrics file
+	 */
+	public static synchronized void setAttribute(String key, String value)
+	{
+		attributes.put(key, (value == null) ? "" : value);
+	}
+
+	/**
+	 * Forgets the recorded metrics, the run starts now
+	 */
+	public static synchronized void reset()
+	{
+		phases.clear();
+		jars.clear();
+		attributes.clear();
+		started = new Date();
+	}
+
+	/**
+	 * Writes the metrics of the run, when the path is a directory the file is named after the start of the run
+	 *
+	 * @return the file written, null when it could not be written
+	 */
+	public static synchronized File write(String path)
+	{
+		File file = new File(path);
+		if( file.isDirectory() )
+		{
+			file = new File(file, "metrics-"+(new SimpleDateFormat("yyyyMMdd-HHmmss")).format(started)+".json");
+		}
+
+		Map<String, Object> config = new HashMap<String, Object>();
+		config.put(JsonGenerator.PRETTY_PRINTING, true);
+
+		Writer out = null;
+		try
+		{
+			out = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8);
+			JsonGenerator generator = Json.createGeneratorFactory(config).createGenerator(out);
+			generator.writeStartObject();
+
+			Date ended = new Date();
+			SimpleDateFormat timestamp = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSZ");
+			generator.writeStartObject("run")
+				.write("started", timestamp.format(started))
+				.write("ended", timestamp.format(ended))
+				.write("wall_millis", ended.getTime() - started.getTime())
+				.write("java_version", System.getProperty("java.version"))
+				.write("available_processors", Runtime.getRuntime().availableProcessors());
+			for(Map.Entry<String, String> attribute : attributes.entrySet())
+			{
+				generator.write(attribute.getKey(), attribute.getValue());
+			}
+			generator.writeEnd();
+
+			writeJvm(generator);
+			writePhases(generator, "phases", phases);
+			writePhases(generator, "jars", jars);
+
+			generator.writeEnd();
+			generator.close();
+			out = null;
+			return file;
+		}
+		catch (IOException e)
+		{
+			System.err.println("Metrics::write -> "+e.getMessage());
+			return null;
+		}
+		finally
+		{
+			if( out != null )
+			{
+				try
+				{
+					out.close();
+				}
+				catch (IOException e)
+				{
+					e.printStackTrace();
+				}
+			}
+		}
+	}
+
+	private static PhaseMetrics get(Map<String, PhaseMetrics> metrics, String name)
+	{
+		PhaseMetrics phaseMetrics = metrics.get(name);
+		if( phaseMetrics == null )
+		{
+			phaseMetrics = new PhaseMetrics(name);
+			metrics.put(name, phaseMetrics);
+		}
+		return phaseMetrics;
+	}
+
+	private static void writePhases(JsonGenerator generator, String name, Map<String, PhaseMetrics> metrics)
+	{
+		generator.writeStartArray(name);
+		for(PhaseMetrics phaseMetrics : metrics.values())
+		{
+			generator.writeStartObject()
+				.write("name", phaseMetrics.getName())
+				.write("samples", phaseMetrics.getSamples())
+				.write("wall_nanos", phaseMetrics.getWallNanos())
+				.write("cpu_nanos", phaseMetrics.getCpuNanos())
+				.write("allocated_bytes", phaseMetrics.getAllocatedBytes());
+
+			generator.writeStartObject("counts");
+			for(Map.Entry<String, Long> count : phaseMetrics.getCounts().entrySet())
+			{
+				generator.write(count.getKey(), count.getValue());
+			}
+			generator.writeEnd();
+
+			generator.writeEnd();
+		}
+		generator.writeEnd();
+	}
+
+	/**
+	 * Garbage collections and peak heap of the whole run
+	 */
+	private static void writeJvm(JsonGenerator generator)
+	{
+		long collections = 0;
+		long collectionMillis = 0;
+		for(GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans())
+		{
+			collections += Math.max(0, collector.getCollectionCount());
+			collectionMillis += Math.max(0, collector.getCollectionTime());
+		}
+
+		long peakHeapBytes = 0;
+		for(MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+		{
+			if( (pool.getType() == MemoryType.HEAP) && (pool.getPeakUsage() != null) )
+			{
+				peakHeapBytes += pool.getPeakUsage().getUsed();
+			}
+		}
+
+		generator.writeStartObject("jvm")
+			.write("gc_count", collections)
+			.write("gc_millis", collectionMillis)
+			.write("peak_heap_bytes", peakHeapBytes)
+			.writeEnd();
+	}
+}
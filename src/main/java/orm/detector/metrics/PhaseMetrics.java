@@ -0,0 +1,118 @@
+package main.java.orm.detector.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Totals of a phase (or a jar): wall time, CPU time and allocated bytes summed over the stopwatches recorded
+ * in it, and named item counts. Safe to record into from several threads, the wall time of a phase run by
+ * several workers is then the sum of their busy time.
+ */
+public class PhaseMetrics
+{
+	private String name;
+
+	private AtomicLong samples = new AtomicLong();
+	private AtomicLong wallNanos = new AtomicLong();
+	private AtomicLong cpuNanos = new AtomicLong();
+	private AtomicLong allocatedBytes = new AtomicLong();
+
+	//Set when a stopwatch had no CPU time or allocation measure, the totals are then reported as -1
+	private volatile boolean cpuUnavailable = false;
+	private volatile boolean allocationUnavailable = false;
+
+	private ConcurrentHashMap<String, AtomicLong> counts = new ConcurrentHashMap<String, AtomicLong>();
+
+	PhaseMetrics(String name)
+	{
+		this.name = name;
+	}
+
+	public String getName()
+	{
+		return name;
+	}
+
+	/**
+	 * Adds a stopped stopwatch to the totals
+	 */
+	public void record(Stopwatch stopwatch)
+	{
+		stopwatch.stop();
+		samples.incrementAndGet();
+		wallNanos.addAndGet(stopwatch.getWallNanos());
+
+		if( stopwatch.getCpuNanos() < 0 )
+		{
+			cpuUnavailable = true;
+		}
+		else
+		{
+			cpuNanos.addAndGet(stopwatch.getCpuNanos());
+		}
+
+		if( stopwatch.getAllocatedBytes() < 0 )
+		{
+			allocationUnavailable = true;
+		}
+		else
+		{
+			allocatedBytes.addAndGet(stopwatch.getAllocatedBytes());
+		}
+	}
+
+	public void count(String item, long amount)
+	{
+		AtomicLong counter = counts.get(item);
+		if( counter == null )
+		{
+			AtomicLong created = new AtomicLong();
+			counter = counts.putIfAbsent(item, created);
+			if( counter == null )
+			{
+				counter = created;
+			}
+		}
+		counter.addAndGet(amount);
+	}
+
+	public void increment(String item)
+	{
+		count(item, 1);
+	}
+
+	public long getSamples()
+	{
+		return samples.get();
+	}
+
+	public long getWallNanos()
+	{
+		return wallNanos.get();
+	}
+
+	public long getCpuNanos()
+	{
+		return cpuUnavailable ? -1 : cpuNanos.get();
+	}
+
+	public long getAllocatedBytes()
+	{
+		return allocationUnavailable ? -1 : allocatedBytes.get();
+	}
+
+	/**
+	 * Item counts by name, sorted
+	 */
+	public Map<String, Long> getCounts()
+	{
+		Map<String, Long> sorted = new TreeMap<String, Long>();
+		for(Map.Entry<String, AtomicLong> count : counts.entrySet())
+		{
+			sorted.put(count.getKey(), count.getValue().get());
+		}
+		return sorted;
+	}
+}
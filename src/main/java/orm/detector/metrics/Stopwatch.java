@@ -0,0 +1,134 @@
+package main.java.orm.detector.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Wall time, CPU time and allocated bytes of the calling thread between start() and stop(). A stopwatch is
+ * started and stopped on the same thread, the CPU time and the allocations of other threads are not seen.
+ * When the JVM does not support thread CPU time or allocation counters the value is -1.
+ */
+public class Stopwatch
+{
+	private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+	private static final boolean CPU_TIME_SUPPORTED = enableCpuTime();
+	private static final boolean ALLOCATION_SUPPORTED = enableAllocatedMemory();
+
+	private long startWallNanos;
+	private long startCpuNanos;
+	private long startAllocatedBytes;
+
+	private long wallNanos = -1;
+	private long cpuNanos = -1;
+	private long allocatedBytes = -1;
+
+	private Stopwatch()
+	{
+		this.startWallNanos = System.nanoTime();
+		this.startCpuNanos = currentCpuNanos();
+		this.startAllocatedBytes = currentAllocatedBytes();
+	}
+
+	public static Stopwatch start()
+	{
+		return new Stopwatch();
+	}
+
+	/**
+	 * Stops the measure, later calls keep the first measure
+	 */
+	public Stopwatch stop()
+	{
+		if( wallNanos >= 0 )
+		{
+			return this;
+		}
+
+		long allocated = currentAllocatedBytes();
+		long cpu = currentCpuNanos();
+		wallNanos = System.nanoTime() - startWallNanos;
+		cpuNanos = ((cpu < 0) || (startCpuNanos < 0)) ? -1 : (cpu - startCpuNanos);
+		allocatedBytes = ((allocated < 0) || (startAllocatedBytes < 0)) ? -1 : (allocated - startAllocatedBytes);
+		return this;
+	}
+
+	public long getWallNanos()
+	{
+		return wallNanos;
+	}
+
+	public long getCpuNanos()
+	{
+		return cpuNanos;
+	}
+
+	public long getAllocatedBytes()
+	{
+		return allocatedBytes;
+	}
+
+	private static long currentCpuNanos()
+	{
+		return CPU_TIME_SUPPORTED ? THREADS.getCurrentThreadCpuTime() : -1;
+	}
+
+	private static long currentAllocatedBytes()
+	{
+		if( !ALLOCATION_SUPPORTED )
+		{
+			return -1;
+		}
+		return ((com.sun.management.ThreadMXBean) THREADS).getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+	private static boolean enableCpuTime()
+	{
+		try
+		{
+			if( !THREADS.isCurrentThreadCpuTimeSupported() )
+			{
+				return false;
+			}
+			if( !THREADS.isThreadCpuTimeEnabled() )
+			{
+				THREADS.setThreadCpuTimeEnabled(true);
+			}
+			return true;
+		}
+		catch (UnsupportedOperationException e)
+		{
+			return false;
+		}
+	}
+
+	//Allocation counters are a HotSpot extension of the ThreadMXBean
+	private static boolean enableAllocatedMemory()
+	{
+		try
+		{
+			if( !(THREADS instanceof com.sun.management.ThreadMXBean) )
+			{
+				return false;
+			}
+
+			com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) THREADS;
+			if( !threads.isThreadAllocatedMemorySupported() )
+			{
+				return false;
+			}
+			if( !threads.isThreadAllocatedMemoryEnabled() )
+			{
+				threads.setThreadAllocatedMemoryEnabled(true);
+			}
+			return true;
+		}
+		catch (UnsupportedOperationException e)
+		{
+			return false;
+		}
+		catch (NoClassDefFoundError e)
+		{
+			return false;
+		}
+	}
+}
@@ -0,0 +1,251 @@
+package main.java.orm.detector.persistence;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+import main.java.orm.detector.events.DatabaseWriteEvent;
+import main.java.orm.detector.metrics.Metrics;
+import main.java.orm.detector.metrics.PhaseMetrics;
+import main.java.orm.detector.metrics.Stopwatch;
+
+/**
+ * Write path used while extracting facts: a single connection, one prepared statement per table and JDBC batching.
+ * Rows are sent to the database when the batches are flushed and made durable when the session commits,
+ * which happens at class boundaries once enough rows have been collected.
+ */
+public class BulkLoadSession
+{
+	private Connection connection;
+
+	private PreparedStatement insertCallGraph;
+	private PreparedStatement insertClass;
+	private PreparedStatement insertMethod;
+	private PreparedStatement insertAttribute;
+	private PreparedStatement insertMetadata;
+	private PreparedStatement insertMetadataKVPair;
+	private PreparedStatement updateMethodTainted;
+	private PreparedStatement insertClassSource;
+	private PreparedStatement insertClassSupertype;
+
+	private int commitRows;
+	private int pendingRows = 0;
+	private int uncommittedRows = 0;
+
+	/**
+	 * @param commitRows number of rows after which the session commits at the next class boundary, 1 commits every class
+	 */
+	public BulkLoadSession(String databaseName, int commitRows) throws ClassNotFoundException, SQLException
+	{
+		this.commitRows = Math.max(1, commitRows);
+
+		Class.forName("org.sqlite.JDBC");
+		connection = DriverManager.getConnection("jdbc:sqlite:"+databaseName);
+		connection.setAutoCommit(false);
+
+		insertCallGraph = connection.prepareStatement("INSERT INTO callgraph (source_method_name,source_method_descriptor,source_method_type,source_method_id, target_method_name,target_method_descriptor,target_method_type,target_method_executed_in_loop) VALUES (?, ?, ?, ?, ?, ?, ?, ?);");
+		insertClass = connection.prepareStatement("INSERT INTO class (cl_id,class_name,package_name,absolute_path,is_entity) VALUES (?, ?, ?, ?, ?);");
+		insertMethod = connection.prepareStatement("INSERT INTO method (me_id,method_name,method_descriptor,cl_id,is_tainted,access_flags) VALUES (?, ?, ?, ?, ?, ?);");
+		insertAttribute = connection.prepareStatement("INSERT INTO attribute (attr_id,attribute_name,attribute_type,cl_id,getter_me_id,setter_me_id,is_tainted) VALUES (?, ?, ?, ?, ?, ?, ?);");
+		insertMetadata = connection.prepareStatement("INSERT INTO metadata (met_id,metadata_name,cl_id,me_id,attr_id) VALUES (?, ?, ?, ?, ?);");
+		insertMetadataKVPair = connection.prepareStatement("INSERT INTO metadata_kv_pair (key,value,met_id) VALUES (?, ?, ?);");
+		insertClassSource = connection.prepareStatement("INSERT INTO class_source (entry_name,jar_name,content_hash,cl_id) VALUES (?, ?, ?, ?);");
+		insertClassSupertype = connection.prepareStatement("INSERT INTO class_supertype (cl_id,supertype_name) VALUES (?, ?);");
+		updateMethodTainted = connection.prepareStatement("UPDATE method SET is_tainted='1' WHERE me_id=?;");
+	}
+
+	public void insertCallGraphRecord(String sourceMethodType, String sourceMethodName, String sourceMethodDescriptor, String sourceMethId, String targetMethodType, String targetMethodName, String targetMethodDescriptor, String isCalledInLoop) throws SQLException
+	{
+		insertCallGraph.setString(1, sourceMethodName);
+		insertCallGraph.setString(2, sourceMethodDescriptor);
+		insertCallGraph.setString(3, sourceMethodType);
+		insertCallGraph.setString(4, sourceMethId);
+		insertCallGraph.setString(5, targetMethodName);
+		insertCallGraph.setString(6, targetMethodDescriptor);
+		insertCallGraph.setString(7, targetMethodType);
+		insertCallGraph.setString(8, isCalledInLoop);
+		addBatch(insertCallGraph);
+	}
+
+	public void insertClassRecord(int classId, String className, String packageName, String isEntity, String absolutePath) throws SQLException
+	{
+		insertClass.setInt(1, classId);
+		insertClass.setString(2, className);
+		insertClass.setString(3, packageName);
+		insertClass.setString(4, absolutePath);
+		insertClass.setString(5, isEntity);
+		addBatch(insertClass);
+	}
+
+	public void insertMethodRecord(int methodId, String methodName, String methodDescriptor, String classId, String isTainted, String accessFlags) throws SQLException
+	{
+		insertMethod.setInt(1, methodId);
+		insertMethod.setString(2, methodName);
+		insertMethod.setString(3, methodDescriptor);
+		insertMethod.setString(4, classId);
+		insertMethod.setString(5, isTainted);
+		insertMethod.setString(6, accessFlags);
+		addBatch(insertMethod);
+	}
+
+	public void insertAttributeRecord(int attributeId, String attributename, String attributetype, String classId, String getterId, String setterId, String isTainted) throws SQLException
+	{
+		insertAttribute.setInt(1, attributeId);
+		insertAttribute.setString(2, attributename);
+		insertAttribute.setString(3, attributetype);
+		insertAttribute.setString(4, classId);
+		insertAttribute.setString(5, getterId);
+		insertAttribute.setString(6, setterId);
+		insertAttribute.setString(7, isTainted);
+		addBatch(insertAttribute);
+	}
+
+	public void insertMetadataRecord(int metadataId, String metadataname, String classId, String methodId, String attributeId) throws SQLException
+	{
+		insertMetadata.setInt(1, metadataId);
+		insertMetadata.setString(2, metadataname);
+		insertMetadata.setString(3, classId);
+		insertMetadata.setString(4, methodId);
+		insertMetadata.setString(5, attributeId);
+		addBatch(insertMetadata);
+	}
+
+	public void insertMetadataKVPairRecord(String key, String value, String metadata_id) throws SQLException
+	{
+		insertMetadataKVPair.setString(1, key);
+		insertMetadataKVPair.setString(2, value);
+		insertMetadataKVPair.setString(3, metadata_id);
+		addBatch(insertMetadataKVPair);
+	}
+
+	public void insertClassSourceRecord(String entryName, String jarName, String contentHash, String classId) throws SQLException
+	{
+		insertClassSource.setString(1, entryName);
+		insertClassSource.setString(2, jarName);
+		insertClassSource.setString(3, contentHash);
+		insertClassSource.setString(4, classId);
+		addBatch(insertClassSource);
+	}
+
+	public void insertClassSupertypeRecord(String classId, String supertypeName) throws SQLException
+	{
+		insertClassSupertype.setString(1, classId);
+		insertClassSupertype.setString(2, supertypeName);
+		addBatch(insertClassSupertype);
+	}
+
+	public void updateMethodTaintedStatusById(int methodid) throws SQLException
+	{
+		updateMethodTainted.setInt(1, methodid);
+		addBatch(updateMethodTainted);
+	}
+
+	private void addBatch(PreparedStatement statement) throws SQLException
+	{
+		statement.addBatch();
+		pendingRows++;
+		uncommittedRows++;
+	}
+
+	/**
+	 * Sends the batched rows to the database, they become visible to queries on this session's connection.
+	 */
+	public void flush() throws SQLException
+	{
+		if( pendingRows == 0 )
+		{
+			return;
+		}
+
+		Stopwatch write = Stopwatch.start();
+		DatabaseWriteEvent event = new DatabaseWriteEvent();
+		event.begin();
+		insertClass.executeBatch();
+		insertMethod.executeBatch();
+		insertCallGraph.executeBatch();
+		insertAttribute.executeBatch();
+		insertMetadata.executeBatch();
+		insertMetadataKVPair.executeBatch();
+		insertClassSource.executeBatch();
+		insertClassSupertype.executeBatch();
+
+		//Updates last, they may target rows inserted by the batches above
+		updateMethodTainted.executeBatch();
+		event.end();
+		if( event.shouldCommit() )
+		{
+			event.operation = "flush";
+			event.rows = pendingRows;
+			event.commit();
+		}
+
+		PhaseMetrics writeMetrics = Metrics.phase(Metrics.DB_WRITE);
+		writeMetrics.record(write);
+		writeMetrics.increment("batches");
+		writeMetrics.count("rows", pendingRows);
+		pendingRows = 0;
+	}
+
+	/**
+	 * Called once all the facts of a class are written, commits when enough rows have been collected.
+	 */
+	public void classCompleted() throws SQLException
+	{
+		if( uncommittedRows >= commitRows )
+		{
+			commit();
+		}
+	}
+
+	public void commit() throws SQLException
+	{
+		flush();
+
+		Stopwatch write = Stopwatch.start();
+		DatabaseWriteEvent event = new DatabaseWriteEvent();
+		event.begin();
+		connection.commit();
+		event.end();
+		if( event.shouldCommit() )
+		{
+			event.operation = "commit";
+			event.rows = uncommittedRows;
+			event.commit();
+		}
+		PhaseMetrics writeMetrics = Metrics.phase(Metrics.DB_WRITE);
+		writeMetrics.record(write);
+		writeMetrics.increment("commits");
+		uncommittedRows = 0;
+	}
+
+	/**
+	 * Connection of the session, pending rows are flushed first so that queries see them.
+	 */
+	public Connection getConnection() throws SQLException
+	{
+		flush();
+		return connection;
+	}
+
+	public void close() throws SQLException
+	{
+		try
+		{
+			commit();
+		}
+		finally
+		{
+			insertCallGraph.close();
+			insertClass.close();
+			insertMethod.close();
+			insertAttribute.close();
+			insertMetadata.close();
+			insertMetadataKVPair.close();
+			insertClassSource.close();
+			insertClassSupertype.close();
+			updateMethodTainted.close();
+			connection.close();
+		}
+	}
+}
@@ -0,0 +1,43 @@
+package main.java.orm.detector.persistence;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hands out the primary keys of the class, method, attribute and metadata tables in process,
+ * so that inserting a fact never needs a read back of its id. Seeded once from the highest ids in the database.
+ */
+public class FactIdAllocator
+{
+	private AtomicInteger lastClassId;
+	private AtomicInteger lastMethodId;
+	private AtomicInteger lastAttributeId;
+	private AtomicInteger lastMetadataId;
+
+	public FactIdAllocator(int topClassId, int topMethodId, int topAttributeId, int topMetadataId)
+	{
+		lastClassId = new AtomicInteger(topClassId);
+		lastMethodId = new AtomicInteger(topMethodId);
+		lastAttributeId = new AtomicInteger(topAttributeId);
+		lastMetadataId = new AtomicInteger(topMetadataId);
+	}
+
+	public int nextClassId()
+	{
+		return lastClassId.incrementAndGet();
+	}
+
+	public int nextMethodId()
+	{
+		return lastMethodId.incrementAndGet();
+	}
+
+	public int nextAttributeId()
+	{
+		return lastAttributeId.incrementAndGet();
+	}
+
+	public int nextMetadataId()
+	{
+		return lastMetadataId.incrementAndGet();
+	}
+}
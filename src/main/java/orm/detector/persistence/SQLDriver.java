@@ -2,26 +2,189 @@ package main.java.orm.detector.persistence;
 
 import java.sql.Connection;
 import java.sql.DriverManager;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
+import main.java.orm.detector.events.DatabaseQueryEvent;
+import main.java.orm.detector.events.DatabaseWriteEvent;
+import main.java.orm.detector.logger.Console;
+import main.java.orm.detector.persistence.vo.CallGraphEdge;
+import main.java.orm.detector.persistence.vo.ClassSource;
+import main.java.orm.detector.persistence.vo.ClassSupertype;
 import main.java.orm.detector.persistence.vo.EagerlyMappedEntitiesTuple;
+import main.java.orm.detector.persistence.vo.MethodMetadata;
+import main.java.orm.detector.persistence.vo.TransactionalMethod;
+import main.java.orm.detector.schema.SchemaModel;
 
 //TODO make this a singleton
 public class SQLDriver 
 {
 	private static String DATABASE_NAME;
 	
+	//Open while the extraction is bulk loading facts, every statement then goes through its connection
+	private static BulkLoadSession bulkLoadSession;
+	
+	//Primary keys of the fact tables, seeded from the database on first use
+	private static FactIdAllocator idAllocator;
+	
+	//SQL schema of the release, parsed once, so that the detectors can join the bytecode facts with the tables
+	private static SchemaModel schemaModel = new SchemaModel();
+	
 	public static void setDbName(String dbPath, String dbName)
 	{
 		DATABASE_NAME = dbPath+dbName;
 	}
 	
+	public static void setSchemaModel(SchemaModel schema)
+	{
+		schemaModel = schema;
+	}
+	
+	/**
+	 * Tables, typed columns, indexes and sequences of the release's sql schema, empty until the schema is parsed
+	 */
+	public static SchemaModel getSchemaModel()
+	{
+		return schemaModel;
+	}
+	
+	/**
+	 * Starts a bulk load: the insert*Record methods are batched on a single connection until endBulkLoad().
+	 * @param commitRows number of rows after which the next class boundary commits
+	 */
+	public static void beginBulkLoad(int commitRows)
+	{
+		try 
+		{
+			bulkLoadSession = new BulkLoadSession(DATABASE_NAME, commitRows);
+		} 
+		catch ( Exception e ) 
+		{
+		  System.err.println( "SQLDriver::beginBulkLoad -> "+e.getClass().getName() + ": " + e.getMessage() );
+		  System.exit(0);
+		}
+	}
+	
+	/**
+	 * Marks the end of the facts of a class, the bulk load commits here once enough rows are pending.
+	 */
+	public static void endBulkLoadClass()
+	{
+		if( bulkLoadSession == null )
+		{
+			return;
+		}
+		
+		try 
+		{
+			bulkLoadSession.classCompleted();
+		} 
+		catch ( Exception e ) 
+		{
+		  System.err.println( "SQLDriver::endBulkLoadClass -> "+e.getClass().getName() + ": " + e.getMessage() );
+		  System.exit(0);
+		}
+	}
+	
+	public static void endBulkLoad()
+	{
+		if( bulkLoadSession == null )
+		{
+			return;
+		}
+		
+		try 
+		{
+			bulkLoadSession.close();
+		} 
+		catch ( Exception e ) 
+		{
+		  System.err.println( "SQLDriver::endBulkLoad -> "+e.getClass().getName() + ": " + e.getMessage() );
+		  System.exit(0);
+		}
+		finally
+		{
+			bulkLoadSession = null;
+		}
+	}
+	
+	private static synchronized FactIdAllocator getIdAllocator()
+	{
+		if( idAllocator == null )
+		{
+			idAllocator = new FactIdAllocator(getTopClassId(), getTopMethodId(), getTopAttributeId(), getTopMetadataId());
+		}
+		return idAllocator;
+	}
+	
+	private static Connection openConnection() throws ClassNotFoundException, SQLException
+	{
+		if( bulkLoadSession != null )
+		{
+			return bulkLoadSession.getConnection();
+		}
+		
+		Class.forName("org.sqlite.JDBC");
+		Connection c = DriverManager.getConnection("jdbc:sqlite:"+DATABASE_NAME);
+		c.setAutoCommit(false);
+		return c;
+	}
+	
+	private static void closeConnection(Connection c, boolean commit) throws SQLException
+	{
+		//The bulk load keeps its connection open and commits on its own schedule
+		if( bulkLoadSession != null )
+		{
+			return;
+		}
+		
+		if( commit )
+		{
+			c.commit();
+		}
+		c.close();
+	}
+	
+	/**
+	 * Ends the profiling event of a query, its fields are only filled in when a flight recording takes it
+	 */
+	private static void commitQueryEvent(DatabaseQueryEvent event, String query, long rows)
+	{
+		event.end();
+		if( event.shouldCommit() )
+		{
+			event.query = query;
+			event.rows = rows;
+			event.commit();
+		}
+	}
+	
+	/**
+	 * Ends the profiling event of a bulk write, its fields are only filled in when a flight recording takes it
+	 */
+	private static void commitWriteEvent(DatabaseWriteEvent event, String operation, long rows)
+	{
+		event.end();
+		if( event.shouldCommit() )
+		{
+			event.operation = operation;
+			event.rows = rows;
+			event.commit();
+		}
+	}
+	
 	public static void createInitialDatabase(String dbPath, String dbName)
 	{
+		//Ids handed out so far belong to the previous database
+		idAllocator = null;
 		
 	    Connection c = null;
 	    Statement stmt = null;
@@ -33,19 +196,25 @@ public class SQLDriver
 
 	      //create callgraph table
 	      stmt = c.createStatement();
-	      String sql = "CREATE TABLE callgraph " +
+	      String sql = "CREATE TABLE IF NOT EXISTS callgraph " +
 	                   "(cg_id INTEGER PRIMARY KEY     AUTOINCREMENT NOT NULL," +
 	                   " source_method_name           TEXT, " + 
+	                   " source_method_descriptor           TEXT, " + 
 	                   " source_method_type           TEXT, " + 
 	                   " source_method_id             INT, " + 
 	                   " target_method_name           TEXT, " + 
+	                   " target_method_descriptor           TEXT, " + 
 	                   " target_method_type           TEXT, " + 
 	                   " target_method_id             INT,   " + 
 	                   " target_method_executed_in_loop             INT   " + 
 	                   " )"; 
 	      stmt.executeUpdate(sql);
 	      
-	      sql = "CREATE TABLE class " +
+	      //Databases kept by the incremental extraction may predate the descriptors
+	      addColumnIfMissing(stmt, "callgraph", "source_method_descriptor", "TEXT");
+	      addColumnIfMissing(stmt, "callgraph", "target_method_descriptor", "TEXT");
+	      
+	      sql = "CREATE TABLE IF NOT EXISTS class " +
                   "(cl_id INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL," +
                   " class_name           TEXT, " + 
                   " package_name           	 TEXT, " + 
@@ -54,15 +223,21 @@ public class SQLDriver
                   " )"; 
 	      stmt.executeUpdate(sql);
 	    
-	      sql = "CREATE TABLE method " +
+	      sql = "CREATE TABLE IF NOT EXISTS method " +
                   "(me_id INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL," +
                   " method_name           TEXT, " + 
+                  " method_descriptor           TEXT, " + 
                   " cl_id           	 INTEGER, " + 
-                  " is_tainted            INT " + 
+                  " is_tainted            INT, " + 
+                  " access_flags            INT DEFAULT 0 " + 
                   " )"; 
 	      stmt.executeUpdate(sql);
 	      
-	     sql = "CREATE TABLE attribute " +
+	      //Databases kept by the incremental extraction may predate the descriptors and access flags
+	      addColumnIfMissing(stmt, "method", "method_descriptor", "TEXT");
+	      addColumnIfMissing(stmt, "method", "access_flags", "INT DEFAULT 0");
+	      
+	     sql = "CREATE TABLE IF NOT EXISTS attribute " +
                   "(attr_id INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL," +
                   " attribute_name           TEXT, " + 
                   " attribute_type           TEXT, " + 
@@ -73,7 +248,7 @@ public class SQLDriver
                   " )"; 
 	      stmt.executeUpdate(sql);
 	      
-	      sql = "CREATE TABLE metadata " +
+	      sql = "CREATE TABLE IF NOT EXISTS metadata " +
                   "(met_id INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL," +
                   " metadata_name           TEXT, " + 
                   " cl_id           	 INTEGER, " + 
@@ -82,7 +257,7 @@ public class SQLDriver
                   " )"; 
 	      stmt.executeUpdate(sql);
 	      
-	      sql = "CREATE TABLE metadata_kv_pair " +
+	      sql = "CREATE TABLE IF NOT EXISTS metadata_kv_pair " +
                   "(mkvp_id INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL," +
                   " key           TEXT, " + 
                   " value           TEXT, " + 
@@ -90,6 +265,24 @@ public class SQLDriver
                   " )"; 
 	      stmt.executeUpdate(sql);
 	      
+	      //Content hash of every class file seen by the extraction, drives the incremental extraction
+	      sql = "CREATE TABLE IF NOT EXISTS class_source " +
+                  "(cs_id INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL," +
+                  " entry_name           TEXT, " + 
+                  " jar_name           TEXT, " + 
+                  " content_hash           TEXT, " + 
+                  " cl_id           	 INTEGER " + 
+                  " )"; 
+	      stmt.executeUpdate(sql);
+	      
+	      //Superclass and interfaces of every extracted class, resolves the calls through interfaces
+	      sql = "CREATE TABLE IF NOT EXISTS class_supertype " +
+                  "(clst_id INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL," +
+                  " cl_id           	 INTEGER, " + 
+                  " supertype_name           TEXT " + 
+                  " )"; 
+	      stmt.executeUpdate(sql);
+	      
 	      stmt.close();
 	      c.close();
 	    } 
@@ -98,7 +291,26 @@ public class SQLDriver
 	      System.err.println( "SQLDriver::createInitialDatabase -> "+e.getClass().getName() + ": " + e.getMessage() );
 	      System.exit(0);
 	    }
-	    System.out.println("Database tructure and tables created successfully.");
+	    Console.info("Database tructure and tables created successfully.");
+	}
+	
+	private static void addColumnIfMissing(Statement stmt, String table, String column, String definition) throws SQLException
+	{
+		ResultSet rs = stmt.executeQuery("PRAGMA table_info("+table+");");
+		boolean found = false;
+		while ( rs.next() )
+		{
+			if( column.equalsIgnoreCase(rs.getString("name")) )
+			{
+				found = true;
+			}
+		}
+		rs.close();
+		
+		if( !found )
+		{
+			stmt.executeUpdate("ALTER TABLE "+table+" ADD COLUMN "+column+" "+definition+";");
+		}
 	}
 	
 	public static String getTargetEdgeNamesForMethod(String methodName)
@@ -109,9 +321,7 @@ public class SQLDriver
 	   
 	    try 
 	    {
-	      Class.forName("org.sqlite.JDBC");
-	      c = DriverManager.getConnection("jdbc:sqlite:"+DATABASE_NAME);
-	      c.setAutoCommit(false);
+	      c = openConnection();
 
 	      stmt = c.createStatement();
 	      ResultSet rs = stmt.executeQuery( "SELECT target_method_name from callgraph where source_method_name='"+methodName+"';" );
@@ -123,7 +333,7 @@ public class SQLDriver
 	      
 	      rs.close();
 	      stmt.close();
-	      c.close();
+	      closeConnection(c, false);
 	    } 
 	    catch ( Exception e ) 
 	    {
@@ -142,9 +352,7 @@ public class SQLDriver
 	   
 	    try 
 	    {
-	      Class.forName("org.sqlite.JDBC");
-	      c = DriverManager.getConnection("jdbc:sqlite:"+DATABASE_NAME);
-	      c.setAutoCommit(false);
+	      c = openConnection();
 
 	      stmt = c.createStatement();
 	      ResultSet rs = stmt.executeQuery( "SELECT metadata_name from metadata where me_id='"+methodId+"' ;" );
@@ -156,7 +364,7 @@ public class SQLDriver
 	      
 	      rs.close();
 	      stmt.close();
-	      c.close();
+	      closeConnection(c, false);
 	    } 
 	    catch ( Exception e ) 
 	    {
@@ -175,9 +383,7 @@ public class SQLDriver
 	   
 	    try 
 	    {
-	      Class.forName("org.sqlite.JDBC");
-	      c = DriverManager.getConnection("jdbc:sqlite:"+DATABASE_NAME);
-	      c.setAutoCommit(false);
+	      c = openConnection();
 
 	      stmt = c.createStatement();
 	      ResultSet rs = stmt.executeQuery( "SELECT source_method_name,source_method_id from callgraph where source_method_name='"+methodName+"' LIMIT 1;" );
@@ -189,7 +395,7 @@ public class SQLDriver
 	      
 	      rs.close();
 	      stmt.close();
-	      c.close();
+	      closeConnection(c, false);
 	    } 
 	    catch ( Exception e ) 
 	    {
@@ -206,17 +412,14 @@ public class SQLDriver
 	    Statement stmt = null;
 	    try 
 	    {
-	      Class.forName("org.sqlite.JDBC");
-	      c = DriverManager.getConnection("jdbc:sqlite:"+DATABASE_NAME);
-	      c.setAutoCommit(false);
+	      c = openConnection();
 	      
 	      stmt = c.createStatement();
 	      String sql = "UPDATE method SET is_tainted='1' WHERE method_name='"+methodName+"';"; 
 	      stmt.executeUpdate(sql);
 
 	      stmt.close();
-	      c.commit();
-	      c.close();
+	      closeConnection(c, true);
 	    } 
 	    catch ( Exception e ) 
 	    {
@@ -227,21 +430,32 @@ public class SQLDriver
 	
 	public static void updateMethodTaintedStatusById(int methodid)
 	{
+		if( bulkLoadSession != null )
+		{
+			try
+			{
+				bulkLoadSession.updateMethodTaintedStatusById(methodid);
+			}
+			catch ( Exception e )
+			{
+			  System.err.println( "SQLDriver::updateMethodTaintedStatusById -> "+e.getClass().getName() + ": " + e.getMessage() );
+			  System.exit(0);
+			}
+			return;
+		}
+		
 		Connection c = null;
 	    Statement stmt = null;
 	    try 
 	    {
-	      Class.forName("org.sqlite.JDBC");
-	      c = DriverManager.getConnection("jdbc:sqlite:"+DATABASE_NAME);
-	      c.setAutoCommit(false);
+	      c = openConnection();
 	      
 	      stmt = c.createStatement();
 	      String sql = "UPDATE method SET is_tainted='1' WHERE me_id='"+methodid+"';"; 
 	      stmt.executeUpdate(sql);
 
 	      stmt.close();
-	      c.commit();
-	      c.close();
+	      closeConnection(c, true);
 	    } 
 	    catch ( Exception e ) 
 	    {
@@ -250,24 +464,35 @@ public class SQLDriver
 	    }
 	}
 	
-	public static void insertCallGraphRecord(String sourceMethodType, String sourceMethodName, String sourceMethId, String targetMethodType, String targetMethodName, String isCalledInLoop)
+	public static void insertCallGraphRecord(String sourceMethodType, String sourceMethodName, String sourceMethodDescriptor, String sourceMethId, String targetMethodType, String targetMethodName, String targetMethodDescriptor, String isCalledInLoop)
 	{
+		if( bulkLoadSession != null )
+		{
+			try
+			{
+				bulkLoadSession.insertCallGraphRecord(sourceMethodType, sourceMethodName, sourceMethodDescriptor, sourceMethId, targetMethodType, targetMethodName, targetMethodDescriptor, isCalledInLoop);
+			}
+			catch ( Exception e )
+			{
+			  System.err.println( "SQLDriver::insertCallGraphRecord -> "+e.getClass().getName() + ": " + e.getMessage() );
+			  System.exit(0);
+			}
+			return;
+		}
+		
 	    Connection c = null;
 	    Statement stmt = null;
 	    try 
 	    {
-	      Class.forName("org.sqlite.JDBC");
-	      c = DriverManager.getConnection("jdbc:sqlite:"+DATABASE_NAME);
-	      c.setAutoCommit(false);
+	      c = openConnection();
 
 	      stmt = c.createStatement();
-	      String sql = "INSERT INTO callgraph (source_method_name,source_method_type,source_method_id, target_method_name,target_method_type,target_method_executed_in_loop) " +
-	                   "VALUES ('"+sourceMethodName+"', '"+sourceMethodType+"',  '"+sourceMethId+"','"+targetMethodName+"', '"+targetMethodType+"', '"+isCalledInLoop+"');"; 
+	      String sql = "INSERT INTO callgraph (source_method_name,source_method_descriptor,source_method_type,source_method_id, target_method_name,target_method_descriptor,target_method_type,target_method_executed_in_loop) " +
+	                   "VALUES ('"+sourceMethodName+"', '"+sourceMethodDescriptor+"', '"+sourceMethodType+"',  '"+sourceMethId+"','"+targetMethodName+"', '"+targetMethodDescriptor+"', '"+targetMethodType+"', '"+isCalledInLoop+"');"; 
 	      stmt.executeUpdate(sql);
 
 	      stmt.close();
-	      c.commit();
-	      c.close();
+	      closeConnection(c, true);
 	    } 
 	    catch ( Exception e ) 
 	    {
@@ -276,56 +501,351 @@ public class SQLDriver
 	    }
 	}
 	
-	public static void insertClassRecord(String className, String packageName, String isEntity, String absolutePath)
+	public static int insertClassRecord(String className, String packageName, String isEntity, String absolutePath)
 	{
+		int classId = getIdAllocator().nextClassId();
+		
+		if( bulkLoadSession != null )
+		{
+			try
+			{
+				bulkLoadSession.insertClassRecord(classId, className, packageName, isEntity, absolutePath);
+			}
+			catch ( Exception e )
+			{
+			  System.err.println( "SQLDriver::insertClassRecord -> "+e.getClass().getName() + ": " + e.getMessage() );
+			  System.exit(0);
+			}
+			return classId;
+		}
+		
 		Connection c = null;
 	    Statement stmt = null;
 	    try 
 	    {
-	      Class.forName("org.sqlite.JDBC");
-	      c = DriverManager.getConnection("jdbc:sqlite:"+DATABASE_NAME);
-	      c.setAutoCommit(false);
+	      c = openConnection();
 	      
 	      stmt = c.createStatement();
-	      String sql = "INSERT INTO class (class_name,package_name,absolute_path,is_entity) " +
-	                   "VALUES ('"+className+"', '"+packageName+"', '"+absolutePath+"', '"+isEntity+"');"; 
+	      String sql = "INSERT INTO class (cl_id,class_name,package_name,absolute_path,is_entity) " +
+	                   "VALUES ('"+classId+"', '"+className+"', '"+packageName+"', '"+absolutePath+"', '"+isEntity+"');"; 
 	      stmt.executeUpdate(sql);
 
 	      stmt.close();
-	      c.commit();
-	      c.close();
+	      closeConnection(c, true);
 	    } 
 	    catch ( Exception e ) 
 	    {
 	      System.err.println( "SQLDriver::insertClassRecord -> "+e.getClass().getName() + ": " + e.getMessage() );
 	      System.exit(0);
 	    }
+	    
+	    return classId;
 	}
 	
-	public static void insertMethodRecord(String methodName, String classId, String isTainted)
+	public static int insertMethodRecord(String methodName, String methodDescriptor, String classId, String isTainted, String accessFlags)
 	{
+		int methodId = getIdAllocator().nextMethodId();
+		
+		if( bulkLoadSession != null )
+		{
+			try
+			{
+				bulkLoadSession.insertMethodRecord(methodId, methodName, methodDescriptor, classId, isTainted, accessFlags);
+			}
+			catch ( Exception e )
+			{
+			  System.err.println( "SQLDriver::insertMethodRecord -> "+e.getClass().getName() + ": " + e.getMessage() );
+			  System.exit(0);
+			}
+			return methodId;
+		}
+		
 		Connection c = null;
 	    Statement stmt = null;
 	    try 
 	    {
-	      Class.forName("org.sqlite.JDBC");
-	      c = DriverManager.getConnection("jdbc:sqlite:"+DATABASE_NAME);
-	      c.setAutoCommit(false);
+	      c = openConnection();
 	      
 	      stmt = c.createStatement();
-	      String sql = "INSERT INTO method (method_name,cl_id,is_tainted) " +
-	                   "VALUES ('"+methodName+"', '"+classId+"', '"+isTainted+"' );"; 
+	      String sql = "INSERT INTO method (me_id,method_name,method_descriptor,cl_id,is_tainted,access_flags) " +
+	                   "VALUES ('"+methodId+"', '"+methodName+"', '"+methodDescriptor+"', '"+classId+"', '"+isTainted+"', '"+accessFlags+"' );"; 
 	      stmt.executeUpdate(sql);
 
 	      stmt.close();
-	      c.commit();
-	      c.close();
+	      closeConnection(c, true);
 	    } 
 	    catch ( Exception e ) 
 	    {
 	      System.err.println(  "SQLDriver::insertMethodRecord -> "+e.getClass().getName() + ": " + e.getMessage() );
 	      System.exit(0);
 	    }
+	    
+	    return methodId;
+	}
+	
+	public static void insertClassSupertypeRecord(String classId, String supertypeName)
+	{
+		if( bulkLoadSession != null )
+		{
+			try
+			{
+				bulkLoadSession.insertClassSupertypeRecord(classId, supertypeName);
+			}
+			catch ( Exception e )
+			{
+			  System.err.println( "SQLDriver::insertClassSupertypeRecord -> "+e.getClass().getName() + ": " + e.getMessage() );
+			  System.exit(0);
+			}
+			return;
+		}
+		
+		Connection c = null;
+	    Statement stmt = null;
+	    try 
+	    {
+	      c = openConnection();
+	      
+	      stmt = c.createStatement();
+	      String sql = "INSERT INTO class_supertype (cl_id,supertype_name) " +
+	                   "VALUES ('"+classId+"', '"+supertypeName+"' );"; 
+	      stmt.executeUpdate(sql);
+
+	      stmt.close();
+	      closeConnection(c, true);
+	    } 
+	    catch ( Exception e ) 
+	    {
+	      System.err.println(  "SQLDriver::insertClassSupertypeRecord -> "+e.getClass().getName() + ": " + e.getMessage() );
+	      System.exit(0);
+	    }
+	}
+	
+	/**
+	 * Direct superclass and interfaces of every extracted class
+	 */
+	public static ArrayList<ClassSupertype> getClassSupertypes() 
+	{
+		DatabaseQueryEvent event = new DatabaseQueryEvent();
+		event.begin();
+		Connection c = null;
+	    Statement stmt = null;
+	    ArrayList<ClassSupertype> supertypes = new ArrayList<ClassSupertype>();
+	   
+	    try 
+	    {
+	      c = openConnection();
+
+	      stmt = c.createStatement();
+	      ResultSet rs = stmt.executeQuery( "SELECT cls.class_name, st.supertype_name FROM class_supertype st JOIN class cls ON cls.cl_id = st.cl_id ;" );
+	      
+	      while ( rs.next() ) 
+	      {
+	    	  supertypes.add(new ClassSupertype(rs.getString("class_name"), rs.getString("supertype_name")));
+	      }
+	      
+	      rs.close();
+	      stmt.close();
+	      closeConnection(c, false);
+	    } 
+	    catch ( Exception e ) 
+	    {
+	      System.err.println("SQLDriver::getClassSupertypes -> "+ e.getClass().getName() + ": " + e.getMessage() );
+	      System.exit(0);
+	    }
+	    
+	    commitQueryEvent(event, "getClassSupertypes", supertypes.size());
+	    return supertypes;
+	}
+	
+	/**
+	 * Methods annotated with @Transactional, directly or through their class, with their propagation
+	 * (null for the default one) and access flags. A method annotated itself is listed before its class level annotation.
+	 */
+	public static ArrayList<TransactionalMethod> getTransactionalMethods() 
+	{
+		DatabaseQueryEvent event = new DatabaseQueryEvent();
+		event.begin();
+		Connection c = null;
+	    Statement stmt = null;
+	    ArrayList<TransactionalMethod> methods = new ArrayList<TransactionalMethod>();
+
+	    String sqlQuery=""
+	    		+"SELECT m.method_name, m.method_descriptor, m.access_flags, kv.value AS 'propagation', 0 AS 'class_level' "
+	    		+"FROM method m "
+	    		+"JOIN metadata md ON md.me_id = m.me_id "
+	    		+"LEFT JOIN metadata_kv_pair kv ON kv.met_id = md.met_id AND kv.key = 'propagation' "
+	    		+"WHERE md.metadata_name LIKE '%/Transactional;' "
+	    		+"UNION ALL "
+	    		+"SELECT m.method_name, m.method_descriptor, m.access_flags, kv.value AS 'propagation', 1 AS 'class_level' "
+	    		+"FROM method m "
+	    		+"JOIN metadata md ON md.cl_id = m.cl_id AND md.me_id = 0 AND md.attr_id = 0 "
+	    		+"LEFT JOIN metadata_kv_pair kv ON kv.met_id = md.met_id AND kv.key = 'propagation' "
+	    		+"WHERE md.metadata_name LIKE '%/Transactional;' "
+	    		+"ORDER BY class_level ;";
+	    try 
+	    {
+	      c = openConnection();
+
+	      stmt = c.createStatement();
+	      ResultSet rs = stmt.executeQuery( sqlQuery );
+	      
+	      while ( rs.next() ) 
+	      {
+	    	  methods.add(new TransactionalMethod(rs.getString("method_name"), rs.getString("method_descriptor"), rs.getString("propagation"), rs.getInt("class_level") == 1, rs.getInt("access_flags")));
+	      }
+	      
+	      rs.close();
+	      stmt.close();
+	      closeConnection(c, false);
+	    } 
+	    catch ( Exception e ) 
+	    {
+	      System.err.println("SQLDriver::getTransactionalMethods -> "+ e.getClass().getName() + ": " + e.getMessage() );
+	      System.exit(0);
+	    }
+	    
+	    commitQueryEvent(event, "getTransactionalMethods", methods.size());
+	    return methods;
+	}
+	
+	public static void insertClassSourceRecord(String entryName, String jarName, String contentHash, String classId)
+	{
+		if( bulkLoadSession != null )
+		{
+			try
+			{
+				bulkLoadSession.insertClassSourceRecord(entryName, jarName, contentHash, classId);
+			}
+			catch ( Exception e )
+			{
+			  System.err.println( "SQLDriver::insertClassSourceRecord -> "+e.getClass().getName() + ": " + e.getMessage() );
+			  System.exit(0);
+			}
+			return;
+		}
+		
+		Connection c = null;
+	    Statement stmt = null;
+	    try 
+	    {
+	      c = openConnection();
+	      
+	      stmt = c.createStatement();
+	      String sql = "INSERT INTO class_source (entry_name,jar_name,content_hash,cl_id) " +
+	                   "VALUES ('"+entryName+"', '"+jarName+"', '"+contentHash+"', '"+classId+"' );"; 
+	      stmt.executeUpdate(sql);
+
+	      stmt.close();
+	      closeConnection(c, true);
+	    } 
+	    catch ( Exception e ) 
+	    {
+	      System.err.println(  "SQLDriver::insertClassSourceRecord -> "+e.getClass().getName() + ": " + e.getMessage() );
+	      System.exit(0);
+	    }
+	}
+	
+	/**
+	 * Class files recorded by the previous extractions, by ClassSource key (jar artifact and entry name)
+	 */
+	public static HashMap<String, ClassSource> getClassSources()
+	{
+		DatabaseQueryEvent event = new DatabaseQueryEvent();
+		event.begin();
+		Connection c = null;
+	    Statement stmt = null;
+	    HashMap<String, ClassSource> classSources = new HashMap<String, ClassSource>();
+	   
+	    try 
+	    {
+	      c = openConnection();
+
+	      stmt = c.createStatement();
+	      ResultSet rs = stmt.executeQuery( "SELECT cs_id, entry_name, jar_name, content_hash, cl_id FROM class_source ;" );
+	      
+	      while ( rs.next() ) 
+	      {
+	    	  ClassSource classSource = new ClassSource(rs.getInt("cs_id"), rs.getString("entry_name"), rs.getString("jar_name"), rs.getString("content_hash"), rs.getInt("cl_id"));
+	    	  classSources.put(classSource.getKey(), classSource);
+	      }
+	      
+	      rs.close();
+	      stmt.close();
+	      closeConnection(c, false);
+	    } 
+	    catch ( Exception e ) 
+	    {
+	      System.err.println("SQLDriver::getClassSources -> "+ e.getClass().getName() + ": " + e.getMessage() );
+	      System.exit(0);
+	    }
+	    
+	    commitQueryEvent(event, "getClassSources", classSources.size());
+	    return classSources;
+	}
+	
+	/**
+	 * Deletes the recorded class files and every fact extracted from them: the class, its supertypes, methods,
+	 * attributes, metadata, key-value pairs and the call graph edges leaving its methods. During a bulk load the
+	 * deletes run in the transaction of the session and are committed with the facts written after them.
+	 */
+	public static void retractClassSources(List<ClassSource> classSources)
+	{
+		if( classSources.isEmpty() )
+		{
+			return;
+		}
+		
+		//Children first, the statements look the rows up through their parents
+		String[] retractions = {
+			"DELETE FROM metadata_kv_pair WHERE met_id IN (SELECT met_id FROM metadata WHERE cl_id = ?1 OR me_id IN (SELECT me_id FROM method WHERE cl_id = ?1) OR attr_id IN (SELECT attr_id FROM attribute WHERE cl_id = ?1)) ;",
+			"DELETE FROM metadata WHERE cl_id = ?1 OR me_id IN (SELECT me_id FROM method WHERE cl_id = ?1) OR attr_id IN (SELECT attr_id FROM attribute WHERE cl_id = ?1) ;",
+			"DELETE FROM callgraph WHERE source_method_id IN (SELECT me_id FROM method WHERE cl_id = ?1) ;",
+			"DELETE FROM class_supertype WHERE cl_id = ?1 ;",
+			"DELETE FROM attribute WHERE cl_id = ?1 ;",
+			"DELETE FROM method WHERE cl_id = ?1 ;",
+			"DELETE FROM class WHERE cl_id = ?1 ;"
+		};
+		
+		DatabaseWriteEvent event = new DatabaseWriteEvent();
+		event.begin();
+		Connection c = null;
+	    try 
+	    {
+	      c = openConnection();
+	      
+	      for(String sql : retractions)
+	      {
+	    	  PreparedStatement stmt = c.prepareStatement(sql);
+	    	  for(ClassSource classSource : classSources)
+	    	  {
+	    		  //Out of scope and non-entity classes have no facts
+	    		  if( classSource.getClassId() > 0 )
+	    		  {
+	    			  stmt.setInt(1, classSource.getClassId());
+	    			  stmt.addBatch();
+	    		  }
+	    	  }
+	    	  stmt.executeBatch();
+	    	  stmt.close();
+	      }
+	      
+	      PreparedStatement stmt = c.prepareStatement("DELETE FROM class_source WHERE cs_id = ? ;");
+	      for(ClassSource classSource : classSources)
+	      {
+	    	  stmt.setInt(1, classSource.getSourceId());
+	    	  stmt.addBatch();
+	      }
+	      stmt.executeBatch();
+	      stmt.close();
+	      
+	      closeConnection(c, true);
+	      commitWriteEvent(event, "retractClassSources", classSources.size());
+	    } 
+	    catch ( Exception e ) 
+	    {
+	      System.err.println(  "SQLDriver::retractClassSources -> "+e.getClass().getName() + ": " + e.getMessage() );
+	      System.exit(0);
+	    }
 	}
 	
 	public static int getTopMethodId()
@@ -337,9 +857,7 @@ public class SQLDriver
 	    try 
 	    {
 	      
-	      Class.forName("org.sqlite.JDBC");
-	      c = DriverManager.getConnection("jdbc:sqlite:"+DATABASE_NAME);
-	      c.setAutoCommit(false);
+	      c = openConnection();
 
 	      stmt = c.createStatement();
 	      ResultSet rs = stmt.executeQuery( "SELECT me_id from method order by me_id DESC LIMIT 1;" );
@@ -351,7 +869,7 @@ public class SQLDriver
 	      
 	      rs.close();
 	      stmt.close();
-	      c.close();
+	      closeConnection(c, false);
 	    } 
 	    catch ( Exception e ) 
 	    {
@@ -371,9 +889,7 @@ public class SQLDriver
 	    try 
 	    {
 	      
-	      Class.forName("org.sqlite.JDBC");
-	      c = DriverManager.getConnection("jdbc:sqlite:"+DATABASE_NAME);
-	      c.setAutoCommit(false);
+	      c = openConnection();
 
 	      stmt = c.createStatement();
 	      ResultSet rs = stmt.executeQuery( "SELECT me_id from method where method_name='"+methodName+"';" );
@@ -385,7 +901,7 @@ public class SQLDriver
 	      
 	      rs.close();
 	      stmt.close();
-	      c.close();
+	      closeConnection(c, false);
 	    } 
 	    catch ( Exception e ) 
 	    {
@@ -396,30 +912,45 @@ public class SQLDriver
 		return id;
 	}
 	
-	public static void insertAttributeRecord(String attributename, String attributetype, String classId, String getterId, String setterId, String isTainted)
+	public static int insertAttributeRecord(String attributename, String attributetype, String classId, String getterId, String setterId, String isTainted)
 	{
+		int attributeId = getIdAllocator().nextAttributeId();
+		
+		if( bulkLoadSession != null )
+		{
+			try
+			{
+				bulkLoadSession.insertAttributeRecord(attributeId, attributename, attributetype, classId, getterId, setterId, isTainted);
+			}
+			catch ( Exception e )
+			{
+			  System.err.println( "SQLDriver::insertAttributeRecord -> "+e.getClass().getName() + ": " + e.getMessage() );
+			  System.exit(0);
+			}
+			return attributeId;
+		}
+		
 		Connection c = null;
 	    Statement stmt = null;
 	    try 
 	    {
-	      Class.forName("org.sqlite.JDBC");
-	      c = DriverManager.getConnection("jdbc:sqlite:"+DATABASE_NAME);
-	      c.setAutoCommit(false);
+	      c = openConnection();
 	      
 	      stmt = c.createStatement();
-	      String sql = "INSERT INTO attribute (attribute_name,attribute_type,cl_id,getter_me_id,setter_me_id,is_tainted) " +
-	                   "VALUES ('"+attributename+"', '"+attributetype+"', '"+classId+"', '"+getterId+"', '"+setterId+"', '"+isTainted+"');"; 
+	      String sql = "INSERT INTO attribute (attr_id,attribute_name,attribute_type,cl_id,getter_me_id,setter_me_id,is_tainted) " +
+	                   "VALUES ('"+attributeId+"', '"+attributename+"', '"+attributetype+"', '"+classId+"', '"+getterId+"', '"+setterId+"', '"+isTainted+"');"; 
 	      stmt.executeUpdate(sql);
 
 	      stmt.close();
-	      c.commit();
-	      c.close();
+	      closeConnection(c, true);
 	    } 
 	    catch ( Exception e ) 
 	    {
 	      System.err.println( "SQLDriver::insertAttributeRecord -> "+e.getClass().getName() + ": " + e.getMessage() );
 	      System.exit(0);
 	    }
+	    
+	    return attributeId;
 	}
 	
 	public static int getTopAttributeId()
@@ -431,9 +962,7 @@ public class SQLDriver
 	    try 
 	    {
 	      
-	      Class.forName("org.sqlite.JDBC");
-	      c = DriverManager.getConnection("jdbc:sqlite:"+DATABASE_NAME);
-	      c.setAutoCommit(false);
+	      c = openConnection();
 
 	      stmt = c.createStatement();
 	      ResultSet rs = stmt.executeQuery( "SELECT attr_id from attribute order by attr_id DESC LIMIT 1;" );
@@ -445,7 +974,7 @@ public class SQLDriver
 	      
 	      rs.close();
 	      stmt.close();
-	      c.close();
+	      closeConnection(c, false);
 	    } 
 	    catch ( Exception e ) 
 	    {
@@ -456,41 +985,68 @@ public class SQLDriver
 		return id;
 	}
 	
-	public static void insertMetadataRecord(String metadataname, String classId, String methodId, String attributeId)
+	public static int insertMetadataRecord(String metadataname, String classId, String methodId, String attributeId)
 	{
+		int metadataId = getIdAllocator().nextMetadataId();
+		
+		if( bulkLoadSession != null )
+		{
+			try
+			{
+				bulkLoadSession.insertMetadataRecord(metadataId, metadataname, classId, methodId, attributeId);
+			}
+			catch ( Exception e )
+			{
+			  System.err.println( "SQLDriver::insertMetadataRecord -> "+e.getClass().getName() + ": " + e.getMessage() );
+			  System.exit(0);
+			}
+			return metadataId;
+		}
+		
 		Connection c = null;
 	    Statement stmt = null;
 	    try 
 	    {
-	      Class.forName("org.sqlite.JDBC");
-	      c = DriverManager.getConnection("jdbc:sqlite:"+DATABASE_NAME);
-	      c.setAutoCommit(false);
+	      c = openConnection();
 	      
 	      stmt = c.createStatement();
-	      String sql = "INSERT INTO metadata (metadata_name,cl_id,me_id,attr_id) " +
-	                   "VALUES ('"+metadataname+"', '"+classId+"', '"+methodId+"', '"+attributeId+"');"; 
+	      String sql = "INSERT INTO metadata (met_id,metadata_name,cl_id,me_id,attr_id) " +
+	                   "VALUES ('"+metadataId+"', '"+metadataname+"', '"+classId+"', '"+methodId+"', '"+attributeId+"');"; 
 	      stmt.executeUpdate(sql);
 
 	      stmt.close();
-	      c.commit();
-	      c.close();
+	      closeConnection(c, true);
 	    } 
 	    catch ( Exception e ) 
 	    {
 	      System.err.println( "SQLDriver::insertMetadataRecord -> "+e.getClass().getName() + ": " + e.getMessage() );
 	      System.exit(0);
 	    }
+	    
+	    return metadataId;
 	}
 	
 	public static void insertMetadataKVPairRecord(String key, String value, String metadata_id)
 	{
+		if( bulkLoadSession != null )
+		{
+			try
+			{
+				bulkLoadSession.insertMetadataKVPairRecord(key, value, metadata_id);
+			}
+			catch ( Exception e )
+			{
+			  System.err.println( "SQLDriver::insertMetadataKVPairRecord -> "+e.getClass().getName() + ": " + e.getMessage() );
+			  System.exit(0);
+			}
+			return;
+		}
+		
 		Connection c = null;
 	    Statement stmt = null;
 	    try 
 	    {
-	      Class.forName("org.sqlite.JDBC");
-	      c = DriverManager.getConnection("jdbc:sqlite:"+DATABASE_NAME);
-	      c.setAutoCommit(false);
+	      c = openConnection();
 	      
 	      stmt = c.createStatement();
 	      String sql = "INSERT INTO  metadata_kv_pair (key,value,met_id) " +
@@ -498,8 +1054,7 @@ public class SQLDriver
 	      stmt.executeUpdate(sql);
 
 	      stmt.close();
-	      c.commit();
-	      c.close();
+	      closeConnection(c, true);
 	    } 
 	    catch ( Exception e ) 
 	    {
@@ -517,9 +1072,7 @@ public class SQLDriver
 	    try 
 	    {
 	      
-	      Class.forName("org.sqlite.JDBC");
-	      c = DriverManager.getConnection("jdbc:sqlite:"+DATABASE_NAME);
-	      c.setAutoCommit(false);
+	      c = openConnection();
 
 	      stmt = c.createStatement();
 	      ResultSet rs = stmt.executeQuery( "SELECT met_id from metadata order by met_id DESC LIMIT 1;" );
@@ -531,7 +1084,7 @@ public class SQLDriver
 	      
 	      rs.close();
 	      stmt.close();
-	      c.close();
+	      closeConnection(c, false);
 	    } 
 	    catch ( Exception e ) 
 	    {
@@ -550,9 +1103,7 @@ public class SQLDriver
 	    try 
 	    {
 	      
-	      Class.forName("org.sqlite.JDBC");
-	      c = DriverManager.getConnection("jdbc:sqlite:"+DATABASE_NAME);
-	      c.setAutoCommit(false);
+	      c = openConnection();
 
 	      stmt = c.createStatement();
 	      ResultSet rs = stmt.executeQuery( "SELECT cl_id from class order by cl_id DESC LIMIT 1;" );
@@ -564,7 +1115,7 @@ public class SQLDriver
 	      
 	      rs.close();
 	      stmt.close();
-	      c.close();
+	      closeConnection(c, false);
 	    } 
 	    catch ( Exception e ) 
 	    {
@@ -580,17 +1131,14 @@ public class SQLDriver
 	    Statement stmt = null;
 	    try 
 	    {
-	      Class.forName("org.sqlite.JDBC");
-	      c = DriverManager.getConnection("jdbc:sqlite:"+DATABASE_NAME);
-	      c.setAutoCommit(false);
+	      c = openConnection();
 	      
 	      stmt = c.createStatement();
 	      String sql = "UPDATE attribute SET is_tainted='1' WHERE attr_id='"+id+"';"; 
 	      stmt.executeUpdate(sql);
 
 	      stmt.close();
-	      c.commit();
-	      c.close();
+	      closeConnection(c, true);
 	    } 
 	    catch ( Exception e ) 
 	    {
@@ -608,9 +1156,7 @@ public class SQLDriver
 	    try 
 	    {
 	      
-	      Class.forName("org.sqlite.JDBC");
-	      c = DriverManager.getConnection("jdbc:sqlite:"+DATABASE_NAME);
-	      c.setAutoCommit(false);
+	      c = openConnection();
 
 	      stmt = c.createStatement();
 	      ResultSet rs = stmt.executeQuery( "SELECT is_tainted FROM method WHERE method_name='"+methodName+"' ;" );
@@ -622,7 +1168,7 @@ public class SQLDriver
 	      
 	      rs.close();
 	      stmt.close();
-	      c.close();
+	      closeConnection(c, false);
 	    } 
 	    catch ( Exception e ) 
 	    {
@@ -642,6 +1188,8 @@ public class SQLDriver
 	
 	public static ArrayList<String> getListOfUntaintedMethods()
 	{
+		DatabaseQueryEvent event = new DatabaseQueryEvent();
+		event.begin();
 		Connection c = null;
 	    Statement stmt = null;
 	    ArrayList<String> unTaintedMethods = new ArrayList<String>();
@@ -649,9 +1197,7 @@ public class SQLDriver
 	    try 
 	    {
 	      
-	      Class.forName("org.sqlite.JDBC");
-	      c = DriverManager.getConnection("jdbc:sqlite:"+DATABASE_NAME);
-	      c.setAutoCommit(false);
+	      c = openConnection();
 
 	      stmt = c.createStatement();
 	      ResultSet rs = stmt.executeQuery( "SELECT method_name FROM method WHERE is_tainted='0' ;" );
@@ -663,7 +1209,7 @@ public class SQLDriver
 	      
 	      rs.close();
 	      stmt.close();
-	      c.close();
+	      closeConnection(c, false);
 	    } 
 	    catch ( Exception e ) 
 	    {
@@ -671,86 +1217,163 @@ public class SQLDriver
 	      System.exit(0);
 	    }
 	    
+	    commitQueryEvent(event, "getListOfUntaintedMethods", unTaintedMethods.size());
 	    return unTaintedMethods;
 	}
 
-	public static ArrayList<String> getLoopCallGraphEntries() 
+	/**
+	 * Every method with the annotations the taint starts from in one query: one row per method and annotation of
+	 * the method, plus one row per annotation of the attributes the method is the getter or setter of.
+	 */
+	public static ArrayList<MethodMetadata> getMethodMetadata() 
 	{
+		DatabaseQueryEvent event = new DatabaseQueryEvent();
+		event.begin();
 		Connection c = null;
 	    Statement stmt = null;
-	    ArrayList<String> loopMethodEntries = new ArrayList<String>();
+	    ArrayList<MethodMetadata> methods = new ArrayList<MethodMetadata>();
 	   
 	    try 
 	    {
-	      
-	      Class.forName("org.sqlite.JDBC");
-	      c = DriverManager.getConnection("jdbc:sqlite:"+DATABASE_NAME);
-	      c.setAutoCommit(false);
+	      c = openConnection();
 
 	      stmt = c.createStatement();
-	      ResultSet rs = stmt.executeQuery( "SELECT source_method_name, target_method_name FROM callgraph WHERE target_method_executed_in_loop='1' ;" );
+	      ResultSet rs = stmt.executeQuery( "SELECT m.me_id, m.method_name, m.method_descriptor, md.metadata_name, 0 AS is_accessor FROM method m LEFT JOIN metadata md ON md.me_id = m.me_id " +
+	    		  "UNION ALL SELECT m.me_id, m.method_name, m.method_descriptor, md.metadata_name, 1 AS is_accessor FROM attribute a JOIN metadata md ON md.attr_id = a.attr_id " +
+	    		  "JOIN method m ON (m.me_id = a.getter_me_id OR m.me_id = a.setter_me_id) ;" );
 	      
 	      while ( rs.next() ) 
 	      {
-	    	  loopMethodEntries.add(rs.getString("source_method_name")+"_"+rs.getString("target_method_name"));
+	    	  methods.add(new MethodMetadata(rs.getInt("me_id"), rs.getString("method_name"), rs.getString("method_descriptor"), rs.getString("metadata_name"), rs.getInt("is_accessor") == 1));
 	      }
 	      
 	      rs.close();
 	      stmt.close();
-	      c.close();
+	      closeConnection(c, false);
 	    } 
 	    catch ( Exception e ) 
 	    {
-	      System.err.println("SQLDriver::getLoopCallGraphEntries -> "+ e.getClass().getName() + ": " + e.getMessage() );
+	      System.err.println("SQLDriver::getMethodMetadata -> "+ e.getClass().getName() + ": " + e.getMessage() );
 	      System.exit(0);
 	    }
 	    
-	    return loopMethodEntries;
+	    commitQueryEvent(event, "getMethodMetadata", methods.size());
+	    return methods;
+	}
+	
+	/**
+	 * Replaces the tainted status of every method: the given methods (me_id) are flagged, all the others are cleared,
+	 * in a single batch and transaction
+	 */
+	public static void replaceMethodTaintedStatus(Collection<Integer> taintedMethodIds)
+	{
+		DatabaseWriteEvent event = new DatabaseWriteEvent();
+		event.begin();
+		Connection c = null;
+	    try 
+	    {
+	      c = openConnection();
+	      
+	      Statement reset = c.createStatement();
+	      reset.executeUpdate("UPDATE method SET is_tainted='0' ;");
+	      reset.close();
+	      
+	      PreparedStatement stmt = c.prepareStatement("UPDATE method SET is_tainted='1' WHERE me_id=? ;");
+	      for(int methodId : taintedMethodIds)
+	      {
+	    	  stmt.setInt(1, methodId);
+	    	  stmt.addBatch();
+	      }
+	      stmt.executeBatch();
+	      stmt.close();
+	      
+	      closeConnection(c, true);
+	      commitWriteEvent(event, "replaceMethodTaintedStatus", taintedMethodIds.size());
+	    } 
+	    catch ( Exception e ) 
+	    {
+	      System.err.println(  "SQLDriver::replaceMethodTaintedStatus -> "+e.getClass().getName() + ": " + e.getMessage() );
+	      System.exit(0);
+	    }
 	}
 	
+	/**
+	 * All the edges of the call graph in one query, used to build the in-memory call graph index.
+	 */
+	public static ArrayList<CallGraphEdge> getCallGraphEdges() 
+	{
+		DatabaseQueryEvent event = new DatabaseQueryEvent();
+		event.begin();
+		Connection c = null;
+	    Statement stmt = null;
+	    ArrayList<CallGraphEdge> edges = new ArrayList<CallGraphEdge>();
+	   
+	    try 
+	    {
+	      c = openConnection();
+
+	      stmt = c.createStatement();
+	      ResultSet rs = stmt.executeQuery( "SELECT source_method_name, source_method_descriptor, target_method_name, target_method_descriptor, target_method_executed_in_loop FROM callgraph ;" );
+	      
+	      while ( rs.next() ) 
+	      {
+	    	  edges.add(new CallGraphEdge(rs.getString("source_method_name"), rs.getString("source_method_descriptor"), rs.getString("target_method_name"), rs.getString("target_method_descriptor"), rs.getInt("target_method_executed_in_loop") == 1));
+	      }
+	      
+	      rs.close();
+	      stmt.close();
+	      closeConnection(c, false);
+	    } 
+	    catch ( Exception e ) 
+	    {
+	      System.err.println("SQLDriver::getCallGraphEdges -> "+ e.getClass().getName() + ": " + e.getMessage() );
+	      System.exit(0);
+	    }
+	    
+	    commitQueryEvent(event, "getCallGraphEdges", edges.size());
+	    return edges;
+	}
 	
-	public static ArrayList<String> getSourceMethodsOfEntity(String entity)
+	public static ArrayList<String> getLoopCallGraphEntries() 
 	{
+		DatabaseQueryEvent event = new DatabaseQueryEvent();
+		event.begin();
 		Connection c = null;
 	    Statement stmt = null;
-	    ArrayList<String> resultEntries = new ArrayList<String>();
-	  
+	    ArrayList<String> loopMethodEntries = new ArrayList<String>();
+	   
 	    try 
 	    {
 	      
-	      Class.forName("org.sqlite.JDBC");
-	      c = DriverManager.getConnection("jdbc:sqlite:"+DATABASE_NAME);
-	      c.setAutoCommit(false);
+	      c = openConnection();
 
 	      stmt = c.createStatement();
-	      ResultSet rs = stmt.executeQuery( "SELECT source_method_name FROM callgraph WHERE target_method_name LIKE '"+entity+"%' ;" );
+	      ResultSet rs = stmt.executeQuery( "SELECT source_method_name, target_method_name FROM callgraph WHERE target_method_executed_in_loop='1' ;" );
 	      
 	      while ( rs.next() ) 
 	      {
-	    	  resultEntries.add(rs.getString("source_method_name"));
+	    	  loopMethodEntries.add(rs.getString("source_method_name")+"_"+rs.getString("target_method_name"));
 	      }
 	      
-	     //Remove Duplicates due to loops internally
-		 Set<String> hs = new HashSet<String>();
-		 hs.addAll(resultEntries);
-		 resultEntries.clear();
-		 resultEntries.addAll(hs);
-	      
 	      rs.close();
 	      stmt.close();
-	      c.close();
+	      closeConnection(c, false);
 	    } 
 	    catch ( Exception e ) 
 	    {
-	      System.err.println("SQLDriver::getClassNameAndIdByTargetEntityMetadata -> "+ e.getClass().getName() + ": " + e.getMessage() );
+	      System.err.println("SQLDriver::getLoopCallGraphEntries -> "+ e.getClass().getName() + ": " + e.getMessage() );
 	      System.exit(0);
 	    }
 	    
-	    return resultEntries;
+	    commitQueryEvent(event, "getLoopCallGraphEntries", loopMethodEntries.size());
+	    return loopMethodEntries;
 	}
 	
-	public static ArrayList<String> getTargetMethodsOfSource(String sourceMethod)
+	
+	public static ArrayList<String> getSourceMethodsOfEntity(String entity)
 	{
+		DatabaseQueryEvent event = new DatabaseQueryEvent();
+		event.begin();
 		Connection c = null;
 	    Statement stmt = null;
 	    ArrayList<String> resultEntries = new ArrayList<String>();
@@ -758,16 +1381,14 @@ public class SQLDriver
 	    try 
 	    {
 	      
-	      Class.forName("org.sqlite.JDBC");
-	      c = DriverManager.getConnection("jdbc:sqlite:"+DATABASE_NAME);
-	      c.setAutoCommit(false);
+	      c = openConnection();
 
 	      stmt = c.createStatement();
-	      ResultSet rs = stmt.executeQuery( "SELECT target_method_name FROM callgraph WHERE source_method_name = '"+sourceMethod+"' ;" );
+	      ResultSet rs = stmt.executeQuery( "SELECT source_method_name FROM callgraph WHERE target_method_name LIKE '"+entity+"%' ;" );
 	      
 	      while ( rs.next() ) 
 	      {
-	    	  resultEntries.add(rs.getString("target_method_name"));
+	    	  resultEntries.add(rs.getString("source_method_name"));
 	      }
 	      
 	     //Remove Duplicates due to loops internally
@@ -778,102 +1399,102 @@ public class SQLDriver
 	      
 	      rs.close();
 	      stmt.close();
-	      c.close();
+	      closeConnection(c, false);
 	    } 
 	    catch ( Exception e ) 
 	    {
-	      System.err.println("SQLDriver::getTargetMethodsOfSource -> "+ e.getClass().getName() + ": " + e.getMessage() );
+	      System.err.println("SQLDriver::getClassNameAndIdByTargetEntityMetadata -> "+ e.getClass().getName() + ": " + e.getMessage() );
 	      System.exit(0);
 	    }
 	    
+	    commitQueryEvent(event, "getSourceMethodsOfEntity", resultEntries.size());
 	    return resultEntries;
 	}
 	
-	/*Please note that this method shoudl eb used witha  degree of uncertainity.*/
-	public static String getClassNameAndIdByTargetEntityMetadata(String targetEntity)
+	public static ArrayList<String> getTargetMethodsOfSource(String sourceMethod)
 	{
+		DatabaseQueryEvent event = new DatabaseQueryEvent();
+		event.begin();
 		Connection c = null;
 	    Statement stmt = null;
-	    String resultEntries = "";
-	    
-		
-		//KLAJDI: Need to truncate the L in the first position and ; in the last position and replace / with . so it becomes a class
-	    
-	    StringBuilder sb = new StringBuilder(targetEntity);
-	    sb.deleteCharAt(targetEntity.length()-1);
-	    sb.deleteCharAt(0);
-	    targetEntity = sb.toString();
-	    targetEntity =  targetEntity.replace("/", ".");
-	    
+	    ArrayList<String> resultEntries = new ArrayList<String>();
+	  
 	    try 
 	    {
 	      
-	      Class.forName("org.sqlite.JDBC");
-	      c = DriverManager.getConnection("jdbc:sqlite:"+DATABASE_NAME);
-	      c.setAutoCommit(false);
+	      c = openConnection();
 
 	      stmt = c.createStatement();
-	      ResultSet rs = stmt.executeQuery( "SELECT cl_id, class_name FROM class WHERE class_name = '"+targetEntity+"' ORDER BY cl_id DESC LIMIT 1 ;" );
+	      ResultSet rs = stmt.executeQuery( "SELECT target_method_name FROM callgraph WHERE source_method_name = '"+sourceMethod+"' ;" );
 	      
 	      while ( rs.next() ) 
 	      {
-	    	  resultEntries = rs.getString("cl_id")+"_"+rs.getString("class_name");
+	    	  resultEntries.add(rs.getString("target_method_name"));
 	      }
 	      
+	     //Remove Duplicates due to loops internally
+		 Set<String> hs = new HashSet<String>();
+		 hs.addAll(resultEntries);
+		 resultEntries.clear();
+		 resultEntries.addAll(hs);
+	      
 	      rs.close();
 	      stmt.close();
-	      c.close();
+	      closeConnection(c, false);
 	    } 
 	    catch ( Exception e ) 
 	    {
-	      System.err.println("SQLDriver::getClassNameAndIdByTargetEntityMetadata -> "+ e.getClass().getName() + ": " + e.getMessage() );
+	      System.err.println("SQLDriver::getTargetMethodsOfSource -> "+ e.getClass().getName() + ": " + e.getMessage() );
 	      System.exit(0);
 	    }
 	    
+	    commitQueryEvent(event, "getTargetMethodsOfSource", resultEntries.size());
 	    return resultEntries;
 	}
 	
 	/**
 	 *  //List all ID of metadata that have a fetch key with value EAGER and a key mappedBy in their kv pair list
-	 *	//Loop through this list and get the matching attribute which should be an instance of an Entity class (else dismiss).	
-	 *	//Insert a new mapped-mapper pair for analysis
+	 *	//Join the targetEntity value (Lorg/example/Entity;) with the class it names, the latest class of that name wins.
+	 *	//One mapped-mapper pair per row, in a single query
 	 */
 	public static ArrayList<EagerlyMappedEntitiesTuple> getEagerlyMappedEntities() 
 	{
+		DatabaseQueryEvent event = new DatabaseQueryEvent();
+		event.begin();
 		Connection c = null;
 	    Statement stmt = null;
-	    ArrayList<String> resultEntries = new ArrayList<String>();
 	    ArrayList<EagerlyMappedEntitiesTuple>  eagerlyRelatedTuplesList = new ArrayList<EagerlyMappedEntitiesTuple>();
 
 	    String sqlQuery=""
 	    		+"SELECT "
-	    		+"mvkp1.value AS 'mapped_entity', "
+	    		+"cls2.class_name AS 'mapped_entity', "
+	    		+"cls2.cl_id AS 'mapped_entity_id', "
 	    		+"cls1.class_name AS 'mapper_entity', "
 	    		+"cls1.cl_id AS 'mapper_entity_id' "
-	    		+"FROM metadata_kv_pair AS 'mvkp1'" 
-	    		+"LEFT JOIN metadata met1 ON mvkp1.met_id = met1.met_id "
-	    		+"LEFT JOIN attribute attr1 ON met1.attr_id = attr1.attr_id "
-	    		+"LEFT JOIN class cls1 ON attr1.cl_id = cls1.cl_id "
+	    		+"FROM metadata_kv_pair AS 'mvkp1' " 
+	    		+"JOIN metadata met1 ON mvkp1.met_id = met1.met_id "
+	    		+"JOIN attribute attr1 ON met1.attr_id = attr1.attr_id "
+	    		+"JOIN class cls1 ON attr1.cl_id = cls1.cl_id "
+	    		+"JOIN ( SELECT class_name, MAX(cl_id) AS cl_id FROM class GROUP BY class_name ) cls2 "
+	    		+"ON cls2.class_name = REPLACE(SUBSTR(mvkp1.value, 2, LENGTH(mvkp1.value) - 2), '/', '.') "
 	    		+"WHERE mvkp1.met_id IN ( select met_id from metadata " 
 	    		+"WHERE metadata.metadata_name LIKE '%OneToMany%' "
 	    		+"GROUP BY attr_id) and key='targetEntity' ;";
 	    try 
 	    {
-	      Class.forName("org.sqlite.JDBC");
-	      c = DriverManager.getConnection("jdbc:sqlite:"+DATABASE_NAME);
-	      c.setAutoCommit(false);
+	      c = openConnection();
 
 	      stmt = c.createStatement();
 	      ResultSet rs = stmt.executeQuery( sqlQuery );
 	      
 	      while ( rs.next() ) 
 	      {
-	    	  resultEntries.add(rs.getString("mapper_entity_id")+"_"+rs.getString("mapper_entity")+"_"+rs.getString("mapped_entity"));
+	    	  eagerlyRelatedTuplesList.add(new EagerlyMappedEntitiesTuple(rs.getString("mapped_entity"), rs.getString("mapper_entity"), rs.getString("mapped_entity_id"), rs.getString("mapper_entity_id")));
 	      }
 	      
 	      rs.close();
 	      stmt.close();
-	      c.close();
+	      closeConnection(c, false);
 	    } 
 	    catch ( Exception e ) 
 	    {
@@ -881,39 +1502,8 @@ public class SQLDriver
 	      System.exit(0);
 	    }
 	    
-	     //Remove Duplicates due to loops internally 
-	     //TODO-KLAJDI: this done in sql
-		 //Set<String> hs = new HashSet<String>();
-		 //hs.addAll(resultEntries);
-		 //resultEntries.clear();
-		 //resultEntries.addAll(hs);
-	    
-	    //Populate the list of tuples
-	    for(int i=0; i < resultEntries.size(); i++)
-	    {
-	    	String[] piecesOfResult = resultEntries.get(i).split("_");
-	    	
-	    	String mappedEntityId = "";
-	    	String mappedEntityName = "";
-	    	
-	    	if(piecesOfResult.length > 0)
-	    	{
-	    		String resultOfMetaDataClassMatch = SQLDriver.getClassNameAndIdByTargetEntityMetadata(piecesOfResult[2]);
-	    		if(!(resultOfMetaDataClassMatch.equals("")))
-	    		{
-	    			String[] piecesOfMetadataMatch = resultOfMetaDataClassMatch.split("_");
-	    			mappedEntityId = piecesOfMetadataMatch[0];
-	    			mappedEntityName = piecesOfMetadataMatch[1];
-	    		}
-	    	}
-	    	
-	    	if((!(mappedEntityId.equals(""))))
-	    	{
-	    		eagerlyRelatedTuplesList.add(new EagerlyMappedEntitiesTuple(mappedEntityName, piecesOfResult[1], mappedEntityId, piecesOfResult[0]));
-	    		  		
-	    	}
-	    }
-	    System.out.println("INFO: Counted "+eagerlyRelatedTuplesList.size()+" tuples");
+	    Console.info("INFO: Counted "+eagerlyRelatedTuplesList.size()+" tuples");
+	    commitQueryEvent(event, "getEagerlyMappedEntities", eagerlyRelatedTuplesList.size());
 	    return eagerlyRelatedTuplesList;
 	}
 }
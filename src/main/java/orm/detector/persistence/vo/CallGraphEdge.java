@@ -0,0 +1,47 @@
+package main.java.orm.detector.persistence.vo;
+
+public class CallGraphEdge
+{
+	private String sourceMethodName;
+	private String sourceMethodDescriptor;
+	private String targetMethodName;
+	private String targetMethodDescriptor;
+	private boolean calledInLoop;
+
+	public CallGraphEdge( String sourceMethodName, String sourceMethodDescriptor, String targetMethodName, String targetMethodDescriptor, boolean calledInLoop )
+	{
+		this.sourceMethodName = sourceMethodName;
+		this.sourceMethodDescriptor = (sourceMethodDescriptor == null) ? "" : sourceMethodDescriptor;
+		this.targetMethodName = targetMethodName;
+		this.targetMethodDescriptor = (targetMethodDescriptor == null) ? "" : targetMethodDescriptor;
+		this.calledInLoop = calledInLoop;
+	}
+
+	public String getSourceMethodName()
+	{
+		return sourceMethodName;
+	}
+
+	public String getTargetMethodName()
+	{
+		return targetMethodName;
+	}
+
+	/**
+	 * JVM descriptors of the source and target methods, empty for edges extracted before they were recorded
+	 */
+	public String getSourceMethodDescriptor()
+	{
+		return sourceMethodDescriptor;
+	}
+
+	public String getTargetMethodDescriptor()
+	{
+		return targetMethodDescriptor;
+	}
+
+	public boolean isCalledInLoop()
+	{
+		return calledInLoop;
+	}
+}
@@ -0,0 +1,81 @@
+package main.java.orm.detector.persistence.vo;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+public class ClassSource 
+{
+	//Artifact, version with its release qualifier and classifier of a jar file name, e.g. broadleaf-framework, -3.0.10-GA and -tests
+	private static final Pattern JAR_VERSION = Pattern.compile("^(.+?)-\\d[0-9a-z._]*(?:-(?:GA|SNAPSHOT|RELEASE|FINAL|M\\d+|RC\\d*|BETA\\d*|ALPHA\\d*))?(-[a-z][0-9a-z._-]*)?\\.jar$", Pattern.CASE_INSENSITIVE);
+
+	private int sourceId;
+	private String entryName;
+	private String jarName;
+	private String contentHash;
+	private int classId;
+	
+	public ClassSource( int sourceId, String entryName, String jarName, String contentHash, int classId )
+	{
+		this.sourceId = sourceId;
+		this.entryName = entryName;
+		this.jarName = jarName;
+		this.contentHash = contentHash;
+		this.classId = classId;
+	}
+	
+	public int getSourceId() 
+	{
+		return sourceId;
+	}
+	
+	public String getEntryName() 
+	{
+		return entryName;
+	}
+	
+	public String getJarName() 
+	{
+		return jarName;
+	}
+	
+	/**
+	 * Identifies the class file across runs and releases: the same entry may exist in several jars, but the jars
+	 * are renamed by every release, so only the artifact name of the jar is part of the key
+	 */
+	public String getKey() 
+	{
+		return getKey(jarName, entryName);
+	}
+	
+	public static String getKey( String jarName, String entryName )
+	{
+		return getArtifactName(jarName) + "!" + entryName;
+	}
+	
+	/**
+	 * Jar file name without its version, broadleaf-framework-3.0.10-GA.jar gives broadleaf-framework. The classifier
+	 * is kept, broadleaf-framework-3.0.10-GA-tests.jar gives broadleaf-framework-tests
+	 */
+	public static String getArtifactName( String jarName )
+	{
+		Matcher matcher = JAR_VERSION.matcher(jarName);
+		if( matcher.matches() )
+		{
+			return matcher.group(1) + ((matcher.group(2) == null) ? "" : matcher.group(2));
+		}
+		return jarName.toLowerCase().endsWith(".jar") ? jarName.substring(0, jarName.length() - 4) : jarName;
+	}
+	
+	public String getContentHash() 
+	{
+		return contentHash;
+	}
+	
+	/**
+	 * Id of the class extracted from this class file, 0 when the class was not stored
+	 */
+	public int getClassId() 
+	{
+		return classId;
+	}
+}
@@ -0,0 +1,26 @@
+package main.java.orm.detector.persistence.vo;
+
+public class ClassSupertype 
+{
+	private String className;
+	private String supertypeName;
+	
+	public ClassSupertype( String className, String supertypeName )
+	{
+		this.className = className;
+		this.supertypeName = supertypeName;
+	}
+	
+	public String getClassName() 
+	{
+		return className;
+	}
+	
+	/**
+	 * Superclass or interface directly extended or implemented by the class
+	 */
+	public String getSupertypeName() 
+	{
+		return supertypeName;
+	}
+}
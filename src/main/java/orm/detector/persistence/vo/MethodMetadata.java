@@ -0,0 +1,56 @@
+package main.java.orm.detector.persistence.vo;
+
+public class MethodMetadata 
+{
+	private int methodId;
+	private String methodName;
+	private String methodDescriptor;
+	private String metadataName;
+	private boolean accessor;
+	
+	public MethodMetadata( int methodId, String methodName, String methodDescriptor, String metadataName, boolean accessor )
+	{
+		this.methodId = methodId;
+		this.methodName = methodName;
+		this.methodDescriptor = (methodDescriptor == null) ? "" : methodDescriptor;
+		this.metadataName = metadataName;
+		this.accessor = accessor;
+	}
+	
+	/**
+	 * me_id of the method
+	 */
+	public int getMethodId() 
+	{
+		return methodId;
+	}
+	
+	public String getMethodName() 
+	{
+		return methodName;
+	}
+	
+	/**
+	 * JVM descriptor of the method, empty for methods extracted before it was recorded
+	 */
+	public String getMethodDescriptor() 
+	{
+		return methodDescriptor;
+	}
+	
+	/**
+	 * Annotation type of the method, or of the attribute when the method is its accessor, null for a method without annotations
+	 */
+	public String getMetadataName() 
+	{
+		return metadataName;
+	}
+	
+	/**
+	 * True when the annotation is on the attribute the method is the getter or setter of
+	 */
+	public boolean isAccessor() 
+	{
+		return accessor;
+	}
+}
@@ -0,0 +1,56 @@
+package main.java.orm.detector.persistence.vo;
+
+public class TransactionalMethod 
+{
+	private String methodName;
+	private String methodDescriptor;
+	private String propagation;
+	private boolean classLevel;
+	private int accessFlags;
+	
+	public TransactionalMethod( String methodName, String methodDescriptor, String propagation, boolean classLevel, int accessFlags )
+	{
+		this.methodName = methodName;
+		this.methodDescriptor = (methodDescriptor == null) ? "" : methodDescriptor;
+		this.propagation = propagation;
+		this.classLevel = classLevel;
+		this.accessFlags = accessFlags;
+	}
+	
+	public String getMethodName() 
+	{
+		return methodName;
+	}
+	
+	/**
+	 * JVM descriptor of the method, empty for methods extracted before it was recorded
+	 */
+	public String getMethodDescriptor() 
+	{
+		return methodDescriptor;
+	}
+	
+	/**
+	 * Propagation value of the annotation as extracted (REQUIRES_NEW, ...), null when it is not set
+	 */
+	public String getPropagation() 
+	{
+		return propagation;
+	}
+	
+	/**
+	 * True when the annotation is on the class of the method rather than on the method
+	 */
+	public boolean isClassLevel() 
+	{
+		return classLevel;
+	}
+	
+	/**
+	 * JVM access flags of the method (ACC_PRIVATE, ACC_STATIC, ...), 0 for methods extracted before they were recorded
+	 */
+	public int getAccessFlags() 
+	{
+		return accessFlags;
+	}
+}
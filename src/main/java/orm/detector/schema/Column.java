@@ -0,0 +1,104 @@
+package main.java.orm.detector.schema;
+
+/**
+ * Column of a schema table. The size and scale are -1 when the type has none, the type is null for columns only
+ * known from the column list of an INSERT.
+ */
+public class Column
+{
+	private String name;
+	private String typeName;
+	private int size = -1;
+	private int scale = -1;
+	private boolean nullable = true;
+	private boolean primaryKey;
+	private String defaultValue;
+	private String sequenceName;
+
+	public Column( String name )
+	{
+		this.name = name;
+	}
+
+	public String getName()
+	{
+		return name;
+	}
+
+	public String getTypeName()
+	{
+		return typeName;
+	}
+
+	void setType( String typeName, int size, int scale )
+	{
+		this.typeName = typeName;
+		this.size = size;
+		this.scale = scale;
+	}
+
+	public int getSize()
+	{
+		return size;
+	}
+
+	public int getScale()
+	{
+		return scale;
+	}
+
+	public boolean isNullable()
+	{
+		return nullable;
+	}
+
+	void setNullable( boolean nullable )
+	{
+		this.nullable = nullable;
+	}
+
+	public boolean isPrimaryKey()
+	{
+		return primaryKey;
+	}
+
+	void setPrimaryKey( boolean primaryKey )
+	{
+		this.primaryKey = primaryKey;
+		if( primaryKey )
+		{
+			this.nullable = false;
+		}
+	}
+
+	/**
+	 * Text of the DEFAULT clause, null without one
+	 */
+	public String getDefaultValue()
+	{
+		return defaultValue;
+	}
+
+	void setDefaultValue( String defaultValue )
+	{
+		this.defaultValue = defaultValue;
+	}
+
+	/**
+	 * Sequence of a nextval('...') default, null without one
+	 */
+	public String getSequenceName()
+	{
+		return sequenceName;
+	}
+
+	void setSequenceName( String sequenceName )
+	{
+		this.sequenceName = sequenceName;
+	}
+
+	public String toString()
+	{
+		return name+" "+typeName+((size >= 0) ? "("+size+((scale >= 0) ? ","+scale : "")+")" : "");
+	}
+}
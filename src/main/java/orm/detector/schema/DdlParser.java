@@ -0,0 +1,849 @@
+package main.java.orm.detector.schema;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import main.java.orm.detector.logger.Console;
+import main.java.orm.detector.logger.Logger;
+import main.java.orm.detector.metrics.Metrics;
+import main.java.orm.detector.metrics.PhaseMetrics;
+import main.java.orm.detector.metrics.Stopwatch;
+
+/**
+ * Streaming parser of SQL scripts into a SchemaModel. Statements are read token by token from the file, nothing
+ * but the model is kept, so multi-megabyte dumps are parsed in constant memory.
+ *
+ * Understood statements:
+ * CREATE TABLE (columns with type, size, NOT NULL, DEFAULT, PRIMARY KEY, UNIQUE and inline KEY/INDEX, table
+ * PRIMARY KEY and UNIQUE constraints), CREATE [UNIQUE] INDEX, CREATE SEQUENCE, ALTER TABLE ... ADD (one column or
+ * constraint) and INSERT INTO (row counts, column names, rows of SEQUENCE_GENERATOR as sequences). A nextval('...')
+ * or NEXT VALUE FOR anywhere in a script references a sequence. Anything else is skipped up to its ';'.
+ */
+public class DdlParser
+{
+	private static final String SEQUENCE_GENERATOR_TABLE = "sequence_generator";
+	private static final int MAX_DEFAULT_LENGTH = 256;
+
+	private SchemaModel model;
+	private DdlTokenizer tokens;
+
+	public DdlParser( SchemaModel model )
+	{
+		this.model = model;
+	}
+
+	/**
+	 * Parses the schema at the given path, a single SQL file or a directory whose .sql files are all parsed
+	 * (e.g. a whole release with its load_*.sql files)
+	 */
+	public static SchemaModel parse(String schemaPath)
+	{
+		Stopwatch stopwatch = Stopwatch.start();
+		SchemaModel model = new SchemaModel();
+		if( (schemaPath == null) || schemaPath.trim().isEmpty() )
+		{
+			return model;
+		}
+
+		DdlParser parser = new DdlParser(model);
+		for(File file : listSqlFiles(new File(schemaPath.trim())))
+		{
+			Reader reader = null;
+			try
+			{
+				reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8), 1 << 16);
+				parser.parse(reader);
+				model.addFile();
+			}
+			catch (IOException e)
+			{
+				System.err.println("DdlParser::parse -> "+file.getAbsolutePath()+" "+e.getMessage());
+			}
+			finally
+			{
+				try
+				{
+					if( reader != null )
+					{
+						reader.close();
+					}
+				}
+				catch (IOException e)
+				{
+					e.printStackTrace();
+				}
+			}
+		}
+
+		Console.info("INFO: Parsed the sql schema, "+model.getTables().size()+" tables, "+model.getSequences().size()+" sequences and "+model.getIndexes().size()+" indexes from "+model.getFileCount()+" sql files");
+		Logger.log("INFO: Parsed the sql schema, "+model.getTables().size()+" tables, "+model.getSequences().size()+" sequences and "+model.getIndexes().size()+" indexes from "+model.getFileCount()+" sql files");
+
+		PhaseMetrics schemaMetrics = Metrics.phase(Metrics.SCHEMA_PARSE);
+		schemaMetrics.record(stopwatch);
+		schemaMetrics.count("files", model.getFileCount());
+		schemaMetrics.count("tables", model.getTables().size());
+		schemaMetrics.count("sequences", model.getSequences().size());
+		schemaMetrics.count("indexes", model.getIndexes().size());
+		return model;
+	}
+
+	/**
+	 * Parses one script into the model
+	 */
+	public void parse(Reader reader) throws IOException
+	{
+		tokens = new DdlTokenizer(reader);
+		tokens.advance();
+		while( tokens.type != DdlTokenizer.EOF )
+		{
+			if( tokens.isWord("CREATE") )
+			{
+				parseCreate();
+			}
+			else if( tokens.isWord("ALTER") )
+			{
+				parseAlter();
+			}
+			else if( tokens.isWord("INSERT") )
+			{
+				parseInsert();
+			}
+			skipStatement();
+		}
+	}
+
+	private void parseCreate() throws IOException
+	{
+		tokens.advance();
+		boolean unique = false;
+		while( tokens.type == DdlTokenizer.WORD )
+		{
+			if( tokens.isWord("TABLE") )
+			{
+				parseCreateTable();
+				return;
+			}
+			else if( tokens.isWord("INDEX") )
+			{
+				parseCreateIndex(unique);
+				return;
+			}
+			else if( tokens.isWord("SEQUENCE") )
+			{
+				parseCreateSequence();
+				return;
+			}
+			else if( tokens.isWord("UNIQUE") )
+			{
+				unique = true;
+			}
+			else if( tokens.isWord("VIEW") || tokens.isWord("TRIGGER") || tokens.isWord("PROCEDURE") || tokens.isWord("FUNCTION") )
+			{
+				return;
+			}
+
+			//OR REPLACE, TEMPORARY, CACHED, CLUSTERED...
+			tokens.advance();
+		}
+	}
+
+	private void parseCreateTable() throws IOException
+	{
+		tokens.advance();
+		skipIfNotExists();
+		if( !tokens.isName() )
+		{
+			return;
+		}
+
+		Table table = model.getOrAddTable(readName());
+		table.setDeclared(true);
+		if( !tokens.isSymbol('(') )
+		{
+			//CREATE TABLE ... AS SELECT
+			return;
+		}
+
+		tokens.advance();
+		while( tokens.type != DdlTokenizer.EOF )
+		{
+			parseTableElement(table);
+			skipElement();
+			if( tokens.isSymbol(',') )
+			{
+				tokens.advance();
+			}
+			else
+			{
+				if( tokens.isSymbol(')') )
+				{
+					tokens.advance();
+				}
+				return;
+			}
+		}
+	}
+
+	/**
+	 * A column definition or a table constraint, of a CREATE TABLE or an ALTER TABLE ... ADD
+	 */
+	private void parseTableElement(Table table) throws IOException
+	{
+		if( tokens.isWord("CONSTRAINT") )
+		{
+			tokens.advance();
+			if( tokens.isName() )
+			{
+				tokens.advance();
+			}
+		}
+
+		if( tokens.isWord("PRIMARY") )
+		{
+			tokens.advance();
+			skipWord("KEY");
+			for(String columnName : readColumnList())
+			{
+				table.getOrAddColumn(columnName).setPrimaryKey(true);
+			}
+		}
+		else if( tokens.isWord("UNIQUE") || tokens.isWord("KEY") || tokens.isWord("INDEX") )
+		{
+			boolean unique = tokens.isWord("UNIQUE");
+			tokens.advance();
+			if( tokens.isWord("KEY") || tokens.isWord("INDEX") )
+			{
+				tokens.advance();
+			}
+			String indexName = tokens.isName() ? readName() : null;
+			table.addIndex(new Index(indexName, table.getName(), readColumnList(), unique));
+		}
+		else if( tokens.isWord("FOREIGN") || tokens.isWord("CHECK") || tokens.isWord("FULLTEXT") || tokens.isWord("SPATIAL") )
+		{
+			return;
+		}
+		else if( tokens.isName() )
+		{
+			parseColumn(table);
+		}
+	}
+
+	private void parseColumn(Table table) throws IOException
+	{
+		Column column = table.addColumn(new Column(tokens.text));
+		tokens.advance();
+
+		if( tokens.type == DdlTokenizer.WORD )
+		{
+			StringBuilder typeName = new StringBuilder(tokens.text);
+			tokens.advance();
+			while( tokens.isWord("PRECISION") || tokens.isWord("VARYING") )
+			{
+				typeName.append(' ').append(tokens.text);
+				tokens.advance();
+			}
+
+			int size = -1;
+			int scale = -1;
+			if( tokens.isSymbol('(') )
+			{
+				tokens.advance();
+				size = readNumber();
+				if( tokens.isSymbol(',') )
+				{
+					tokens.advance();
+					scale = readNumber();
+				}
+				skipElement();
+				if( tokens.isSymbol(')') )
+				{
+					tokens.advance();
+				}
+			}
+			column.setType(typeName.toString().toUpperCase(Locale.ROOT), size, scale);
+		}
+
+		//Column constraints, up to the end of the element
+		while( !isElementEnd() )
+		{
+			if( tokens.isWord("NOT") )
+			{
+				tokens.advance();
+				if( tokens.isWord("NULL") )
+				{
+					column.setNullable(false);
+					tokens.advance();
+				}
+			}
+			else if( tokens.isWord("NULL") )
+			{
+				column.setNullable(true);
+				tokens.advance();
+			}
+			else if( tokens.isWord("PRIMARY") )
+			{
+				tokens.advance();
+				skipWord("KEY");
+				column.setPrimaryKey(true);
+			}
+			else if( tokens.isWord("UNIQUE") )
+			{
+				tokens.advance();
+				skipWord("KEY");
+				List<String> columnNames = new ArrayList<String>();
+				columnNames.add(column.getName());
+				table.addIndex(new Index(null, table.getName(), columnNames, true));
+			}
+			else if( tokens.isWord("DEFAULT") )
+			{
+				tokens.advance();
+				parseDefault(column);
+			}
+			else if( tokens.isSymbol('(') )
+			{
+				skipParentheses();
+			}
+			else
+			{
+				skipToken();
+			}
+		}
+	}
+
+	/**
+	 * Reads the default expression up to the next column constraint, a nextval('...') in it is the column's sequence
+	 */
+	private void parseDefault(Column column) throws IOException
+	{
+		StringBuilder value = new StringBuilder();
+		int depth = 0;
+		while( (tokens.type != DdlTokenizer.EOF) && !tokens.isSymbol(';') )
+		{
+			if( depth == 0 )
+			{
+				if( tokens.isSymbol(',') || tokens.isSymbol(')') || isColumnConstraint() )
+				{
+					break;
+				}
+			}
+
+			if( isSequenceReference() )
+			{
+				String sequenceName = readSequenceReference();
+				if( sequenceName != null )
+				{
+					column.setSequenceName(sequenceName);
+					append(value, "nextval('"+sequenceName+"')");
+				}
+				continue;
+			}
+
+			if( tokens.isSymbol('(') )
+			{
+				depth++;
+			}
+			else if( tokens.isSymbol(')') )
+			{
+				depth--;
+			}
+			append(value, (tokens.type == DdlTokenizer.STRING) ? "'"+tokens.text+"'" : tokens.text);
+			tokens.advance();
+		}
+		column.setDefaultValue(value.toString());
+	}
+
+	private boolean isColumnConstraint()
+	{
+		return tokens.isWord("NOT") || tokens.isWord("NULL") || tokens.isWord("PRIMARY") || tokens.isWord("UNIQUE")
+				|| tokens.isWord("REFERENCES") || tokens.isWord("CHECK") || tokens.isWord("CONSTRAINT")
+				|| tokens.isWord("AUTO_INCREMENT") || tokens.isWord("GENERATED") || tokens.isWord("COMMENT");
+	}
+
+	private static void append(StringBuilder value, String text)
+	{
+		if( value.length() >= MAX_DEFAULT_LENGTH )
+		{
+			return;
+		}
+		if( (value.length() > 0) && !text.equals(")") && !text.equals("(") && !text.equals(",") && (value.charAt(value.length() - 1) != '(') )
+		{
+			value.append(' ');
+		}
+		value.append(text);
+	}
+
+	private void parseCreateIndex(boolean unique) throws IOException
+	{
+		tokens.advance();
+		skipIfNotExists();
+		String indexName = null;
+		if( tokens.isName() && !tokens.isWord("ON") )
+		{
+			indexName = readName();
+		}
+		if( !tokens.isWord("ON") )
+		{
+			return;
+		}
+
+		tokens.advance();
+		if( !tokens.isName() )
+		{
+			return;
+		}
+		Table table = model.getOrAddTable(readName());
+		if( tokens.isWord("USING") )
+		{
+			tokens.advance();
+			tokens.advance();
+		}
+		table.addIndex(new Index(indexName, table.getName(), readColumnList(), unique));
+	}
+
+	private void parseCreateSequence() throws IOException
+	{
+		tokens.advance();
+		skipIfNotExists();
+		if( !tokens.isName() )
+		{
+			return;
+		}
+
+		Sequence sequence = model.getOrAddSequence(readName());
+		sequence.setCreated(true);
+		while( (tokens.type != DdlTokenizer.EOF) && !tokens.isSymbol(';') )
+		{
+			if( tokens.isWord("START") )
+			{
+				tokens.advance();
+				skipWord("WITH");
+				if( tokens.type == DdlTokenizer.NUMBER )
+				{
+					sequence.setStartValue(parseLong(tokens.text));
+				}
+			}
+			else
+			{
+				tokens.advance();
+			}
+		}
+	}
+
+	private void parseAlter() throws IOException
+	{
+		tokens.advance();
+		if( !tokens.isWord("TABLE") )
+		{
+			return;
+		}
+
+		tokens.advance();
+		skipWord("ONLY");
+		if( tokens.isWord("IF") )
+		{
+			tokens.advance();
+			skipWord("EXISTS");
+		}
+		if( !tokens.isName() )
+		{
+			return;
+		}
+
+		Table table = model.getOrAddTable(readName());
+		if( tokens.isWord("ADD") )
+		{
+			tokens.advance();
+			skipWord("COLUMN");
+			parseTableElement(table);
+		}
+	}
+
+	private void parseInsert() throws IOException
+	{
+		tokens.advance();
+		skipWord("INTO");
+		if( !tokens.isName() )
+		{
+			return;
+		}
+
+		Table table = model.getOrAddTable(readName());
+		boolean sequenceGenerator = SchemaModel.key(table.getName()).equals(SEQUENCE_GENERATOR_TABLE);
+
+		//Position of the sequence name and of its value in the rows of the generator table
+		int nameIndex = 0;
+		int valueIndex = 1;
+		if( tokens.isSymbol('(') )
+		{
+			List<String> columnNames = readColumnList();
+			for(int i = 0; i < columnNames.size(); i++)
+			{
+				table.getOrAddColumn(columnNames.get(i));
+				String key = columnNames.get(i).toLowerCase(Locale.ROOT);
+				if( key.contains("name") )
+				{
+					nameIndex = i;
+				}
+				else if( key.contains("val") )
+				{
+					valueIndex = i;
+				}
+			}
+		}
+
+		if( !tokens.isWord("VALUES") )
+		{
+			//INSERT ... SELECT
+			return;
+		}
+
+		tokens.advance();
+		long rows = 0;
+		while( tokens.isSymbol('(') )
+		{
+			rows++;
+			parseRow(sequenceGenerator, nameIndex, valueIndex);
+			if( !tokens.isSymbol(',') )
+			{
+				break;
+			}
+			tokens.advance();
+		}
+		table.addInsertedRows(rows);
+	}
+
+	/**
+	 * Walks one row of values, the rows of the generator table are declared as sequences
+	 */
+	private void parseRow(boolean sequenceGenerator, int nameIndex, int valueIndex) throws IOException
+	{
+		tokens.advance();
+		int index = 0;
+		int depth = 0;
+		String sequenceName = null;
+		Long startValue = null;
+		while( (tokens.type != DdlTokenizer.EOF) && !tokens.isSymbol(';') )
+		{
+			if( depth == 0 )
+			{
+				if( tokens.isSymbol(')') )
+				{
+					tokens.advance();
+					break;
+				}
+				if( tokens.isSymbol(',') )
+				{
+					index++;
+					tokens.advance();
+					continue;
+				}
+				if( sequenceGenerator && (index == nameIndex) && ((tokens.type == DdlTokenizer.STRING) || tokens.isName()) )
+				{
+					sequenceName = tokens.text;
+				}
+				else if( sequenceGenerator && (index == valueIndex) && (tokens.type == DdlTokenizer.NUMBER) )
+				{
+					startValue = parseLong(tokens.text);
+				}
+			}
+
+			if( tokens.isSymbol('(') )
+			{
+				depth++;
+			}
+			else if( tokens.isSymbol(')') )
+			{
+				depth--;
+			}
+			skipToken();
+		}
+
+		if( (sequenceName != null) && !sequenceName.trim().isEmpty() )
+		{
+			Sequence sequence = model.getOrAddSequence(sequenceName.trim());
+			sequence.setGeneratorRow(true);
+			if( startValue != null )
+			{
+				sequence.setStartValue(startValue);
+			}
+		}
+	}
+
+	/**
+	 * ( name [ASC|DESC|(length)], ... ), an empty list when the current token does not open one
+	 */
+	private List<String> readColumnList() throws IOException
+	{
+		List<String> columnNames = new ArrayList<String>();
+		if( !tokens.isSymbol('(') )
+		{
+			return columnNames;
+		}
+
+		tokens.advance();
+		while( tokens.type != DdlTokenizer.EOF )
+		{
+			if( tokens.isName() )
+			{
+				columnNames.add(tokens.text);
+				tokens.advance();
+			}
+			skipElement();
+			if( tokens.isSymbol(',') )
+			{
+				tokens.advance();
+			}
+			else
+			{
+				if( tokens.isSymbol(')') )
+				{
+					tokens.advance();
+				}
+				break;
+			}
+		}
+		return columnNames;
+	}
+
+	/**
+	 * nextval('name'), nextval(name) or NEXT VALUE FOR name
+	 */
+	private boolean isSequenceReference()
+	{
+		return tokens.isWord("NEXTVAL") || tokens.isWord("NEXT");
+	}
+
+	/**
+	 * Consumes a sequence reference and records it, returns the sequence name or null when it was not one
+	 */
+	private String readSequenceReference() throws IOException
+	{
+		String sequenceName = null;
+		if( tokens.isWord("NEXTVAL") )
+		{
+			tokens.advance();
+			if( tokens.isSymbol('(') )
+			{
+				tokens.advance();
+				if( tokens.type == DdlTokenizer.STRING )
+				{
+					sequenceName = tokens.text;
+					tokens.advance();
+				}
+				else if( tokens.isName() )
+				{
+					sequenceName = readName();
+				}
+
+				//Up to the closing parenthesis, past a cast such as 'name'::regclass
+				while( (tokens.type != DdlTokenizer.EOF) && !tokens.isSymbol(')') && !tokens.isSymbol('(') && !tokens.isSymbol(';') )
+				{
+					tokens.advance();
+				}
+				if( tokens.isSymbol(')') )
+				{
+					tokens.advance();
+				}
+			}
+		}
+		else
+		{
+			tokens.advance();
+			if( tokens.isWord("VALUE") )
+			{
+				tokens.advance();
+				if( tokens.isWord("FOR") )
+				{
+					tokens.advance();
+					if( tokens.isName() )
+					{
+						sequenceName = readName();
+					}
+				}
+			}
+		}
+
+		if( (sequenceName == null) || sequenceName.trim().isEmpty() )
+		{
+			return null;
+		}
+		model.getOrAddSequence(sequenceName.trim()).setReferenced(true);
+		return sequenceName.trim();
+	}
+
+	/**
+	 * Name, possibly qualified by its schema (schema.name), the qualifier is kept
+	 */
+	private String readName() throws IOException
+	{
+		StringBuilder name = new StringBuilder(tokens.text);
+		tokens.advance();
+		while( tokens.isSymbol('.') )
+		{
+			tokens.advance();
+			if( !tokens.isName() )
+			{
+				break;
+			}
+			name.append('.').append(tokens.text);
+			tokens.advance();
+		}
+		return name.toString();
+	}
+
+	private int readNumber() throws IOException
+	{
+		if( tokens.type != DdlTokenizer.NUMBER )
+		{
+			return -1;
+		}
+		Long number = parseLong(tokens.text);
+		tokens.advance();
+		return ((number == null) || (number > Integer.MAX_VALUE)) ? -1 : number.intValue();
+	}
+
+	private static Long parseLong(String text)
+	{
+		try
+		{
+			return Long.valueOf(text);
+		}
+		catch (NumberFormatException e)
+		{
+			return null;
+		}
+	}
+
+	private void skipIfNotExists() throws IOException
+	{
+		if( tokens.isWord("IF") )
+		{
+			tokens.advance();
+			skipWord("NOT");
+			skipWord("EXISTS");
+		}
+	}
+
+	private void skipWord(String word) throws IOException
+	{
+		if( tokens.isWord(word) )
+		{
+			tokens.advance();
+		}
+	}
+
+	private boolean isElementEnd()
+	{
+		return (tokens.type == DdlTokenizer.EOF) || tokens.isSymbol(',') || tokens.isSymbol(')') || tokens.isSymbol(';');
+	}
+
+	/**
+	 * Skips to the ',' or ')' ending the current element of a list, nested parentheses included
+	 */
+	private void skipElement() throws IOException
+	{
+		while( !isElementEnd() )
+		{
+			if( tokens.isSymbol('(') )
+			{
+				skipParentheses();
+			}
+			else
+			{
+				skipToken();
+			}
+		}
+	}
+
+	private void skipParentheses() throws IOException
+	{
+		int depth = 0;
+		do
+		{
+			if( tokens.isSymbol('(') )
+			{
+				depth++;
+			}
+			else if( tokens.isSymbol(')') )
+			{
+				depth--;
+			}
+			skipToken();
+		}
+		while( (depth > 0) && (tokens.type != DdlTokenizer.EOF) && !tokens.isSymbol(';') );
+	}
+
+	/**
+	 * Skips the rest of the statement, including its ';'
+	 */
+	private void skipStatement() throws IOException
+	{
+		while( (tokens.type != DdlTokenizer.EOF) && !tokens.isSymbol(';') )
+		{
+			skipToken();
+		}
+		if( tokens.isSymbol(';') )
+		{
+			tokens.advance();
+		}
+	}
+
+	/**
+	 * Moves past the current token, or past the whole sequence reference starting at it
+	 */
+	private void skipToken() throws IOException
+	{
+		if( isSequenceReference() )
+		{
+			readSequenceReference();
+			return;
+		}
+		tokens.advance();
+	}
+
+	private static List<File> listSqlFiles(File root)
+	{
+		ArrayList<File> files = new ArrayList<File>();
+		if( root.isFile() )
+		{
+			files.add(root);
+			return files;
+		}
+
+		ArrayList<File> pending = new ArrayList<File>();
+		pending.add(root);
+		while( !pending.isEmpty() )
+		{
+			File[] children = pending.remove(pending.size() - 1).listFiles();
+			if( children == null )
+			{
+				continue;
+			}
+
+			for(File child : children)
+			{
+				if( child.isDirectory() )
+				{
+					pending.add(child);
+				}
+				else if( child.getName().toLowerCase(Locale.ROOT).endsWith(".sql") )
+				{
+					files.add(child);
+				}
+			}
+		}
+
+		//listFiles() gives no ordering guarantee, sort to keep the order of the tables and sequences stable between runs
+		Collections.sort(files);
+		return files;
+	}
+}
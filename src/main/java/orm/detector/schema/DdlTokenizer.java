@@ -0,0 +1,220 @@
+package main.java.orm.detector.schema;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Pull tokenizer over a SQL script, reads the characters from the reader as it goes so that a dump file is never
+ * held in memory. The current token is kept in the type and text fields, advance() moves to the next one.
+ *
+ * Comments (-- and block comments) are skipped. String literals accept the '' escape and the typographic quotes
+ * found in hand written schemas, literals longer than MAX_LITERAL_LENGTH are truncated (their content is only
+ * needed for sequence names and default values).
+ */
+class DdlTokenizer
+{
+	static final int EOF = 0;
+	static final int WORD = 1;
+	static final int QUOTED_IDENTIFIER = 2;
+	static final int STRING = 3;
+	static final int NUMBER = 4;
+	static final int SYMBOL = 5;
+
+	private static final int MAX_LITERAL_LENGTH = 4096;
+
+	private Reader reader;
+	private int lookahead = -2;
+
+	int type;
+	String text;
+
+	private StringBuilder buffer = new StringBuilder();
+
+	DdlTokenizer(Reader reader)
+	{
+		this.reader = reader;
+	}
+
+	/**
+	 * Moves to the next token, sets type to EOF at the end of the script
+	 */
+	void advance() throws IOException
+	{
+		buffer.setLength(0);
+		int c = skipBlanksAndComments();
+		if( c < 0 )
+		{
+			type = EOF;
+			text = "";
+			return;
+		}
+
+		if( Character.isLetter(c) || (c == '_') || (c == '$') )
+		{
+			while( (c >= 0) && (Character.isLetterOrDigit(c) || (c == '_') || (c == '$')) )
+			{
+				buffer.append((char) c);
+				c = read();
+			}
+			unread(c);
+			setToken(WORD);
+		}
+		else if( Character.isDigit(c) )
+		{
+			while( (c >= 0) && (Character.isLetterOrDigit(c) || (c == '.')) )
+			{
+				buffer.append((char) c);
+				c = read();
+			}
+			unread(c);
+			setToken(NUMBER);
+		}
+		else if( (c == '\'') || (c == '\u2018') || (c == '\u2019') )
+		{
+			readQuoted(c == '\'' ? '\'' : '\u2019');
+			setToken(STRING);
+		}
+		else if( (c == '"') || (c == '`') )
+		{
+			readQuoted(c);
+			setToken(QUOTED_IDENTIFIER);
+		}
+		else if( c == '[' )
+		{
+			readQuoted(']');
+			setToken(QUOTED_IDENTIFIER);
+		}
+		else
+		{
+			buffer.append((char) c);
+			setToken(SYMBOL);
+		}
+	}
+
+	boolean isWord(String word)
+	{
+		return (type == WORD) && text.equalsIgnoreCase(word);
+	}
+
+	boolean isSymbol(char symbol)
+	{
+		return (type == SYMBOL) && (text.charAt(0) == symbol);
+	}
+
+	boolean isName()
+	{
+		return (type == WORD) || (type == QUOTED_IDENTIFIER);
+	}
+
+	private void setToken(int tokenType)
+	{
+		type = tokenType;
+		text = buffer.toString();
+	}
+
+	/**
+	 * Reads up to the closing quote, a doubled closing quote stands for the quote itself. Both typographic single
+	 * quotes close a typographic string.
+	 */
+	private void readQuoted(int close) throws IOException
+	{
+		while( true )
+		{
+			int c = read();
+			if( c < 0 )
+			{
+				return;
+			}
+
+			boolean closing = (c == close) || ((close == '\u2019') && (c == '\u2018'));
+			if( closing )
+			{
+				int next = read();
+				if( next != c )
+				{
+					unread(next);
+					return;
+				}
+			}
+
+			if( buffer.length() < MAX_LITERAL_LENGTH )
+			{
+				buffer.append((char) c);
+			}
+		}
+	}
+
+	private int skipBlanksAndComments() throws IOException
+	{
+		while( true )
+		{
+			int c = read();
+			if( (c >= 0) && Character.isWhitespace(c) )
+			{
+				continue;
+			}
+
+			if( c == '-' )
+			{
+				int next = read();
+				if( next == '-' )
+				{
+					skipLine();
+					continue;
+				}
+				unread(next);
+			}
+			else if( c == '/' )
+			{
+				int next = read();
+				if( next == '*' )
+				{
+					skipBlockComment();
+					continue;
+				}
+				unread(next);
+			}
+			return c;
+		}
+	}
+
+	private void skipLine() throws IOException
+	{
+		int c;
+		do
+		{
+			c = read();
+		}
+		while( (c >= 0) && (c != '\n') );
+	}
+
+	private void skipBlockComment() throws IOException
+	{
+		int previous = -1;
+		int c;
+		while( (c = read()) >= 0 )
+		{
+			if( (previous == '*') && (c == '/') )
+			{
+				return;
+			}
+			previous = c;
+		}
+	}
+
+	private int read() throws IOException
+	{
+		if( lookahead != -2 )
+		{
+			int c = lookahead;
+			lookahead = -2;
+			return c;
+		}
+		return reader.read();
+	}
+
+	private void unread(int c)
+	{
+		lookahead = c;
+	}
+}
@@ -0,0 +1,46 @@
+package main.java.orm.detector.schema;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Index of a table, created by CREATE INDEX or declared inline in a CREATE TABLE (KEY, INDEX, UNIQUE)
+ */
+public class Index
+{
+	private String name;
+	private String tableName;
+	private List<String> columnNames;
+	private boolean unique;
+
+	public Index( String name, String tableName, List<String> columnNames, boolean unique )
+	{
+		this.name = name;
+		this.tableName = tableName;
+		this.columnNames = new ArrayList<String>(columnNames);
+		this.unique = unique;
+	}
+
+	/**
+	 * Null for an unnamed index
+	 */
+	public String getName()
+	{
+		return name;
+	}
+
+	public String getTableName()
+	{
+		return tableName;
+	}
+
+	public List<String> getColumnNames()
+	{
+		return columnNames;
+	}
+
+	public boolean isUnique()
+	{
+		return unique;
+	}
+}
@@ -0,0 +1,111 @@
+package main.java.orm.detector.schema;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * In-memory model of the SQL schema of a release: tables with their typed columns and indexes, and sequences.
+ * It is built once by DdlParser and handed to the detectors through SQLDriver.getSchemaModel, names are looked up case insensitively and by their
+ * simple name (a schema qualified name is stored under its last part).
+ */
+public class SchemaModel
+{
+	private LinkedHashMap<String, Table> tables = new LinkedHashMap<String, Table>();
+	private LinkedHashMap<String, Sequence> sequences = new LinkedHashMap<String, Sequence>();
+	private int fileCount;
+
+	public Collection<Table> getTables()
+	{
+		return tables.values();
+	}
+
+	/**
+	 * Null when the scripts neither declare nor load the table
+	 */
+	public Table getTable( String tableName )
+	{
+		return tables.get(key(tableName));
+	}
+
+	Table getOrAddTable( String tableName )
+	{
+		String key = key(tableName);
+		Table table = tables.get(key);
+		if( table == null )
+		{
+			table = new Table(tableName);
+			tables.put(key, table);
+		}
+		return table;
+	}
+
+	public Collection<Sequence> getSequences()
+	{
+		return sequences.values();
+	}
+
+	/**
+	 * Null when the scripts do not know the sequence
+	 */
+	public Sequence getSequence( String sequenceName )
+	{
+		return sequences.get(key(sequenceName));
+	}
+
+	public boolean hasSequence( String sequenceName )
+	{
+		return sequences.containsKey(key(sequenceName));
+	}
+
+	Sequence getOrAddSequence( String sequenceName )
+	{
+		String key = key(sequenceName);
+		Sequence sequence = sequences.get(key);
+		if( sequence == null )
+		{
+			sequence = new Sequence(sequenceName);
+			sequences.put(key, sequence);
+		}
+		return sequence;
+	}
+
+	public List<Index> getIndexes()
+	{
+		List<Index> indexes = new ArrayList<Index>();
+		for(Table table : tables.values())
+		{
+			indexes.addAll(table.getIndexes());
+		}
+		return indexes;
+	}
+
+	/**
+	 * Number of sql files parsed into the model
+	 */
+	public int getFileCount()
+	{
+		return fileCount;
+	}
+
+	void addFile()
+	{
+		fileCount++;
+	}
+
+	/**
+	 * Lower case simple name, the quotes and schema qualifier are dropped
+	 */
+	static String key( String name )
+	{
+		String simpleName = name.trim();
+		int dot = simpleName.lastIndexOf('.');
+		if( dot >= 0 )
+		{
+			simpleName = simpleName.substring(dot + 1);
+		}
+		return simpleName.toLowerCase(Locale.ROOT);
+	}
+}
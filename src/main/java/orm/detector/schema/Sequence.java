@@ -0,0 +1,76 @@
+package main.java.orm.detector.schema;
+
+/**
+ * Sequence known to the schema, created by a CREATE SEQUENCE, referenced by a nextval('...') or declared as a row
+ * of Hibernate's SEQUENCE_GENERATOR table
+ */
+public class Sequence
+{
+	private String name;
+	private boolean created;
+	private boolean referenced;
+	private boolean generatorRow;
+	private Long startValue;
+
+	public Sequence( String name )
+	{
+		this.name = name;
+	}
+
+	public String getName()
+	{
+		return name;
+	}
+
+	/**
+	 * True when a CREATE SEQUENCE statement declares it
+	 */
+	public boolean isCreated()
+	{
+		return created;
+	}
+
+	void setCreated( boolean created )
+	{
+		this.created = created;
+	}
+
+	/**
+	 * True when a column default or another statement calls nextval on it
+	 */
+	public boolean isReferenced()
+	{
+		return referenced;
+	}
+
+	void setReferenced( boolean referenced )
+	{
+		this.referenced = referenced;
+	}
+
+	/**
+	 * True when it is a row of the SEQUENCE_GENERATOR table
+	 */
+	public boolean isGeneratorRow()
+	{
+		return generatorRow;
+	}
+
+	void setGeneratorRow( boolean generatorRow )
+	{
+		this.generatorRow = generatorRow;
+	}
+
+	/**
+	 * START WITH value or initial value of the generator row, null when unknown
+	 */
+	public Long getStartValue()
+	{
+		return startValue;
+	}
+
+	void setStartValue( Long startValue )
+	{
+		this.startValue = startValue;
+	}
+}
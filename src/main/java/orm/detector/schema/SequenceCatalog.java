@@ -0,0 +1,91 @@
+package main.java.orm.detector.schema;
+
+import java.util.HashSet;
+import java.util.Locale;
+
+/**
+ * Sequence names known to the SQL schema of a release, indexed once so that every @SequenceGenerator check is a
+ * hash lookup instead of a scan of the schema files.
+ *
+ * A sequence is known when it is created (CREATE SEQUENCE), referenced by a column default (nextval('name'), the
+ * quotes may be typographic ones as in hand written schemas) or is a row of Hibernate's SEQUENCE_GENERATOR table
+ * (INSERT INTO SEQUENCE_GENERATOR VALUES ('name', ...)), see DdlParser. Names are compared case insensitively,
+ * a schema qualified name is also known by its simple name.
+ */
+public class SequenceCatalog
+{
+	private static final String QUOTES = "'\"`\u2018\u2019\u201C\u201D";
+
+	private HashSet<String> sequences = new HashSet<String>();
+
+	/**
+	 * Indexes the schema at the given path, a single SQL file or a directory whose .sql files are all read
+	 */
+	public static SequenceCatalog load(String schemaPath)
+	{
+		return of(DdlParser.parse(schemaPath));
+	}
+
+	/**
+	 * Indexes the sequences of an already parsed schema
+	 */
+	public static SequenceCatalog of(SchemaModel schema)
+	{
+		SequenceCatalog catalog = new SequenceCatalog();
+		for(Sequence sequence : schema.getSequences())
+		{
+			catalog.add(sequence.getName());
+		}
+		return catalog;
+	}
+
+	public void add(String sequenceName)
+	{
+		String name = normalize(sequenceName);
+		if( name.isEmpty() )
+		{
+			return;
+		}
+
+		sequences.add(name);
+		int dot = name.lastIndexOf('.');
+		if( dot >= 0 )
+		{
+			sequences.add(name.substring(dot + 1));
+		}
+	}
+
+	/**
+	 * @param sequenceName the sequenceName value of the annotation, with or without its quotes
+	 */
+	public boolean contains(String sequenceName)
+	{
+		return sequences.contains(normalize(sequenceName));
+	}
+
+	public int size()
+	{
+		return sequences.size();
+	}
+
+	private static String normalize(String sequenceName)
+	{
+		if( sequenceName == null )
+		{
+			return "";
+		}
+
+		String name = sequenceName.trim();
+		int start = 0;
+		int end = name.length();
+		while( (start < end) && (QUOTES.indexOf(name.charAt(start)) >= 0) )
+		{
+			start++;
+		}
+		while( (end > start) && (QUOTES.indexOf(name.charAt(end - 1)) >= 0) )
+		{
+			end--;
+		}
+		return name.substring(start, end).trim().toLowerCase(Locale.ROOT);
+	}
+}
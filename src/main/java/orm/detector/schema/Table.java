@@ -0,0 +1,97 @@
+package main.java.orm.detector.schema;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Table of the schema, with its columns in declaration order. Tables only loaded with INSERTs (the load_*.sql files)
+ * are not declared, their columns are the ones named in the INSERT column lists, without types.
+ */
+public class Table
+{
+	private String name;
+	private boolean declared;
+	private LinkedHashMap<String, Column> columns = new LinkedHashMap<String, Column>();
+	private List<Index> indexes = new ArrayList<Index>();
+	private long insertedRows;
+
+	public Table( String name )
+	{
+		this.name = name;
+	}
+
+	public String getName()
+	{
+		return name;
+	}
+
+	/**
+	 * True when a CREATE TABLE statement declares it
+	 */
+	public boolean isDeclared()
+	{
+		return declared;
+	}
+
+	void setDeclared( boolean declared )
+	{
+		this.declared = declared;
+	}
+
+	public Collection<Column> getColumns()
+	{
+		return columns.values();
+	}
+
+	/**
+	 * Case insensitive, null when the table has no such column
+	 */
+	public Column getColumn( String columnName )
+	{
+		return columns.get(columnName.toLowerCase(Locale.ROOT));
+	}
+
+	Column getOrAddColumn( String columnName )
+	{
+		String key = columnName.toLowerCase(Locale.ROOT);
+		Column column = columns.get(key);
+		if( column == null )
+		{
+			column = new Column(columnName);
+			columns.put(key, column);
+		}
+		return column;
+	}
+
+	Column addColumn( Column column )
+	{
+		columns.put(column.getName().toLowerCase(Locale.ROOT), column);
+		return column;
+	}
+
+	public List<Index> getIndexes()
+	{
+		return indexes;
+	}
+
+	void addIndex( Index index )
+	{
+		indexes.add(index);
+	}
+
+	/**
+	 * Rows inserted into the table by the scripts
+	 */
+	public long getInsertedRows()
+	{
+		return insertedRows;
+	}
+
+	void addInsertedRows( long rows )
+	{
+		insertedRows += rows;
+	}
+}